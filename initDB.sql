@@ -1,5 +1,6 @@
 CREATE TABLE service_users (
     id BIGINT not null AUTO_INCREMENT,
+    tenant VARCHAR(40) not null default 'default',
     userName VARCHAR(40) not null,
     userPassword VARCHAR(255) not null,
     userRole VARCHAR(10) not null,
@@ -9,18 +10,60 @@ CREATE TABLE service_users (
 
 CREATE TABLE commissions (
     id BIGINT not null AUTO_INCREMENT,
+    tenant VARCHAR(40) not null default 'default',
     commissionPt DECIMAL(5,2) not null,
     currencyFrom VARCHAR(3) not null,
     currencyTo VARCHAR(3) not null,
+    version BIGINT not null default 0,
 
-    PRIMARY KEY (id)
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_commissions_pair (tenant, currencyFrom, currencyTo),
+    KEY commissions_currencyTo (tenant, currencyTo, currencyFrom)
+);
+
+CREATE TABLE commission_bands (
+    id BIGINT not null AUTO_INCREMENT,
+    tenant VARCHAR(40) not null default 'default',
+    currencyFrom VARCHAR(3) not null,
+    currencyTo VARCHAR(3) not null,
+    minAmount DECIMAL(38,2) not null,
+    commissionPt DECIMAL(5,2) not null,
+
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_commission_bands_pair_amount (tenant, currencyFrom, currencyTo, minAmount)
+);
+
+CREATE TABLE user_commissions (
+    id BIGINT not null AUTO_INCREMENT,
+    userId BIGINT not null,
+    currencyFrom VARCHAR(3) not null,
+    currencyTo VARCHAR(3) not null,
+    commissionPt DECIMAL(5,2) not null,
+
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_user_commissions_user_pair (userId, currencyFrom, currencyTo),
+    FOREIGN KEY (userId) REFERENCES service_users (id) ON DELETE CASCADE
 );
 
 CREATE TABLE exchangerates (
     id BIGINT not null AUTO_INCREMENT,
+    tenant VARCHAR(40) not null default 'default',
     currencyFrom VARCHAR(3) not null,
     rate DECIMAL(38,5) not null,
     currencyTo VARCHAR(3) not null,
+    bid DECIMAL(38,5),
+    ask DECIMAL(38,5),
+    updatedAt BIGINT,
+    version BIGINT not null default 0,
+
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_exchangerates_pair (tenant, currencyFrom, currencyTo),
+    KEY exchangeRates_currencyTo (tenant, currencyTo, currencyFrom)
+);
+
+CREATE TABLE replica_heartbeat (
+    id INT not null,
+    beat BIGINT not null,
 
     PRIMARY KEY (id)
-);
\ No newline at end of file
+);
@@ -2,22 +2,13 @@ package com.example.exchange;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.boot.jdbc.DataSourceBuilder;
-import org.springframework.context.annotation.Bean;
-
-import javax.sql.DataSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @SpringBootApplication
 public class ExchangeApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(ExchangeApplication.class, args);
 	}
-
-	@Bean
-	@ConfigurationProperties(prefix = "app.datasource")
-	public DataSource dataSource() {
-		return DataSourceBuilder.create().build();
-	}
 }
@@ -0,0 +1,96 @@
+package com.example.exchange.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of requests of one endpoint class served at the same time. A request that finds every permit
+ * taken waits for one in a bounded queue for at most {@code maxWaitMs} and is rejected when the queue is full or the
+ * wait times out, so a slow class can't hold more server threads than its permits and queue.
+ */
+public class Bulkhead {
+
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger peakWaiting = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(int maxConcurrent, int maxWaiting, long maxWaitMs) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Takes a permit which must be given back with {@link #release()}, returns {@code false} if the request is
+     * rejected.
+     */
+    public boolean acquire() throws InterruptedException {
+        // a timed try of a fair semaphore doesn't barge in front of waiting requests
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            accepted.increment();
+            return true;
+        }
+        int queued = waiting.incrementAndGet();
+        try {
+            if (queued > maxWaiting) {
+                rejected.increment();
+                return false;
+            }
+            peakWaiting.accumulateAndGet(queued, Math::max);
+            if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                accepted.increment();
+                return true;
+            }
+            rejected.increment();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxWaiting() {
+        return maxWaiting;
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Requests waiting for a permit right now.
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Largest number of requests that waited for a permit at the same time since start.
+     */
+    public int getPeakWaiting() {
+        return peakWaiting.get();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.exchange.bulkhead;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled = true;
+    private Limits quote = new Limits();
+    private Limits list = new Limits();
+    private Limits admin = new Limits();
+
+    public Limits limitsOf(EndpointClass endpointClass) {
+        switch (endpointClass) {
+            case QUOTE:
+                return quote;
+            case LIST:
+                return list;
+            default:
+                return admin;
+        }
+    }
+
+    @Data
+    public static class Limits {
+
+        private int maxConcurrent = 50;
+        private int maxWaiting = 50;
+        private long maxWaitMs = 100;
+        private int poolSize = 5;
+    }
+}
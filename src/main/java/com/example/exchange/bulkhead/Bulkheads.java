@@ -0,0 +1,95 @@
+package com.example.exchange.bulkhead;
+
+import com.example.exchange.models.BulkheadStatistics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulkheads and connection pool partitions of the endpoint classes configured with {@code app.bulkhead.*}.
+ */
+@Log4j2
+@Component
+public class Bulkheads {
+
+    private final BulkheadProperties properties;
+    private final Map<EndpointClass, Bulkhead> bulkheads = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, HikariDataSource> pools = new EnumMap<>(EndpointClass.class);
+
+    @Autowired
+    public Bulkheads(BulkheadProperties properties) {
+        this.properties = properties;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            BulkheadProperties.Limits limits = properties.limitsOf(endpointClass);
+            bulkheads.put(endpointClass, new Bulkhead(limits.getMaxConcurrent(), limits.getMaxWaiting(),
+                    limits.getMaxWaitMs()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Bulkhead get(EndpointClass endpointClass) {
+        return bulkheads.get(endpointClass);
+    }
+
+    /**
+     * Pool of the primary database, split into a pool per endpoint class when bulkheads are enabled.
+     */
+    public synchronized DataSource partition(HikariConfig config) {
+        if (!properties.isEnabled()) {
+            return new HikariDataSource(config);
+        }
+        String poolName = config.getPoolName() != null ? config.getPoolName() : "primary";
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            HikariConfig partitionConfig = new HikariConfig();
+            config.copyStateTo(partitionConfig);
+            partitionConfig.setPoolName(poolName + "-" + endpointClass.name().toLowerCase());
+            partitionConfig.setMaximumPoolSize(properties.limitsOf(endpointClass).getPoolSize());
+            pools.put(endpointClass, new HikariDataSource(partitionConfig));
+        }
+        return new PartitionedDataSource(pools);
+    }
+
+    public List<BulkheadStatistics> report() {
+        List<BulkheadStatistics> results = new ArrayList<>();
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Bulkhead bulkhead = bulkheads.get(endpointClass);
+            BulkheadStatistics statistics = new BulkheadStatistics();
+            statistics.setEndpointClass(endpointClass.name());
+            statistics.setMaxConcurrent(bulkhead.getMaxConcurrent());
+            statistics.setActive(bulkhead.getActive());
+            statistics.setMaxWaiting(bulkhead.getMaxWaiting());
+            statistics.setWaiting(bulkhead.getWaiting());
+            statistics.setPeakWaiting(bulkhead.getPeakWaiting());
+            statistics.setAccepted(bulkhead.getAccepted());
+            statistics.setRejected(bulkhead.getRejected());
+            HikariDataSource pool = pools.get(endpointClass);
+            HikariPoolMXBean poolBean = pool != null ? pool.getHikariPoolMXBean() : null;
+            if (poolBean != null) {
+                statistics.setPoolSize(pool.getMaximumPoolSize());
+                statistics.setActiveConnections(poolBean.getActiveConnections());
+                statistics.setIdleConnections(poolBean.getIdleConnections());
+                statistics.setThreadsAwaitingConnection(poolBean.getThreadsAwaitingConnection());
+            }
+            results.add(statistics);
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.exchange.bulkhead;
+
+/**
+ * Class of API endpoints isolated by its own {@link Bulkhead} and connection pool partition.
+ */
+public enum EndpointClass {
+
+    /**
+     * Exchange quotes and conversions.
+     */
+    QUOTE,
+    /**
+     * Lists and exports read by any user.
+     */
+    LIST,
+    /**
+     * Changes of rates and commissions and admin endpoints.
+     */
+    ADMIN;
+
+    private static final ThreadLocal<EndpointClass> CURRENT = new ThreadLocal<>();
+
+    public static EndpointClass of(String method, String path) {
+        if (path.startsWith("/api/admin/") || path.startsWith("/api/user-commissions")) {
+            return ADMIN;
+        }
+        if (path.equals("/api/exchange") || path.startsWith("/api/exchange/") || path.startsWith("/api/portfolio/")) {
+            return QUOTE;
+        }
+        return "GET".equals(method) ? LIST : ADMIN;
+    }
+
+    /**
+     * Class of the request served by the current thread or {@code null} outside of API requests, for example in
+     * scheduled reloads.
+     */
+    public static EndpointClass current() {
+        return CURRENT.get();
+    }
+
+    static void enter(EndpointClass endpointClass) {
+        CURRENT.set(endpointClass);
+    }
+
+    static void exit() {
+        CURRENT.remove();
+    }
+}
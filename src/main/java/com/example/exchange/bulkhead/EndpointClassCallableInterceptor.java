@@ -0,0 +1,30 @@
+package com.example.exchange.bulkhead;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs async handler results, like streamed exports, with the {@link EndpointClass} of their request, so their
+ * connections come from the pool partition of the request and not from the default one.
+ */
+@Component
+public class EndpointClassCallableInterceptor implements CallableProcessingInterceptor {
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object endpointClass = request.getAttribute(EndpointClassFilter.ENDPOINT_CLASS_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (endpointClass != null) {
+            EndpointClass.enter((EndpointClass) endpointClass);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        EndpointClass.exit();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.exchange.bulkhead;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Runs right before the security filters and sets the {@link EndpointClass} of the request, so the user lookup of
+ * authentication already takes its connection from the pool partition of the request. The permit of the class is
+ * taken later by {@link BulkheadFilter}, after the request is authenticated.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class EndpointClassFilter extends OncePerRequestFilter {
+
+    /**
+     * Request attribute holding the {@link EndpointClass} of the request.
+     */
+    static final String ENDPOINT_CLASS_ATTRIBUTE = EndpointClassFilter.class.getName() + ".endpointClass";
+
+    private final Bulkheads bulkheads;
+
+    @Autowired
+    public EndpointClassFilter(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Endpoint class set for the request by this filter, or the class of its method and path when the filter didn't
+     * run.
+     */
+    static EndpointClass endpointClassOf(HttpServletRequest request) {
+        Object endpointClass = request.getAttribute(ENDPOINT_CLASS_ATTRIBUTE);
+        if (endpointClass != null) {
+            return (EndpointClass) endpointClass;
+        }
+        return EndpointClass.of(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !bulkheads.isEnabled() || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = endpointClassOf(request);
+        request.setAttribute(ENDPOINT_CLASS_ATTRIBUTE, endpointClass);
+        EndpointClass.enter(endpointClass);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            EndpointClass.exit();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.exchange.bulkhead;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives every endpoint class connections of its own pool, connections requested outside of API requests come from
+ * the pool of {@link EndpointClass#LIST}.
+ */
+class PartitionedDataSource extends AbstractRoutingDataSource {
+
+    PartitionedDataSource(Map<EndpointClass, ? extends DataSource> pools) {
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(EndpointClass.LIST));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return EndpointClass.current();
+    }
+}
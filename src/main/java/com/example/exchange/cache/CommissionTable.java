@@ -0,0 +1,150 @@
+package com.example.exchange.cache;
+
+import com.example.exchange.models.enums.Currency;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable in-memory commission table. For every currency pair it keeps amount thresholds sorted ascending in a
+ * primitive array and commission coefficients for the matching bands, so a band is resolved by binary search without
+ * allocation. Amounts within rounding error of a threshold are settled by comparing with the exact threshold, so an
+ * amount equal to a band minimum always falls into the band. The first threshold of a pair is always zero and holds
+ * the base commission.
+ */
+public final class CommissionTable {
+
+    public static final CommissionTable EMPTY = new Builder().build();
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final double[][] thresholds;
+    private final BigDecimal[][] exactThresholds;
+    private final BigDecimal[][] coefficients;
+
+    private CommissionTable(double[][] thresholds, BigDecimal[][] exactThresholds, BigDecimal[][] coefficients) {
+        this.thresholds = thresholds;
+        this.exactThresholds = exactThresholds;
+        this.coefficients = coefficients;
+    }
+
+    public BigDecimal getCoefficient(Currency from, Currency to) {
+        BigDecimal[] pairCoefficients = coefficients[Currency.pairIndex(from, to)];
+        return pairCoefficients == null ? BigDecimal.ONE : pairCoefficients[0];
+    }
+
+    public BigDecimal getCoefficient(Currency from, Currency to, BigDecimal amount) {
+        int pair = Currency.pairIndex(from, to);
+        BigDecimal[] pairCoefficients = coefficients[pair];
+        if (pairCoefficients == null) {
+            return BigDecimal.ONE;
+        }
+        return pairCoefficients[band(thresholds[pair], exactThresholds[pair], amount)];
+    }
+
+    double[] thresholds(int pair) {
+        return thresholds[pair];
+    }
+
+    BigDecimal[] exactThresholds(int pair) {
+        return exactThresholds[pair];
+    }
+
+    BigDecimal[] coefficients(int pair) {
+        return coefficients[pair];
+    }
+
+    /**
+     * Index of the last threshold that is less or equal to the amount, thresholds start with zero.
+     */
+    static int band(double[] thresholds, double amount) {
+        int low = 0;
+        int high = thresholds.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (thresholds[middle] <= amount) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * {@link #band(double[], double)} of the amount, moved to the neighbouring band when the amount is within rounding
+     * error of the threshold between them and the exact comparison disagrees.
+     */
+    static int band(double[] thresholds, BigDecimal[] exactThresholds, BigDecimal amount) {
+        double value = amount.doubleValue();
+        int band = band(thresholds, value);
+        if (band > 0 && isNear(value, thresholds[band]) && exactThresholds[band].compareTo(amount) > 0) {
+            return band - 1;
+        }
+        if (band + 1 < thresholds.length && isNear(value, thresholds[band + 1])
+                && exactThresholds[band + 1].compareTo(amount) <= 0) {
+            return band + 1;
+        }
+        return band;
+    }
+
+    private static boolean isNear(double amount, double threshold) {
+        return Math.abs(amount - threshold) <= 4 * Math.ulp(threshold);
+    }
+
+    public static BigDecimal coefficientOf(BigDecimal commissionPt) {
+        return BigDecimal.ONE.subtract(commissionPt.divide(HUNDRED, 5, BigDecimal.ROUND_DOWN));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        @SuppressWarnings("unchecked")
+        private final TreeMap<BigDecimal, BigDecimal>[] bands = new TreeMap[Currency.PAIRS];
+
+        private Builder() {
+        }
+
+        public Builder commission(Currency from, Currency to, BigDecimal commissionPt) {
+            return band(from, to, BigDecimal.ZERO, commissionPt);
+        }
+
+        public Builder band(Currency from, Currency to, BigDecimal minAmount, BigDecimal commissionPt) {
+            int pair = Currency.pairIndex(from, to);
+            if (bands[pair] == null) {
+                bands[pair] = new TreeMap<>();
+            }
+            bands[pair].put(minAmount, commissionPt);
+            return this;
+        }
+
+        public CommissionTable build() {
+            double[][] thresholds = new double[Currency.PAIRS][];
+            BigDecimal[][] exactThresholds = new BigDecimal[Currency.PAIRS][];
+            BigDecimal[][] coefficients = new BigDecimal[Currency.PAIRS][];
+            for (int pair = 0; pair < Currency.PAIRS; pair++) {
+                TreeMap<BigDecimal, BigDecimal> pairBands = bands[pair];
+                if (pairBands == null) {
+                    continue;
+                }
+                // without base commission amounts below the first band are exchanged for free
+                pairBands.putIfAbsent(BigDecimal.ZERO, BigDecimal.ZERO);
+                thresholds[pair] = new double[pairBands.size()];
+                exactThresholds[pair] = new BigDecimal[pairBands.size()];
+                coefficients[pair] = new BigDecimal[pairBands.size()];
+                int i = 0;
+                for (Map.Entry<BigDecimal, BigDecimal> band : pairBands.entrySet()) {
+                    thresholds[pair][i] = band.getKey().doubleValue();
+                    exactThresholds[pair][i] = band.getKey();
+                    coefficients[pair][i] = coefficientOf(band.getValue());
+                    i++;
+                }
+            }
+            return new CommissionTable(thresholds, exactThresholds, coefficients);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.exchange.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Precision policy of quotes: math context of intermediate products, scale of the GET divisor, scales of the resulting
+ * amounts and the rounding mode applied to all scales. The default is the original arithmetic: GET amounts keep the
+ * scale of the requested amount unless {@code amountFromScale} opts in to a fixed one.
+ */
+@Getter
+@AllArgsConstructor
+public final class QuotePolicy {
+
+    /**
+     * Scale of GET amounts that keeps the scale of the requested amount.
+     */
+    public static final int REQUESTED_SCALE = -1;
+
+    public static final QuotePolicy DEFAULT = new QuotePolicy(MathContext.UNLIMITED, 2, 2, REQUESTED_SCALE,
+            RoundingMode.DOWN);
+
+    private final MathContext mathContext;
+    private final int divisorScale;
+    private final int amountScale;
+    private final int amountFromScale;
+    private final RoundingMode roundingMode;
+
+    public BigDecimal multiplierOf(BigDecimal rate, BigDecimal commissionCoefficient) {
+        return rate.multiply(commissionCoefficient, mathContext);
+    }
+
+    public BigDecimal divisorOf(BigDecimal rate, BigDecimal commissionCoefficient) {
+        return rate.multiply(commissionCoefficient, mathContext).setScale(divisorScale, roundingMode);
+    }
+
+    public BigDecimal give(BigDecimal amountFrom, BigDecimal multiplier) {
+        return amountFrom.multiply(multiplier, mathContext).setScale(amountScale, roundingMode);
+    }
+
+    public BigDecimal get(BigDecimal amountTo, BigDecimal divisor) {
+        return amountFromScale == REQUESTED_SCALE
+                ? amountTo.divide(divisor, roundingMode)
+                : amountTo.divide(divisor, amountFromScale, roundingMode);
+    }
+}
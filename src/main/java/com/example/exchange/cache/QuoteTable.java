@@ -0,0 +1,109 @@
+package com.example.exchange.cache;
+
+import com.example.exchange.models.enums.Currency;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable table of effective quotes derived from a rate matrix and a commission table. For every quoted pair and
+ * commission band it keeps the GIVE multiplier ({@code bid * coefficient}) and the scaled GET divisor, so a quote is a
+ * band lookup followed by one multiplication or one division. GET band thresholds are converted to
+ * {@code currencyTo} at the bid, so the band of a GET quote is found without converting the amount back. The exact
+ * products settle amounts at a band minimum, so a GET quote falls into the band of {@code amountTo / bid}.
+ */
+public final class QuoteTable {
+
+    private static final int CURRENCIES = Currency.values().length;
+
+    private final RateMatrix rates;
+    private final CommissionTable commissions;
+    private final QuotePolicy policy;
+
+    private final BigDecimal[] bids = new BigDecimal[Currency.PAIRS];
+    private final double[][] giveThresholds = new double[Currency.PAIRS][];
+    private final BigDecimal[][] exactGiveThresholds = new BigDecimal[Currency.PAIRS][];
+    private final BigDecimal[][] multipliers = new BigDecimal[Currency.PAIRS][];
+    private final double[][] getThresholds = new double[Currency.PAIRS][];
+    private final BigDecimal[][] exactGetThresholds = new BigDecimal[Currency.PAIRS][];
+    private final BigDecimal[][] divisors = new BigDecimal[Currency.PAIRS][];
+
+    public QuoteTable(RateMatrix rates, CommissionTable commissions, QuotePolicy policy) {
+        this.rates = rates;
+        this.commissions = commissions;
+        this.policy = policy;
+        for (int pair = 0; pair < Currency.PAIRS; pair++) {
+            BigDecimal bid = rates.getBid(Currency.fromOfPair(pair), Currency.toOfPair(pair));
+            if (bid == null) {
+                continue;
+            }
+            double[] thresholds = commissions.thresholds(pair);
+            BigDecimal[] exactThresholds = commissions.exactThresholds(pair);
+            BigDecimal[] coefficients = commissions.coefficients(pair);
+            if (coefficients == null) {
+                thresholds = new double[]{0d};
+                exactThresholds = new BigDecimal[]{BigDecimal.ZERO};
+                coefficients = new BigDecimal[]{BigDecimal.ONE};
+            }
+            bids[pair] = bid;
+            giveThresholds[pair] = thresholds;
+            exactGiveThresholds[pair] = exactThresholds;
+            multipliers[pair] = new BigDecimal[coefficients.length];
+            getThresholds[pair] = new double[coefficients.length];
+            exactGetThresholds[pair] = new BigDecimal[coefficients.length];
+            divisors[pair] = new BigDecimal[coefficients.length];
+            for (int band = 0; band < coefficients.length; band++) {
+                multipliers[pair][band] = policy.multiplierOf(bid, coefficients[band]);
+                exactGetThresholds[pair][band] = exactThresholds[band].multiply(bid);
+                getThresholds[pair][band] = exactGetThresholds[pair][band].doubleValue();
+                divisors[pair][band] = policy.divisorOf(bid, coefficients[band]);
+            }
+        }
+    }
+
+    public boolean isBuiltFrom(RateMatrix rates, CommissionTable commissions) {
+        return this.rates == rates && this.commissions == commissions;
+    }
+
+    public QuotePolicy getPolicy() {
+        return policy;
+    }
+
+    public RateMatrix getRates() {
+        return rates;
+    }
+
+    /**
+     * Bid of the pair or {@code null} if the pair isn't quoted.
+     */
+    public BigDecimal getBid(Currency from, Currency to) {
+        return bids[Currency.pairIndex(from, to)];
+    }
+
+    public BigDecimal getMultiplier(Currency from, Currency to, BigDecimal amountFrom) {
+        int pair = Currency.pairIndex(from, to);
+        return multipliers[pair][CommissionTable.band(giveThresholds[pair], exactGiveThresholds[pair], amountFrom)];
+    }
+
+    /**
+     * GIVE multipliers from {@code from} to every currency for the amount, indexed by ordinal of the target currency
+     * and {@code null} for pairs that aren't quoted. Pairs of one source currency are adjacent in the tables, so the
+     * whole row is read in one pass.
+     */
+    public BigDecimal[] getMultipliers(Currency from, BigDecimal amountFrom) {
+        int row = from.ordinal() * CURRENCIES;
+        BigDecimal[] result = new BigDecimal[CURRENCIES];
+        for (int to = 0; to < CURRENCIES; to++) {
+            BigDecimal[] pairMultipliers = multipliers[row + to];
+            if (pairMultipliers != null) {
+                result[to] = pairMultipliers[CommissionTable.band(giveThresholds[row + to],
+                        exactGiveThresholds[row + to], amountFrom)];
+            }
+        }
+        return result;
+    }
+
+    public BigDecimal getDivisor(Currency from, Currency to, BigDecimal amountTo) {
+        int pair = Currency.pairIndex(from, to);
+        return divisors[pair][CommissionTable.band(getThresholds[pair], exactGetThresholds[pair], amountTo)];
+    }
+}
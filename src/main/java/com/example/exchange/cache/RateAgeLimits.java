@@ -0,0 +1,69 @@
+package com.example.exchange.cache;
+
+import com.example.exchange.models.enums.Currency;
+
+import java.util.Arrays;
+
+/**
+ * Longest age of the rate of every currency pair. Limits are kept in a primitive array indexed by {@code pairIndex},
+ * so checking a quote is one subtraction and one comparison with the update time held by the {@link RateMatrix}.
+ * Rates without update time are never stale.
+ */
+public final class RateAgeLimits {
+
+    public static final RateAgeLimits NONE = new RateAgeLimits(new long[Currency.PAIRS], false);
+
+    private final long[] maxAgeMs;
+    private final boolean limited;
+    private final boolean reject;
+
+    private RateAgeLimits(long[] maxAgeMs, boolean reject) {
+        this.limited = Arrays.stream(maxAgeMs).anyMatch(maxAge -> maxAge > 0);
+        this.maxAgeMs = Arrays.stream(maxAgeMs).map(maxAge -> maxAge > 0 ? maxAge : Long.MAX_VALUE).toArray();
+        this.reject = reject;
+    }
+
+    /**
+     * Limits of {@code maxAgeMs} for every pair overridden by {@code pairMaxAgeMs}, a comma separated list of
+     * {@code FROM:TO=ms} entries which also set the limit of the reverse pair. A limit of {@code 0} disables the check.
+     *
+     * @param reject whether stale rates are refused or only flagged
+     */
+    public static RateAgeLimits of(long maxAgeMs, String pairMaxAgeMs, boolean reject) {
+        long[] limits = new long[Currency.PAIRS];
+        Arrays.fill(limits, maxAgeMs);
+        for (String entry : pairMaxAgeMs.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] pairAndLimit = entry.trim().split("=");
+            String[] currencies = pairAndLimit[0].split(":");
+            if (pairAndLimit.length != 2 || currencies.length != 2) {
+                throw new IllegalArgumentException("Rate age limit should be FROM:TO=ms, but was " + entry);
+            }
+            Currency from = Currency.valueOf(currencies[0].trim());
+            Currency to = Currency.valueOf(currencies[1].trim());
+            long limit = Long.parseLong(pairAndLimit[1].trim());
+            limits[Currency.pairIndex(from, to)] = limit;
+            limits[Currency.pairIndex(to, from)] = limit;
+        }
+        return new RateAgeLimits(limits, reject);
+    }
+
+    /**
+     * Whether stale rates are refused, quotes of stale rates are only flagged otherwise.
+     */
+    public boolean isRejecting() {
+        return limited && reject;
+    }
+
+    public boolean isLimited() {
+        return limited;
+    }
+
+    public boolean isStale(RateMatrix rates, Currency from, Currency to, long now) {
+        int pair = Currency.pairIndex(from, to);
+        long updatedAt = rates.getUpdatedAt(pair);
+        return updatedAt != 0 && now - updatedAt > maxAgeMs[pair];
+    }
+}
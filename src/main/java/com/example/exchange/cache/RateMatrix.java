@@ -0,0 +1,72 @@
+package com.example.exchange.cache;
+
+import com.example.exchange.models.enums.Currency;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable two-sided rate matrix. Bid and ask of every currency pair are stored next to each other in one flat array
+ * indexed by {@code pairIndex * 2 + side}, so picking the side of a quote is a single array read. Update times of the
+ * rates are kept as epoch milliseconds in a primitive array indexed by {@code pairIndex}.
+ */
+public final class RateMatrix {
+
+    public static final RateMatrix EMPTY = new Builder().build();
+
+    private static final int BID = 0;
+    private static final int ASK = 1;
+
+    private final BigDecimal[] sides;
+    private final long[] updatedAt;
+
+    private RateMatrix(BigDecimal[] sides, long[] updatedAt) {
+        this.sides = sides;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Amount of {@code to} paid for one unit of {@code from} or {@code null} if the pair isn't quoted.
+     */
+    public BigDecimal getBid(Currency from, Currency to) {
+        return sides[(Currency.pairIndex(from, to) << 1) | BID];
+    }
+
+    /**
+     * Amount of {@code to} charged for one unit of {@code from} or {@code null} if the pair isn't quoted.
+     */
+    public BigDecimal getAsk(Currency from, Currency to) {
+        return sides[(Currency.pairIndex(from, to) << 1) | ASK];
+    }
+
+    /**
+     * Time of the last change of the pair in epoch milliseconds or {@code 0} if it isn't known.
+     */
+    public long getUpdatedAt(int pair) {
+        return updatedAt[pair];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final BigDecimal[] sides = new BigDecimal[Currency.PAIRS * 2];
+        private final long[] updatedAt = new long[Currency.PAIRS];
+
+        private Builder() {
+        }
+
+        public Builder rate(Currency from, Currency to, BigDecimal bid, BigDecimal ask, Long updatedAt) {
+            int pair = Currency.pairIndex(from, to);
+            sides[(pair << 1) | BID] = bid;
+            sides[(pair << 1) | ASK] = ask;
+            this.updatedAt[pair] = updatedAt == null ? 0 : updatedAt;
+            return this;
+        }
+
+        public RateMatrix build() {
+            return new RateMatrix(sides.clone(), updatedAt.clone());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.exchange.cache;
+
+import com.example.exchange.models.enums.Currency;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable open addressing map of per-user commission coefficients keyed by {@code userId * PAIRS + pairIndex}.
+ * Keys are kept in a primitive array so a lookup neither boxes the key nor allocates.
+ */
+public final class UserCommissionTable {
+
+    public static final UserCommissionTable EMPTY = new UserCommissionTable(new long[1], new BigDecimal[1], 0);
+
+    private static final long FREE = 0L;
+
+    private final long[] keys;
+    private final BigDecimal[] coefficients;
+    private final int size;
+
+    private UserCommissionTable(long[] keys, BigDecimal[] coefficients, int size) {
+        this.keys = keys;
+        this.coefficients = coefficients;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Coefficient negotiated with the user for the pair or {@code null} when the user has no override.
+     */
+    public BigDecimal getCoefficient(long userId, Currency from, Currency to) {
+        long key = key(userId, from, to);
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long slotKey = keys[slot];
+            if (slotKey == key) {
+                return coefficients[slot];
+            }
+            if (slotKey == FREE) {
+                return null;
+            }
+        }
+    }
+
+    private static long key(long userId, Currency from, Currency to) {
+        return userId * Currency.PAIRS + Currency.pairIndex(from, to);
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public static final class Builder {
+
+        private final long[] keys;
+        private final BigDecimal[] coefficients;
+        private int size;
+
+        private Builder(int expectedSize) {
+            // load factor stays at or below one half, so probe chains are short and a free slot always exists
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+            keys = new long[capacity];
+            coefficients = new BigDecimal[capacity];
+        }
+
+        public Builder commission(long userId, Currency from, Currency to, BigDecimal commissionPt) {
+            if (userId <= 0) {
+                throw new IllegalArgumentException("User id should be positive: " + userId);
+            }
+            if (size * 2 >= keys.length) {
+                throw new IllegalStateException("More overrides than expected size " + keys.length / 2);
+            }
+            long key = key(userId, from, to);
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == FREE) {
+                keys[slot] = key;
+                size++;
+            }
+            coefficients[slot] = CommissionTable.coefficientOf(commissionPt);
+            return this;
+        }
+
+        public UserCommissionTable build() {
+            return new UserCommissionTable(keys, coefficients, size);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.exchange.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Counts failed authentication attempts per client address and per user name from that address in a window of
+ * {@code app.auth.throttle.window-ms}. A client, or a user name tried from a client, over its limit is refused by
+ * {@link AuthThrottleFilter} until the window ends, before the credentials reach the user repository.
+ * <p>
+ * The user name comes from the unauthenticated request, so failures of a user aren't counted across addresses: anyone
+ * could otherwise lock a user out by sending wrong passwords in the user's name. Guessing the password of one user
+ * from many addresses is limited only by the per-address limit of every address.
+ */
+@Component
+public class AuthThrottle {
+
+    private static final String BASIC = "Basic ";
+
+    private final boolean enabled;
+    private final int maxFailuresPerAddress;
+    private final int maxFailuresPerUser;
+    private final long windowMs;
+    private final FailedAttemptCounter addressFailures;
+    private final FailedAttemptCounter userFailures;
+
+    @Autowired
+    public AuthThrottle(@Value("${app.auth.throttle.enabled:true}") boolean enabled,
+                        @Value("${app.auth.throttle.max-failures-per-address:50}") int maxFailuresPerAddress,
+                        @Value("${app.auth.throttle.max-failures-per-user:10}") int maxFailuresPerUser,
+                        @Value("${app.auth.throttle.window-ms:300000}") long windowMs,
+                        @Value("${app.auth.throttle.slots:65536}") int slots) {
+        this.enabled = enabled;
+        this.maxFailuresPerAddress = maxFailuresPerAddress;
+        this.maxFailuresPerUser = maxFailuresPerUser;
+        this.windowMs = windowMs;
+        this.addressFailures = new FailedAttemptCounter(slots, windowMs);
+        this.userFailures = new FailedAttemptCounter(slots, windowMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    public boolean isThrottled(HttpServletRequest request) {
+        long now = System.currentTimeMillis();
+        if (addressFailures.getFailures(request.getRemoteAddr(), now) >= maxFailuresPerAddress) {
+            return true;
+        }
+        String userName = userNameOf(request);
+        return userName != null && userFailures.getFailures(userKeyOf(request, userName), now) >= maxFailuresPerUser;
+    }
+
+    public void recordFailure(HttpServletRequest request) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        addressFailures.recordFailure(request.getRemoteAddr(), now);
+        String userName = userNameOf(request);
+        if (userName != null) {
+            userFailures.recordFailure(userKeyOf(request, userName), now);
+        }
+    }
+
+    /**
+     * Key of the user name tried from the address of the request, addresses never contain the separator.
+     */
+    private static String userKeyOf(HttpServletRequest request, String userName) {
+        return request.getRemoteAddr() + '/' + userName;
+    }
+
+    /**
+     * User name of the basic credentials of the request, {@code null} without them or when they can't be decoded.
+     */
+    static String userNameOf(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+            return null;
+        }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(BASIC.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        int separator = credentials.indexOf(':');
+        return separator < 0 ? null : credentials.substring(0, separator);
+    }
+}
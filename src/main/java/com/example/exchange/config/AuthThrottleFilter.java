@@ -0,0 +1,55 @@
+package com.example.exchange.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Runs before the security filters and the bulkheads, so credentials of a throttled client or user are
+ * refused without a user lookup. Requests without credentials pass, they are refused by the security filters anyway.
+ */
+@Log4j2
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class AuthThrottleFilter extends OncePerRequestFilter {
+
+    private static final JsonResponse THROTTLED = new JsonResponse(HttpStatus.TOO_MANY_REQUESTS.value(),
+            "Too many failed authentication attempts");
+
+    private final AuthThrottle authThrottle;
+    private final String retryAfter;
+
+    @Autowired
+    public AuthThrottleFilter(AuthThrottle authThrottle) {
+        this.authThrottle = authThrottle;
+        this.retryAfter = Long.toString(Math.max(1, authThrottle.getWindowMs() / 1000));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !authThrottle.isEnabled() || request.getHeader(HttpHeaders.AUTHORIZATION) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (authThrottle.isThrottled(request)) {
+            log.debug("Throttled authentication from {}", request.getRemoteAddr());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            THROTTLED.write(response);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.exchange.config;
+
+/**
+ * Stops calls to a failing resource. The breaker opens after {@code failureThreshold} consecutive failures and
+ * rejects calls for {@code openMs}, then lets a single probe call through: a successful probe closes the breaker,
+ * a failed one opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long calls;
+    private long failures;
+    private long rejected;
+    private long opened;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the call may go to the resource, the caller must report its outcome with {@link #onSuccess()} or
+     * {@link #onFailure()}.
+     */
+    public synchronized boolean allow() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            calls++;
+            return true;
+        }
+        if (state != State.CLOSED) {
+            rejected++;
+            return false;
+        }
+        calls++;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        // a call that started before the breaker opened doesn't close it
+        if (state != State.OPEN) {
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            opened++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getCalls() {
+        return calls;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Number of times the breaker was opened since start.
+     */
+    public synchronized long getOpened() {
+        return opened;
+    }
+}
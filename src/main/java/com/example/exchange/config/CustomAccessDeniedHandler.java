@@ -1,6 +1,5 @@
 package com.example.exchange.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.web.access.AccessDeniedHandler;
@@ -8,23 +7,16 @@ import org.springframework.security.web.access.AccessDeniedHandler;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
 
 @Log4j2
 public class CustomAccessDeniedHandler implements AccessDeniedHandler {
 
+    private static final JsonResponse UNAUTHORIZED = new JsonResponse(HttpServletResponse.SC_UNAUTHORIZED,
+            "Unauthorized");
+
     @Override
     public void handle(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, AccessDeniedException ex) throws IOException {
-        log.error("Catch access denied: " + ex.getMessage(), ex);
-        PrintWriter out = httpServletResponse.getWriter();
-        httpServletResponse.setContentType("application/json");
-        httpServletResponse.setCharacterEncoding("UTF-8");
-        httpServletResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        Map<String, String> map = new HashMap<>();
-        map.put("description", "Unauthorized");
-        out.print(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(map));
-        out.flush();
+        log.debug("Catch access denied: {}", ex.getMessage());
+        UNAUTHORIZED.write(httpServletResponse);
     }
 }
@@ -1,30 +1,33 @@
 package com.example.exchange.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
 
 @Log4j2
 public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
+    private static final JsonResponse UNAUTHORIZED = new JsonResponse(HttpServletResponse.SC_UNAUTHORIZED,
+            "Unauthorized");
+
+    private final AuthThrottle authThrottle;
+
+    public CustomAuthenticationEntryPoint(AuthThrottle authThrottle) {
+        this.authThrottle = authThrottle;
+    }
+
     @Override
     public void commence(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, AuthenticationException ex) throws IOException {
-        log.error("Catch unauthorized: " + ex.getMessage(), ex);
-        PrintWriter out = httpServletResponse.getWriter();
-        httpServletResponse.setContentType("application/json");
-        httpServletResponse.setCharacterEncoding("UTF-8");
-        httpServletResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        Map<String, String> map = new HashMap<>();
-        map.put("description", "Unauthorized");
-        out.print(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(map));
-        out.flush();
+        // requests without credentials aren't failed attempts
+        if (!(ex instanceof InsufficientAuthenticationException)) {
+            authThrottle.recordFailure(httpServletRequest);
+        }
+        log.debug("Catch unauthorized: {}", ex.getMessage());
+        UNAUTHORIZED.write(httpServletResponse);
     }
 }
@@ -0,0 +1,60 @@
+package com.example.exchange.config;
+
+import com.example.exchange.bulkhead.Bulkheads;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Primary datasource is always configured from {@code app.datasource}. When {@code app.datasource.replica.jdbc-url}
+ * is set, read-only transactions are routed to the replica while it keeps up with the primary. The primary pool is
+ * split into a pool per endpoint class when bulkheads are enabled.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "app.datasource")
+    public HikariConfig primaryDataSourceConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replica", name = "jdbc-url")
+    @ConfigurationProperties(prefix = "app.datasource.replica")
+    public HikariConfig replicaDataSourceConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replica", name = "jdbc-url")
+    public ReplicaLagMonitor replicaLagMonitor(@Value("${app.datasource.routing.max-lag-ms:5000}") long maxLagMs) {
+        return new ReplicaLagMonitor(maxLagMs);
+    }
+
+    @Bean
+    public DataSource dataSource(@Qualifier("primaryDataSourceConfig") HikariConfig primaryConfig,
+                                 @Qualifier("replicaDataSourceConfig") ObjectProvider<HikariConfig> replicaConfig,
+                                 ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                                 Bulkheads bulkheads) {
+        DataSource primary = bulkheads.partition(primaryConfig);
+        HikariConfig replicaHikariConfig = replicaConfig.getIfAvailable();
+        if (replicaHikariConfig == null) {
+            return primary;
+        }
+        HikariDataSource replica = new HikariDataSource(replicaHikariConfig);
+        ReplicaLagMonitor monitor = replicaLagMonitor.getObject();
+        monitor.watch(primary, replica);
+        // routing key is known only after the transaction is started, so the physical connection is fetched lazily
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, monitor));
+    }
+}
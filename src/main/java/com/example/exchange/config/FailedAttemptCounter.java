@@ -0,0 +1,75 @@
+package com.example.exchange.config;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Failed attempts per key in fixed time windows, kept lock-free in a fixed number of slots so a burst of distinct
+ * keys can't grow it. Every key is counted in two slots picked by independent hashes and its count is the smaller
+ * one, a key only shares its count with keys colliding in both slots. A slot packs the window it counts in the high
+ * half and the count in the low half, and starts over at the first failure of a new window.
+ */
+public class FailedAttemptCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long windowMs;
+
+    /**
+     * @param slots number of slots, rounded up to a power of two
+     */
+    public FailedAttemptCounter(int slots, long windowMs) {
+        int size = Integer.highestOneBit(Math.max(slots, 2) - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.windowMs = windowMs;
+    }
+
+    public void recordFailure(String key, long now) {
+        int hash = key.hashCode();
+        int slot = slotOf(hash);
+        long window = window(now);
+        increment(slot, window);
+        increment(otherSlotOf(hash, slot), window);
+    }
+
+    public int getFailures(String key, long now) {
+        int hash = key.hashCode();
+        int slot = slotOf(hash);
+        long window = window(now);
+        return Math.min(countOf(slots.get(slot), window), countOf(slots.get(otherSlotOf(hash, slot)), window));
+    }
+
+    private void increment(int slot, long window) {
+        while (true) {
+            long current = slots.get(slot);
+            long next = current >>> 32 == window
+                    ? current + ((current & COUNT_MASK) < COUNT_MASK ? 1 : 0)
+                    : window << 32 | 1;
+            if (current == next || slots.compareAndSet(slot, current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static int countOf(long slot, long window) {
+        return slot >>> 32 == window ? (int) Math.min(slot & COUNT_MASK, Integer.MAX_VALUE) : 0;
+    }
+
+    private long window(long now) {
+        return now / windowMs & COUNT_MASK;
+    }
+
+    private int slotOf(int hash) {
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * Second slot of the key, never the first one.
+     */
+    private int otherSlotOf(int hash, int slot) {
+        int other = slotOf(hash * 0x9E3779B9);
+        return other != slot ? other : slot ^ 1;
+    }
+}
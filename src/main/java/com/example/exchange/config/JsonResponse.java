@@ -0,0 +1,28 @@
+package com.example.exchange.config;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed JSON error response whose body is encoded once, for paths that must stay cheap under a burst of requests.
+ */
+public class JsonResponse {
+
+    private final int status;
+    private final byte[] body;
+
+    public JsonResponse(int status, String description) {
+        this.status = status;
+        this.body = ("{\n  \"description\" : \"" + description + "\"\n}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void write(HttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.exchange.config;
+
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+@Configuration
+public class QuoteConfig {
+
+    @Bean
+    public QuotePolicy quotePolicy(@Value("${app.quote.precision:0}") int precision,
+                                   @Value("${app.quote.divisor-scale:2}") int divisorScale,
+                                   @Value("${app.quote.amount-scale:2}") int amountScale,
+                                   @Value("${app.quote.amount-from-scale:-1}") int amountFromScale,
+                                   @Value("${app.quote.rounding-mode:DOWN}") RoundingMode roundingMode) {
+        return new QuotePolicy(new MathContext(precision, roundingMode), divisorScale, amountScale,
+                amountFromScale, roundingMode);
+    }
+
+    @Bean
+    public RateAgeLimits rateAgeLimits(@Value("${app.quote.max-rate-age-ms:0}") long maxRateAgeMs,
+                                       @Value("${app.quote.pair-max-rate-age-ms:}") String pairMaxRateAgeMs,
+                                       @Value("${app.quote.reject-stale-rates:false}") boolean rejectStaleRates) {
+        return RateAgeLimits.of(maxRateAgeMs, pairMaxRateAgeMs, rejectStaleRates);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.exchange.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Measures replication lag with a heartbeat row: the current time is written to the primary and read back from the
+ * replica, the difference is the lag. The replica is considered unavailable until the first successful check.
+ */
+@Log4j2
+public class ReplicaLagMonitor {
+
+    private static final String UPDATE_BEAT = "UPDATE replica_heartbeat SET beat = ? WHERE id = 1";
+    private static final String INSERT_BEAT = "INSERT INTO replica_heartbeat (id, beat) VALUES (1, ?)";
+    private static final String SELECT_BEAT = "SELECT beat FROM replica_heartbeat WHERE id = 1";
+
+    private final long maxLagMs;
+
+    private volatile JdbcTemplate primary;
+    private volatile JdbcTemplate replica;
+    private volatile boolean replicaAvailable;
+    private volatile long lagMs = Long.MAX_VALUE;
+
+    public ReplicaLagMonitor(long maxLagMs) {
+        this.maxLagMs = maxLagMs;
+    }
+
+    public void watch(DataSource primary, DataSource replica) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval-ms:1000}")
+    public void check() {
+        if (primary == null || replica == null) {
+            return;
+        }
+        long lag;
+        try {
+            long now = System.currentTimeMillis();
+            if (primary.update(UPDATE_BEAT, now) == 0) {
+                primary.update(INSERT_BEAT, now);
+            }
+            Long beat = replica.query(SELECT_BEAT, rs -> rs.next() ? rs.getLong(1) : null);
+            lag = beat == null ? Long.MAX_VALUE : now - beat;
+        } catch (DataAccessException ex) {
+            log.warn("Replica lag check failed: " + ex.getMessage());
+            lag = Long.MAX_VALUE;
+        }
+        boolean available = lag <= maxLagMs;
+        if (available != replicaAvailable) {
+            log.info("Replica is " + (available ? "available" : "unavailable") + ", lag " + lag + " ms");
+        }
+        lagMs = lag;
+        replicaAvailable = available;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+}
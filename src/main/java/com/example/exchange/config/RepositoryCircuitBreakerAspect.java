@@ -0,0 +1,121 @@
+package com.example.exchange.config;
+
+import com.example.exchange.exceptions.CircuitOpenException;
+import com.example.exchange.models.CircuitBreakerStatistics;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import lombok.extern.log4j.Log4j2;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guards the rate and commission repositories with a circuit breaker per repository. Only failures of the database
+ * itself (unavailable connections and timeouts) count, conflicts and constraint violations don't.
+ */
+@Log4j2
+@Aspect
+@Component
+public class RepositoryCircuitBreakerAspect {
+
+    @Value("${app.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+    @Value("${app.circuit-breaker.open-ms:10000}")
+    private long openMs;
+
+    private final Map<Class<?>, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    @Around("target(com.example.exchange.repositories.ExchangeRateRepository)"
+            + " || target(com.example.exchange.repositories.CommissionRepository)"
+            + " || target(com.example.exchange.repositories.CommissionBandRepository)"
+            + " || target(com.example.exchange.repositories.UserCommissionRepository)")
+    public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object repository = joinPoint.getThis();
+        CircuitBreaker breaker = breakers.computeIfAbsent(repository.getClass(), type -> new CircuitBreaker(
+                nameOf(repository), failureThreshold, openMs));
+        if (!breaker.allow()) {
+            throw new CircuitOpenException("Circuit breaker of " + breaker.getName() + " is open");
+        }
+        try {
+            Object result = joinPoint.proceed();
+            breaker.onSuccess();
+            return result;
+        } catch (Throwable ex) {
+            if (isDatabaseFailure(ex)) {
+                breaker.onFailure();
+                if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                    log.warn("Circuit breaker of " + breaker.getName() + " is open: " + ex.getMessage());
+                }
+            } else {
+                breaker.onSuccess();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Whether the breakers of the repositories are closed, breakers of repositories that weren't called yet are closed.
+     */
+    public boolean isClosed(Class<?>... repositories) {
+        for (CircuitBreaker breaker : breakers.values()) {
+            if (breaker.getState() == CircuitBreaker.State.CLOSED) {
+                continue;
+            }
+            for (Class<?> repository : repositories) {
+                if (breaker.getName().equals(repository.getSimpleName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public List<CircuitBreakerStatistics> report() {
+        List<CircuitBreakerStatistics> results = new ArrayList<>();
+        for (CircuitBreaker breaker : breakers.values()) {
+            results.add(new CircuitBreakerStatistics(breaker.getName(), breaker.getState().name(), breaker.getCalls(),
+                    breaker.getFailures(), breaker.getRejected(), breaker.getOpened()));
+        }
+        results.sort((left, right) -> left.getName().compareTo(right.getName()));
+        return results;
+    }
+
+    private static String nameOf(Object repository) {
+        for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(repository)) {
+            if (type.getPackage().equals(ExchangeRateRepository.class.getPackage())) {
+                return type.getSimpleName();
+            }
+        }
+        return repository.getClass().getSimpleName();
+    }
+
+    private static boolean isDatabaseFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CannotCreateTransactionException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof TransientDataAccessResourceException
+                    || cause instanceof javax.persistence.QueryTimeoutException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.exchange.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Transactional method annotated with it is re-executed in a new transaction when it fails because of a concurrent
+ * update: an optimistic lock failure or a unique key violated by a concurrent insert. Lock timeouts and deadlocks
+ * aren't retried, methods take row locks in a fixed order instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,69 @@
+package com.example.exchange.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Log4j2
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1) // must wrap the transaction interceptor, so every attempt gets a new transaction
+public class RetryOnConflictAspect {
+
+    private static final String UNIQUE_VIOLATION_STATE = "23505";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
+    @Value("${app.retry.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${app.retry.backoff-ms:10}")
+    private long backoffMs;
+
+    @Around("@annotation(com.example.exchange.config.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // outer transaction is already rollback-only, it's up to the caller to retry
+            return joinPoint.proceed();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException ex) {
+                if (attempt >= maxAttempts || ex instanceof DataIntegrityViolationException && !isDuplicateKey(ex)) {
+                    throw ex;
+                }
+                log.warn("Conflict in " + joinPoint.getSignature().toShortString() + ", attempt " + attempt + " of "
+                        + maxAttempts + ": " + ex.getMessage());
+                Thread.sleep(1 + ThreadLocalRandom.current().nextLong(backoffMs * attempt));
+            }
+        }
+    }
+
+    /**
+     * Whether a concurrent insert of the same key caused the violation, other violations fail the same way again.
+     */
+    static boolean isDuplicateKey(Throwable ex) {
+        if (ex instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                return UNIQUE_VIOLATION_STATE.equals(sqlException.getSQLState())
+                        || sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY;
+            }
+        }
+        return false;
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Collections;
 @EnableSwagger2
 public class SwaggerConfig {
 
+    public static final String TAG_ADMIN = "admin";
     public static final String TAG_COMMISSIONS = "commissions";
     public static final String TAG_EXCHANGE = "exchange";
     public static final String TAG_EXCHANGE_RATES = "exchange-rates";
@@ -35,6 +36,7 @@ public class SwaggerConfig {
                 .paths(PathSelectors.regex("/api.*"))
                 .build()
                 .apiInfo(apiEndPointsInfo())
+                .tags(new Tag(TAG_ADMIN, "Служебная информация о работе сервиса. Доступна только администраторам."))
                 .tags(new Tag(TAG_COMMISSIONS, "Значения комиссий взымаемых при обмене валют. Значение процента комиссии можно " +
                         "задать для каждой валютной пары. Валидные значения в диапазоне от 0.00 до 100.00."))
                 .tags(new Tag(TAG_EXCHANGE, "Обмен валют. Позволяет получать информацию по суммам при прямом и обратном обмене " +
@@ -0,0 +1,32 @@
+package com.example.exchange.config;
+
+import com.example.exchange.bulkhead.EndpointClassCallableInterceptor;
+import com.example.exchange.metrics.RequestTimingInterceptor;
+import com.example.exchange.tenant.TenantInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private RequestTimingInterceptor requestTimingInterceptor;
+    @Autowired
+    private TenantInterceptor tenantInterceptor;
+    @Autowired
+    private EndpointClassCallableInterceptor endpointClassCallableInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestTimingInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(tenantInterceptor).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(endpointClassCallableInterceptor);
+    }
+}
@@ -29,6 +29,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Autowired
     private DataBaseUserDetailsService dataBaseUserDetailsService;
+    @Autowired
+    private AuthThrottle authThrottle;
 
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
@@ -42,7 +44,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .csrf().disable()
                 .authorizeRequests()
                     .antMatchers(AUTH_WHITELIST).permitAll()
-                    .antMatchers(HttpMethod.POST, "/api/commissions", "/api/exchange-rates").hasRole("ADMIN")
+                    .antMatchers(HttpMethod.POST, "/api/commissions", "/api/commission-bands", "/api/exchange-rates").hasRole("ADMIN")
+                    .antMatchers("/api/user-commissions", "/api/admin/**").hasRole("ADMIN")
                     .anyRequest().authenticated()
                 .and()
                     .exceptionHandling()
@@ -51,12 +54,13 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .and()
                     .logout().permitAll()
                 .and()
-                    .httpBasic();
+                    .httpBasic()
+                        .authenticationEntryPoint(authenticationEntryPoint());
     }
 
     @Bean
     public AuthenticationEntryPoint authenticationEntryPoint() {
-        return new CustomAuthenticationEntryPoint();
+        return new CustomAuthenticationEntryPoint(authThrottle);
     }
 
     @Bean
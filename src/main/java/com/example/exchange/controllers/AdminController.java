@@ -0,0 +1,114 @@
+package com.example.exchange.controllers;
+
+import com.example.exchange.bulkhead.Bulkheads;
+import com.example.exchange.config.RepositoryCircuitBreakerAspect;
+import com.example.exchange.config.SwaggerConfig;
+import com.example.exchange.metrics.CacheMetrics;
+import com.example.exchange.metrics.LatencyRecorder;
+import com.example.exchange.models.BulkheadStatistics;
+import com.example.exchange.models.CacheStatistics;
+import com.example.exchange.models.CircuitBreakerStatistics;
+import com.example.exchange.models.LatencyReport;
+import com.example.exchange.services.DataBaseUserDetailsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Api(tags = {SwaggerConfig.TAG_ADMIN})
+@Log4j2
+@RestController
+@RequestMapping("api/admin")
+public class AdminController {
+
+    @Autowired
+    private LatencyRecorder latencyRecorder;
+    @Autowired
+    private CacheMetrics cacheMetrics;
+    @Autowired
+    private Bulkheads bulkheads;
+    @Autowired
+    private RepositoryCircuitBreakerAspect circuitBreakers;
+    @Autowired
+    private DataBaseUserDetailsService userDetailsService;
+
+    @ApiOperation(value = "Получить гистограммы задержек по валютным парам и запросам к базе данных и самые медленные " +
+            "запросы с разбивкой времени (аутентификация, база данных, расчет, сериализация). Значения в микросекундах",
+            tags = {SwaggerConfig.TAG_ADMIN})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = LatencyReport.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @GetMapping(value = "latency", produces = "application/json")
+    public ResponseEntity<LatencyReport> getLatency() {
+        log.info("Received GET admin/latency");
+        return new ResponseEntity<>(latencyRecorder.report(), HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Получить число попаданий и промахов и долю попаданий по регионам кэша второго уровня Hibernate " +
+            "и кэшу запросов с момента запуска",
+            tags = {SwaggerConfig.TAG_ADMIN})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = CacheStatistics.class, responseContainer = "List"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @GetMapping(value = "cache", produces = "application/json")
+    public ResponseEntity<List<CacheStatistics>> getCacheStatistics() {
+        log.info("Received GET admin/cache");
+        return new ResponseEntity<>(cacheMetrics.report(), HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Сбросить кэш пользователей, чтобы измененные в базе данных пароли и роли применялись к " +
+            "следующему запросу, а не по истечении 30 секунд", tags = {SwaggerConfig.TAG_ADMIN})
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "No Content"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @DeleteMapping(value = "cache/users")
+    public ResponseEntity<Void> evictUsers() {
+        log.info("Received DELETE admin/cache/users");
+        userDetailsService.evictUsers();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @ApiOperation(value = "Получить очереди запросов и состояние пулов соединений по классам запросов (обмен, списки, " +
+            "администрирование)", tags = {SwaggerConfig.TAG_ADMIN})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = BulkheadStatistics.class, responseContainer = "List"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @GetMapping(value = "bulkheads", produces = "application/json")
+    public ResponseEntity<List<BulkheadStatistics>> getBulkheads() {
+        log.info("Received GET admin/bulkheads");
+        return new ResponseEntity<>(bulkheads.report(), HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Получить состояние автоматических выключателей репозиториев курсов и комиссий (CLOSED, OPEN, " +
+            "HALF_OPEN), число вызовов, отказов базы данных, отклоненных вызовов и размыканий с момента запуска",
+            tags = {SwaggerConfig.TAG_ADMIN})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = CircuitBreakerStatistics.class,
+                    responseContainer = "List"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @GetMapping(value = "circuit-breakers", produces = "application/json")
+    public ResponseEntity<List<CircuitBreakerStatistics>> getCircuitBreakers() {
+        log.info("Received GET admin/circuit-breakers");
+        return new ResponseEntity<>(circuitBreakers.report(), HttpStatus.OK);
+    }
+}
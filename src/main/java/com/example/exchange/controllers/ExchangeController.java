@@ -1,28 +1,51 @@
 package com.example.exchange.controllers;
 
 import com.example.exchange.config.SwaggerConfig;
+import com.example.exchange.metrics.RequestTiming;
 import com.example.exchange.models.ApiError;
 import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.DataBaseUserPrincipal;
 import com.example.exchange.models.ExchangeRate;
 import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.PairCursor;
+import com.example.exchange.models.PortfolioValuation;
+import com.example.exchange.models.Position;
+import com.example.exchange.models.UserCommission;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.ExportFormat;
 import com.example.exchange.services.CommissionService;
 import com.example.exchange.services.ExchangeService;
+import com.example.exchange.services.ExportService;
+import com.example.exchange.tenant.TenantContext;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.ResponseHeader;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Function;
 
 @Api(tags = {SwaggerConfig.TAG_COMMISSIONS, SwaggerConfig.TAG_EXCHANGE, SwaggerConfig.TAG_EXCHANGE_RATES})
 @Log4j2
@@ -30,22 +53,51 @@ import java.util.List;
 @RequestMapping("api")
 public class ExchangeController {
 
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+    private static final String NEXT_CURSOR = "X-Next-Cursor";
+    private static final String DEFAULT_LIMIT = "100";
+
     @Autowired
     private CommissionService commissionService;
     @Autowired
     private ExchangeService exchangeService;
+    @Autowired
+    private ExportService exportService;
 
-    @ApiOperation(value = "Получить список установленных комиссий", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiOperation(value = "Получить страницу установленных комиссий, упорядоченных по валютной паре. Курсор следующей " +
+            "страницы возвращается в заголовке " + NEXT_CURSOR, tags = {SwaggerConfig.TAG_COMMISSIONS})
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "OK", response = Commission.class, responseContainer = "List"),
+            @ApiResponse(code = 200, message = "OK", response = Commission.class, responseContainer = "List",
+                    responseHeaders = @ResponseHeader(name = NEXT_CURSOR, response = String.class,
+                            description = "Курсор следующей страницы, если она есть")),
+            @ApiResponse(code = 400, message = "Error", response = ApiError.class),
             @ApiResponse(code = 401, message = "Unauthorized")
     })
     @GetMapping(value = "commissions", produces = "application/json")
-    public ResponseEntity<List<Commission>> getCommissions() {
+    public ResponseEntity<List<Commission>> getCommissions(@RequestParam(value = "from", required = false) Currency from,
+                                                           @RequestParam(value = "to", required = false) Currency to,
+                                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam(value = "limit", defaultValue = DEFAULT_LIMIT) int limit) {
         log.info("Received GET commissions");
-        List<Commission> results = commissionService.getAllCommissions();
-        log.info(results.size() + " commissions in database");
-        return new ResponseEntity<>(results, HttpStatus.OK);
+        Slice<Commission> results = commissionService.getCommissions(from, to, PairCursor.parse(cursor), limit);
+        log.info(results.getNumberOfElements() + " commissions in page");
+        return pageResponse(results, commission -> new PairCursor(commission.getFrom().toString(),
+                commission.getTo().toString()));
+    }
+
+    @ApiOperation(value = "Выгрузить все комиссии в формате CSV или NDJSON", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    @GetMapping(value = "commissions/export")
+    public ResponseEntity<StreamingResponseBody> exportCommissions(
+            @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format) {
+        log.info("Received GET commissions/export in " + format);
+        // the body is written on another thread
+        String tenant = TenantContext.current();
+        return exportResponse("commissions", format, out -> exportService.exportCommissions(tenant, format, out));
     }
 
     @ApiOperation(value = "Установить значение комиссии для валютной пары", tags = {SwaggerConfig.TAG_COMMISSIONS})
@@ -63,6 +115,81 @@ public class ExchangeController {
         return new ResponseEntity<>(commission, HttpStatus.CREATED);
     }
 
+    @ApiOperation(value = "Получить шкалы комиссий, зависящих от суммы обмена", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = CommissionBands.class, responseContainer = "List"),
+            @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    @GetMapping(value = "commission-bands", produces = "application/json")
+    public ResponseEntity<List<CommissionBands>> getCommissionBands() {
+        log.info("Received GET commission-bands");
+        List<CommissionBands> results = commissionService.getAllCommissionBands();
+        log.info(results.size() + " pairs with commission bands in database");
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Заменить шкалы комиссий для перечисленных валютных пар. Комиссия пары действует для сумм " +
+            "меньше минимальной суммы первой шкалы", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = CommissionBands.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Error", response = ApiError.class),
+            @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    @PostMapping(value = "commission-bands", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<List<CommissionBands>> setCommissionBands(@RequestBody List<CommissionBands> commissionBands) {
+        log.info("Received POST commission-bands");
+        commissionService.setCommissionBands(commissionBands);
+        log.info("Commission bands were replaced for " + commissionBands.size() + " pairs");
+        return new ResponseEntity<>(commissionBands, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Получить индивидуальные комиссии пользователей", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = UserCommission.class, responseContainer = "List"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @GetMapping(value = "user-commissions", produces = "application/json")
+    public ResponseEntity<List<UserCommission>> getUserCommissions() {
+        log.info("Received GET user-commissions");
+        List<UserCommission> results = commissionService.getAllUserCommissions();
+        log.info(results.size() + " user commissions in database");
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Установить индивидуальную комиссию пользователя для валютной пары. Она заменяет общую " +
+            "комиссию и шкалы комиссий пары", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Created", response = UserCommission.class),
+            @ApiResponse(code = 400, message = "Error", response = ApiError.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @PostMapping(value = "user-commissions", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<UserCommission> setUserCommission(@RequestBody UserCommission userCommission) {
+        log.info("Received POST user-commissions");
+        commissionService.setUserCommission(userCommission);
+        log.info("Commission " + userCommission.getCommissionPt() + "% was set for user " + userCommission.getUserId()
+                + " for exchange from " + userCommission.getFrom() + " to " + userCommission.getTo());
+        return new ResponseEntity<>(userCommission, HttpStatus.CREATED);
+    }
+
+    @ApiOperation(value = "Удалить индивидуальную комиссию пользователя для валютной пары", tags = {SwaggerConfig.TAG_COMMISSIONS})
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "No Content"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden")
+    })
+    @DeleteMapping(value = "user-commissions")
+    public ResponseEntity<Void> removeUserCommission(@RequestParam("userId") Long userId,
+                                                     @RequestParam("from") Currency from,
+                                                     @RequestParam("to") Currency to) {
+        log.info("Received DELETE user-commissions");
+        commissionService.removeUserCommission(userId, from, to);
+        log.info("Commission of user " + userId + " was removed for exchange from " + from + " to " + to);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @ApiOperation(value = "Запрос обмена валют", tags = {SwaggerConfig.TAG_EXCHANGE}, produces = "*/*")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "OK", response = ExchangeRequest.class),
@@ -70,27 +197,92 @@ public class ExchangeController {
             @ApiResponse(code = 401, message = "Unauthorized")
     })
     @PostMapping(value = "exchange", consumes = "application/json")
-    public ExchangeRequest exchangeRequest(@RequestBody ExchangeRequest exchangeRequest) {
+    public ExchangeRequest exchangeRequest(@RequestBody ExchangeRequest exchangeRequest,
+                                           @ApiIgnore @AuthenticationPrincipal DataBaseUserPrincipal principal) {
         log.info("Received POST exchange");
-        ExchangeRequest exchangeResponse = exchangeService.calculateExchange(exchangeRequest);
+        Long userId = principal == null ? null : principal.getUser().getId();
+        long calculationStart = System.nanoTime();
+        ExchangeRequest exchangeResponse = exchangeService.calculateExchange(exchangeRequest, userId);
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.exchange(exchangeResponse.getCurrencyFrom(), exchangeResponse.getCurrencyTo(),
+                    exchangeResponse.getOperationType(), System.nanoTime() - calculationStart);
+        }
         log.info("Exchange response: " + exchangeResponse);
         return exchangeResponse;
     }
 
-    @ApiOperation(value = "Получить все курсы обмена валют", tags = {SwaggerConfig.TAG_EXCHANGE_RATES})
+    @ApiOperation(value = "Пересчитать сумму во все валюты, для которых установлен курс обмена (операция GIVE)",
+            tags = {SwaggerConfig.TAG_EXCHANGE})
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "OK", response = ExchangeRate.class, responseContainer = "List"),
+            @ApiResponse(code = 200, message = "OK", response = ExchangeRequest.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Error", response = ApiError.class),
+            @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    @GetMapping(value = "exchange/all", produces = "application/json")
+    public ResponseEntity<List<ExchangeRequest>> exchangeAll(@RequestParam("currencyFrom") Currency currencyFrom,
+                                                             @RequestParam("amountFrom") BigDecimal amountFrom,
+                                                             @ApiIgnore @AuthenticationPrincipal DataBaseUserPrincipal principal) {
+        log.info("Received GET exchange/all from " + currencyFrom);
+        Long userId = principal == null ? null : principal.getUser().getId();
+        List<ExchangeRequest> results = exchangeService.calculateExchanges(currencyFrom, amountFrom, userId);
+        log.info(amountFrom + " " + currencyFrom + " was converted to " + results.size() + " currencies");
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Оценить портфель позиций в базовой валюте. Позиции суммируются по валютам, каждая сумма " +
+            "пересчитывается как при операции GIVE по одному и тому же набору курсов", tags = {SwaggerConfig.TAG_EXCHANGE})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = PortfolioValuation.class),
+            @ApiResponse(code = 400, message = "Error", response = ApiError.class),
+            @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    @PostMapping(value = "portfolio/valuation", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<PortfolioValuation> valuePortfolio(@RequestParam("baseCurrency") Currency baseCurrency,
+                                                             @RequestBody List<Position> positions,
+                                                             @ApiIgnore @AuthenticationPrincipal DataBaseUserPrincipal principal) {
+        log.info("Received POST portfolio/valuation of " + positions.size() + " positions in " + baseCurrency);
+        Long userId = principal == null ? null : principal.getUser().getId();
+        PortfolioValuation valuation = exchangeService.valuePortfolio(baseCurrency, positions, userId);
+        log.info("Portfolio was valued at " + valuation.getTotal() + " " + baseCurrency);
+        return new ResponseEntity<>(valuation, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Получить страницу курсов обмена валют, упорядоченных по валютной паре. Курсор следующей " +
+            "страницы возвращается в заголовке " + NEXT_CURSOR, tags = {SwaggerConfig.TAG_EXCHANGE_RATES})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK", response = ExchangeRate.class, responseContainer = "List",
+                    responseHeaders = @ResponseHeader(name = NEXT_CURSOR, response = String.class,
+                            description = "Курсор следующей страницы, если она есть")),
+            @ApiResponse(code = 400, message = "Error", response = ApiError.class),
             @ApiResponse(code = 401, message = "Unauthorized")
     })
     @GetMapping(value = "exchange-rates", produces = "application/json")
-    public ResponseEntity<List<ExchangeRate>> getExchangeRates() {
+    public ResponseEntity<List<ExchangeRate>> getExchangeRates(@RequestParam(value = "from", required = false) Currency from,
+                                                               @RequestParam(value = "to", required = false) Currency to,
+                                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                                               @RequestParam(value = "limit", defaultValue = DEFAULT_LIMIT) int limit) {
         log.info("Received GET exchange-rates");
-        List<ExchangeRate> results = exchangeService.getAllExchangeRates();
-        log.info(results.size() + " rates in database");
-        return new ResponseEntity<>(results, HttpStatus.OK);
+        Slice<ExchangeRate> results = exchangeService.getExchangeRates(from, to, PairCursor.parse(cursor), limit);
+        log.info(results.getNumberOfElements() + " rates in page");
+        return pageResponse(results, rate -> new PairCursor(rate.getFrom().toString(), rate.getTo().toString()));
+    }
+
+    @ApiOperation(value = "Выгрузить все курсы обмена валют в формате CSV или NDJSON", tags = {SwaggerConfig.TAG_EXCHANGE_RATES})
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 401, message = "Unauthorized")
+    })
+    @GetMapping(value = "exchange-rates/export")
+    public ResponseEntity<StreamingResponseBody> exportExchangeRates(
+            @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format) {
+        log.info("Received GET exchange-rates/export in " + format);
+        String tenant = TenantContext.current();
+        return exportResponse("exchange-rates", format, out -> exportService.exportExchangeRates(tenant, format, out));
     }
 
-    @ApiOperation(value = "Установить курс обмена валют по валютной паре. Курс обратной пары должен быть установлен автоматически.",
+    @ApiOperation(value = "Установить курс обмена валют по валютной паре. Курс обратной пары должен быть установлен автоматически. " +
+            "Вместе с курсом или вместо него можно задать курсы покупки (bid) и продажи (ask).",
             tags = {SwaggerConfig.TAG_EXCHANGE_RATES})
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "OK", response = ExchangeRate.class),
@@ -104,4 +296,22 @@ public class ExchangeController {
         log.info("New rate " + exchangeRate.getRate() + " was set for exchange from " + exchangeRate.getFrom() + " to " + exchangeRate.getTo());
         return new ResponseEntity<>(exchangeRate, HttpStatus.OK);
     }
+
+    private static <T> ResponseEntity<List<T>> pageResponse(Slice<T> page, Function<T, PairCursor> cursorOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            List<T> content = page.getContent();
+            response.header(NEXT_CURSOR, cursorOf.apply(content.get(content.size() - 1)).toString());
+        }
+        return response.body(page.getContent());
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, ExportFormat format, StreamingResponseBody body) {
+        MediaType mediaType = format == ExportFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON;
+        String fileName = name + (format == ExportFormat.CSV ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
 }
@@ -1,7 +1,9 @@
 package com.example.exchange.controllers;
 
 import com.example.exchange.exceptions.CommissionException;
+import com.example.exchange.exceptions.ErrorCode;
 import com.example.exchange.exceptions.ExchangeException;
+import com.example.exchange.exceptions.RatesUnavailableException;
 import com.example.exchange.models.ApiError;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.http.HttpHeaders;
@@ -20,8 +22,22 @@ public class ExchangeExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler({CommissionException.class, ExchangeException.class})
-    public ResponseEntity<Object> handleException(CommissionException ex) {
-        return wrapError(ex);
+    public ResponseEntity<Object> handleException(RuntimeException ex) {
+        ErrorCode code = ex instanceof ExchangeException
+                ? ((ExchangeException) ex).getCode()
+                : ((CommissionException) ex).getCode();
+        if (code == null) {
+            return wrapError(ex);
+        }
+        // validation failures of the catalog are expected, they are stackless and logged without trace
+        log.debug("Rejected request: {}", ex.getMessage());
+        return new ResponseEntity<>(new ApiError(ex.getMessage(), code.name()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(RatesUnavailableException.class)
+    public ResponseEntity<Object> handleRatesUnavailable(RatesUnavailableException ex) {
+        log.warn("Rates unavailable: " + ex.getMessage());
+        return new ResponseEntity<>(new ApiError(ex.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     @Override
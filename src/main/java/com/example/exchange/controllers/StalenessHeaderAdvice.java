@@ -0,0 +1,90 @@
+package com.example.exchange.controllers;
+
+import com.example.exchange.bulkhead.EndpointClass;
+import com.example.exchange.config.RepositoryCircuitBreakerAspect;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.PortfolioValuation;
+import com.example.exchange.models.PositionValue;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.services.ExchangeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.StringJoiner;
+
+/**
+ * Marks quotes served while the circuit breaker of the rate or commission repository isn't closed with the age of the
+ * rate and commission tables of the tenant they were calculated from, and quotes calculated from rates older than
+ * their age limit with the stale pairs. Breakers of other repositories, like user commissions, don't mark quotes.
+ */
+@ControllerAdvice
+public class StalenessHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STALENESS_HEADER = "X-Rates-Staleness-Ms";
+    public static final String STALE_RATES_HEADER = "X-Stale-Rates";
+
+    private static final Class<?>[] QUOTE_REPOSITORIES = {ExchangeRateRepository.class, CommissionRepository.class};
+
+    private final RepositoryCircuitBreakerAspect circuitBreakers;
+    private final ExchangeService exchangeService;
+
+    @Autowired
+    public StalenessHeaderAdvice(RepositoryCircuitBreakerAspect circuitBreakers, ExchangeService exchangeService) {
+        this.circuitBreakers = circuitBreakers;
+        this.exchangeService = exchangeService;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (EndpointClass.of(request.getMethodValue(), request.getURI().getPath()) != EndpointClass.QUOTE) {
+            return body;
+        }
+        if (!circuitBreakers.isClosed(QUOTE_REPOSITORIES)) {
+            response.getHeaders().set(STALENESS_HEADER, Long.toString(exchangeService.getStalenessMs()));
+        }
+        StringJoiner stalePairs = new StringJoiner(",");
+        if (body instanceof ExchangeRequest) {
+            addIfStale(stalePairs, (ExchangeRequest) body);
+        } else if (body instanceof Iterable) {
+            for (Object element : (Iterable<?>) body) {
+                if (element instanceof ExchangeRequest) {
+                    addIfStale(stalePairs, (ExchangeRequest) element);
+                }
+            }
+        } else if (body instanceof PortfolioValuation) {
+            PortfolioValuation valuation = (PortfolioValuation) body;
+            for (PositionValue value : valuation.getValues()) {
+                addIfStale(stalePairs, value.getCurrency(), valuation.getBaseCurrency());
+            }
+        }
+        if (stalePairs.length() > 0) {
+            response.getHeaders().set(STALE_RATES_HEADER, stalePairs.toString());
+        }
+        return body;
+    }
+
+    private void addIfStale(StringJoiner stalePairs, ExchangeRequest exchangeRequest) {
+        addIfStale(stalePairs, exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo());
+    }
+
+    private void addIfStale(StringJoiner stalePairs, Currency from, Currency to) {
+        if (from != to && exchangeService.isRateStale(from, to)) {
+            stalePairs.add(from + ":" + to);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.exchange.exceptions;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+public class CircuitOpenException extends DataAccessResourceFailureException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.exchange.exceptions;
+
+/**
+ * Catalog of validation failures of client input. Every code has a fixed message, codes of a currency or a currency
+ * pair have one message per currency or pair, so {@link ValidationErrors} can prepare all of them up front.
+ */
+public enum ErrorCode {
+
+    SAME_CURRENCIES("Currencies From and To should be different"),
+    AMOUNT_FROM_NOT_POSITIVE("For operation GIVE amountFrom should be greater than zero"),
+    AMOUNT_TO_NOT_POSITIVE("For operation GET amountTo should be greater than zero"),
+    OPERATION_TYPE_MISSING("Operation type should be GIVE or GET"),
+    UNSUPPORTED_PAIR("This service doesn't support exchange between %s and %s"),
+    RATE_TOO_SMALL("Rate between %s and %s is too small for operation GET"),
+    POSITION_INCOMPLETE("Position should have currency and amount"),
+    POSITION_NEGATIVE("Amount of position in %s should not be negative"),
+    COMMISSION_NEGATIVE("Commission percent shouldn't be negative"),
+    COMMISSION_TOO_LARGE("Commission percent shouldn't be greater then 100 or equal");
+
+    private final String message;
+    private final int currencies;
+
+    ErrorCode(String message) {
+        this.message = message;
+        this.currencies = message.split("%s", -1).length - 1;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Number of currencies in the message: 0, 1 for a currency or 2 for a currency pair.
+     */
+    public int getCurrencies() {
+        return currencies;
+    }
+}
@@ -2,7 +2,25 @@ package com.example.exchange.exceptions;
 
 public class ExchangeException extends RuntimeException {
 
+    private final ErrorCode code;
+
     public ExchangeException(String message) {
         super(message);
+        this.code = null;
+    }
+
+    /**
+     * Validation failure of the catalog, without stack trace so one instance is thrown by every rejected request.
+     */
+    ExchangeException(ErrorCode code, String message) {
+        super(message, null, false, false);
+        this.code = code;
+    }
+
+    /**
+     * Code of a validation failure, {@code null} for other errors.
+     */
+    public ErrorCode getCode() {
+        return code;
     }
 }
@@ -0,0 +1,8 @@
+package com.example.exchange.exceptions;
+
+public class RatesUnavailableException extends RuntimeException {
+
+    public RatesUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.exchange.exceptions;
+
+import com.example.exchange.models.enums.Currency;
+
+/**
+ * Pre-allocated exceptions of every {@link ErrorCode}, one per currency or currency pair where the message names
+ * them. They carry no stack trace and are shared, so rejecting bad input costs no more than a lookup.
+ */
+public final class ValidationErrors {
+
+    private static final ErrorCode[] CODES = ErrorCode.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private static final ExchangeException[][] EXCHANGE = new ExchangeException[CODES.length][];
+    private static final CommissionException[] COMMISSION = new CommissionException[CODES.length];
+
+    static {
+        for (ErrorCode code : CODES) {
+            ExchangeException[] errors;
+            if (code.getCurrencies() == 2) {
+                errors = new ExchangeException[Currency.PAIRS];
+                for (int pair = 0; pair < Currency.PAIRS; pair++) {
+                    errors[pair] = new ExchangeException(code, String.format(code.getMessage(),
+                            Currency.fromOfPair(pair), Currency.toOfPair(pair)));
+                }
+            } else if (code.getCurrencies() == 1) {
+                errors = new ExchangeException[CURRENCIES.length];
+                for (Currency currency : CURRENCIES) {
+                    errors[currency.ordinal()] = new ExchangeException(code,
+                            String.format(code.getMessage(), currency));
+                }
+            } else {
+                errors = new ExchangeException[]{new ExchangeException(code, code.getMessage())};
+                COMMISSION[code.ordinal()] = new CommissionException(code, code.getMessage());
+            }
+            EXCHANGE[code.ordinal()] = errors;
+        }
+    }
+
+    private ValidationErrors() {
+    }
+
+    public static ExchangeException exchange(ErrorCode code) {
+        return EXCHANGE[code.ordinal()][0];
+    }
+
+    public static ExchangeException exchange(ErrorCode code, Currency currency) {
+        return EXCHANGE[code.ordinal()][currency.ordinal()];
+    }
+
+    public static ExchangeException exchange(ErrorCode code, Currency from, Currency to) {
+        return EXCHANGE[code.ordinal()][Currency.pairIndex(from, to)];
+    }
+
+    public static CommissionException commission(ErrorCode code) {
+        return COMMISSION[code.ordinal()];
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.exchange.journal;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.ExchangeRate;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only journal of admin changes of rates and commissions stored at {@code app.journal.path}, the journal is
+ * disabled when the path isn't set.
+ * <p>
+ * Every record is framed as payload length, CRC32 of the payload and the payload. Appending threads hand their records
+ * to a single writer thread that writes everything queued so far and syncs the file once for the whole group, an
+ * append returns only after its record is on disk. On start the journal is replayed up to the first torn or corrupted
+ * record, the tail after it is cut off, and the journal is compacted to snapshots of the recovered state. Records are
+ * kept per tenant, so every tenant can be recovered.
+ * <p>
+ * Changes are appended before their transaction commits and get a sequence number, which is marked committed by
+ * {@link #commit} after the transaction commits. The replay skips changes that were never marked, so a failed commit
+ * leaves nothing behind. Once the journal grows past {@code app.journal.compact-bytes} the writer thread compacts it
+ * again, keeping the changes of transactions that haven't completed yet.
+ */
+@Log4j2
+@Component
+public class AdminJournal {
+
+    private final Path path;
+    private final long compactBytes;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final NavigableSet<Long> pending = new TreeSet<>();
+
+    private JournalState recoveredState = new JournalState();
+    private FileChannel channel;
+    private Thread writer;
+    private long sequence;
+    private long nextCompactionBytes;
+    private volatile boolean closed;
+
+    @Autowired
+    public AdminJournal(@Value("${app.journal.path:}") String path,
+                        @Value("${app.journal.compact-bytes:16777216}") long compactBytes) {
+        if (compactBytes <= 0 || compactBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("app.journal.compact-bytes must be between 1 and "
+                    + Integer.MAX_VALUE / 2 + ", got " + compactBytes);
+        }
+        this.path = path.isEmpty() ? null : Paths.get(path);
+        this.compactBytes = compactBytes;
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * State replayed from the journal when the application started.
+     */
+    public JournalState getRecoveredState() {
+        return recoveredState;
+    }
+
+    /**
+     * Number of file syncs, every sync makes a group of appends durable.
+     */
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    /**
+     * Number of compactions since the journal was opened, not counting the one on start.
+     */
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    /**
+     * Sequence number up to which every appended change is either committed or rolled back, a table read from the
+     * database after this call holds all committed changes up to it. 0 when the journal is disabled.
+     */
+    public long getCommittedSequence() {
+        synchronized (pending) {
+            return pending.isEmpty() ? sequence : pending.first() - 1;
+        }
+    }
+
+    /**
+     * Appends a change of rates and returns its sequence number for {@link #commit} or {@link #abort}.
+     */
+    public long appendExchangeRates(String tenant, Collection<ExchangeRate> rates) {
+        return appendUncommitted(JournalRecords.ofTenant(tenant, JournalRecords.rates(JournalRecords.RATES, rates)));
+    }
+
+    /**
+     * Appends a change of a commission and returns its sequence number for {@link #commit} or {@link #abort}.
+     */
+    public long appendCommission(String tenant, Commission commission) {
+        return appendUncommitted(JournalRecords.ofTenant(tenant, JournalRecords.commission(commission)));
+    }
+
+    /**
+     * Appends a change of commission bands and returns its sequence number for {@link #commit} or {@link #abort}.
+     */
+    public long appendCommissionBands(String tenant, Collection<CommissionBands> bands) {
+        return appendUncommitted(JournalRecords.ofTenant(tenant, JournalRecords.bands(bands)));
+    }
+
+    /**
+     * Marks the change appended with the sequence number as committed. A lost mark only drops a change the database
+     * already has from the next replay, and the first reload takes it from the database, so failures are logged.
+     */
+    public void commit(long sequence) {
+        if (path == null) {
+            return;
+        }
+        try {
+            append(JournalRecords.commit(sequence));
+        } catch (IllegalStateException ex) {
+            log.error("Can't mark change " + sequence + " of admin journal " + path + " as committed: "
+                    + ex.getMessage());
+        } finally {
+            synchronized (pending) {
+                pending.remove(sequence);
+            }
+        }
+    }
+
+    /**
+     * Forgets the change appended with the sequence number after its transaction was rolled back, it stays unmarked
+     * and is dropped by the next compaction.
+     */
+    public void abort(long sequence) {
+        synchronized (pending) {
+            pending.remove(sequence);
+        }
+    }
+
+    /**
+     * Records all rates of the tenant, so later replays don't need anything written before.
+     */
+    public void snapshotExchangeRates(String tenant, Collection<ExchangeRate> rates) {
+        appendSequenced(JournalRecords.ofTenant(tenant, JournalRecords.rates(JournalRecords.RATE_SNAPSHOT, rates)));
+    }
+
+    /**
+     * Records all commissions and commission bands of the tenant, so later replays don't need anything written before.
+     */
+    public void snapshotCommissions(String tenant, Collection<Commission> commissions,
+                                    Collection<CommissionBands> bands) {
+        appendSequenced(JournalRecords.ofTenant(tenant, JournalRecords.commissionSnapshot(commissions, bands)));
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (path == null) {
+            return;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        long valid = replay(size);
+        if (valid < size) {
+            log.warn("Admin journal " + path + " has a torn or corrupted tail, " + (size - valid)
+                    + " bytes after offset " + valid + " are dropped");
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        log.info(recoveredState.getRecords() + " records were replayed from admin journal " + path);
+        sequence = recoveredState.getSequence();
+        // compacted when there are records after the snapshots
+        if (isCompactable(recoveredState) && recoveredState.getRecords() > 2 * recoveredState.getTenants().size()) {
+            compact(recoveredState);
+        }
+        channel.position(channel.size());
+        nextCompactionBytes = channel.size() + compactBytes;
+
+        writer = new Thread(this::writeGroups, "admin-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (path == null || closed) {
+            return;
+        }
+        closed = true;
+        writer.join();
+        for (Append append = queue.poll(); append != null; append = queue.poll()) {
+            append.done.completeExceptionally(new IOException("Admin journal " + path + " is closed"));
+        }
+        channel.close();
+    }
+
+    private long appendUncommitted(byte[] payload) {
+        if (path == null) {
+            return 0;
+        }
+        Append append;
+        synchronized (pending) {
+            long appended = ++sequence;
+            pending.add(appended);
+            append = enqueue(JournalRecords.sequenced(JournalRecords.UNCOMMITTED, appended, payload), appended);
+        }
+        try {
+            await(append);
+        } catch (IllegalStateException ex) {
+            abort(append.sequence);
+            throw ex;
+        }
+        return append.sequence;
+    }
+
+    private void appendSequenced(byte[] payload) {
+        if (path == null) {
+            return;
+        }
+        Append append;
+        synchronized (pending) {
+            long appended = ++sequence;
+            append = enqueue(JournalRecords.sequenced(JournalRecords.SEQUENCED, appended, payload), appended);
+        }
+        await(append);
+    }
+
+    private void append(byte[] payload) {
+        await(enqueue(payload, 0));
+    }
+
+    private Append enqueue(byte[] payload, long sequence) {
+        if (closed) {
+            throw new IllegalStateException("Admin journal " + path + " is closed");
+        }
+        Append append = new Append(JournalRecords.frame(payload), sequence);
+        queue.add(append);
+        return append;
+    }
+
+    private void await(Append append) {
+        try {
+            append.done.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for admin journal " + path, ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Can't write admin journal " + path, ex.getCause());
+        }
+    }
+
+    private void writeGroups() {
+        List<Append> group = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(group);
+            write(group);
+            group.clear();
+            compactIfLarge();
+        }
+    }
+
+    private void write(List<Append> group) {
+        ByteBuffer[] records = new ByteBuffer[group.size()];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = group.get(i).record;
+        }
+        long start = 0;
+        try {
+            start = channel.position();
+            while (records[records.length - 1].hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(false);
+            syncs.incrementAndGet();
+            for (Append append : group) {
+                append.done.complete(null);
+            }
+        } catch (IOException ex) {
+            log.error("Can't write admin journal " + path + ": " + ex.getMessage());
+            try {
+                // a partly written group would hide every later record from the replay
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateEx) {
+                log.error("Can't cut admin journal " + path + " back to " + start + ": " + truncateEx.getMessage());
+            }
+            for (Append append : group) {
+                append.done.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Replays records into a new state and returns the offset after the last valid record.
+     */
+    private long replay(long size) throws IOException {
+        JournalState state = new JournalState();
+        state.setWrittenAt(Files.getLastModifiedTime(path).toMillis());
+        long valid = replay(size, state);
+        recoveredState = state;
+        return valid;
+    }
+
+    private long replay(long size, JournalState state) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Admin journal " + path + " is too large to replay: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return JournalRecords.readFrames(buffer, state);
+    }
+
+    /**
+     * Compacts the journal in the writer thread once it has grown by {@code app.journal.compact-bytes} since the last
+     * compaction, so it stays small enough to replay.
+     */
+    private void compactIfLarge() {
+        try {
+            long size = channel.size();
+            if (size < nextCompactionBytes) {
+                return;
+            }
+            JournalState state = new JournalState();
+            replay(size, state);
+            if (isCompactable(state)) {
+                compact(state);
+                compactions.incrementAndGet();
+            } else {
+                log.warn("Admin journal " + path + " has grown to " + size + " bytes but can't be compacted before "
+                        + "every tenant has snapshots");
+            }
+            channel.position(channel.size());
+            nextCompactionBytes = channel.size() + compactBytes;
+        } catch (IOException ex) {
+            log.error("Can't compact admin journal " + path + ": " + ex.getMessage());
+            nextCompactionBytes += compactBytes;
+        }
+    }
+
+    /**
+     * The journal can be compacted when every tenant in it has both snapshots.
+     */
+    private static boolean isCompactable(JournalState state) {
+        for (String tenant : state.getTenants()) {
+            if (!state.hasExchangeRates(tenant) || !state.hasCommissions(tenant)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the journal with snapshots of the replayed state followed by the changes of transactions that haven't
+     * completed yet. The snapshots are written to a new file which is then renamed over the journal, so a crash leaves
+     * either the old or the new journal.
+     */
+    private void compact(JournalState state) throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        List<byte[]> payloads = new ArrayList<>();
+        for (String tenant : state.getTenants()) {
+            payloads.add(JournalRecords.sequenced(JournalRecords.SEQUENCED, state.getSequence(),
+                    JournalRecords.ofTenant(tenant, JournalRecords.rates(JournalRecords.RATE_SNAPSHOT,
+                            state.getExchangeRates(tenant)))));
+            payloads.add(JournalRecords.sequenced(JournalRecords.SEQUENCED, state.getSequence(),
+                    JournalRecords.ofTenant(tenant, JournalRecords.commissionSnapshot(state.getCommissions(tenant),
+                            state.getCommissionBands(tenant)))));
+        }
+        synchronized (pending) {
+            for (Map.Entry<Long, ByteBuffer> entry : state.getUncommitted().entrySet()) {
+                if (pending.contains(entry.getKey())) {
+                    ByteBuffer payload = entry.getValue().duplicate();
+                    byte[] bytes = new byte[payload.remaining()];
+                    payload.get(bytes);
+                    payloads.add(bytes);
+                }
+            }
+        }
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (byte[] payload : payloads) {
+                ByteBuffer record = JournalRecords.frame(payload);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log.info("Admin journal " + path + " was compacted from " + state.getRecords() + " records");
+    }
+
+    private static final class Append {
+
+        private final ByteBuffer record;
+        private final long sequence;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Append(ByteBuffer record, long sequence) {
+            this.record = record;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.example.exchange.journal;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBand;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.UserCommission;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.tenant.TenantContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Binary payloads of journal and snapshot file records. A payload starts with the record type, currencies are written
+ * as ordinals and decimals as scale, length and bytes of the unscaled value. Rate records written before rates had an
+ * update time are still read, their rates have no update time. Rate and commission records of a tenant other than the
+ * default one are wrapped in a tenant record, records written before tenants were journaled belong to the default one.
+ * <p>
+ * Journal records are wrapped in a sequenced record with the sequence number of the journal. A change written before
+ * its transaction commits is wrapped in an uncommitted record instead and is applied only when the file also holds the
+ * commit record of its sequence. Records written before sequences were kept have none and are always applied.
+ */
+final class JournalRecords {
+
+    static final byte UNTIMED_RATE_SNAPSHOT = 1;
+    static final byte UNTIMED_RATES = 2;
+    static final byte COMMISSION_SNAPSHOT = 3;
+    static final byte COMMISSION = 4;
+    static final byte BANDS = 5;
+    static final byte USER_COMMISSION_SNAPSHOT = 6;
+    static final byte RATE_SNAPSHOT = 7;
+    static final byte RATES = 8;
+    static final byte TENANT = 9;
+    static final byte SEQUENCED = 10;
+    static final byte UNCOMMITTED = 11;
+    static final byte COMMIT = 12;
+
+    private static final int HEADER_BYTES = 8;
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private JournalRecords() {
+    }
+
+    /**
+     * Frames the payload as its length, CRC32 of the payload and the payload.
+     */
+    static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return record;
+    }
+
+    /**
+     * Applies framed records from the buffer position up to the first torn, corrupted or unreadable record and returns
+     * the position after the last applied record. All records are read before any is applied, so an uncommitted
+     * record is applied in its place when its commit record comes later in the file.
+     */
+    static int readFrames(ByteBuffer buffer, JournalState state) {
+        CRC32 crc = new CRC32();
+        List<Record> records = new ArrayList<>();
+        Set<Long> committed = new HashSet<>();
+        int position = buffer.position();
+        while (buffer.limit() - position >= HEADER_BYTES) {
+            int length = buffer.getInt(position);
+            int checksum = buffer.getInt(position + 4);
+            if (length <= 0 || length > buffer.limit() - position - HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(position + HEADER_BYTES).limit(position + HEADER_BYTES + length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            Record record;
+            try {
+                record = read(payload.slice());
+            } catch (IllegalArgumentException ex) {
+                break;
+            }
+            if (record.wrapper == COMMIT) {
+                committed.add(record.sequence);
+            }
+            records.add(record);
+            position += HEADER_BYTES + length;
+        }
+        for (Record record : records) {
+            record.applyTo(state, committed);
+        }
+        return position;
+    }
+
+    /**
+     * Wraps the payload with the sequence number, {@code wrapper} is {@link #SEQUENCED} or {@link #UNCOMMITTED}.
+     */
+    static byte[] sequenced(byte wrapper, long sequence, byte[] payload) {
+        return write(out -> {
+            out.writeByte(wrapper);
+            out.writeLong(sequence);
+            out.write(payload);
+        });
+    }
+
+    static byte[] commit(long sequence) {
+        return write(out -> {
+            out.writeByte(COMMIT);
+            out.writeLong(sequence);
+        });
+    }
+
+    /**
+     * Wraps the payload of a rate or commission record as a record of the tenant.
+     */
+    static byte[] ofTenant(String tenant, byte[] payload) {
+        if (TenantContext.isDefault(tenant)) {
+            return payload;
+        }
+        return write(out -> {
+            out.writeByte(TENANT);
+            byte[] name = tenant.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.write(payload);
+        });
+    }
+
+    static byte[] rates(byte type, Collection<ExchangeRate> rates) {
+        return write(out -> {
+            out.writeByte(type);
+            writeRates(out, rates);
+        });
+    }
+
+    static byte[] commissionSnapshot(Collection<Commission> commissions, Collection<CommissionBands> bands) {
+        return write(out -> {
+            out.writeByte(COMMISSION_SNAPSHOT);
+            out.writeInt(commissions.size());
+            for (Commission commission : commissions) {
+                writeCommission(out, commission);
+            }
+            writeBands(out, bands);
+        });
+    }
+
+    static byte[] commission(Commission commission) {
+        return write(out -> {
+            out.writeByte(COMMISSION);
+            writeCommission(out, commission);
+        });
+    }
+
+    static byte[] bands(Collection<CommissionBands> bands) {
+        return write(out -> {
+            out.writeByte(BANDS);
+            writeBands(out, bands);
+        });
+    }
+
+    static byte[] userCommissionSnapshot(Collection<UserCommission> userCommissions) {
+        return write(out -> {
+            out.writeByte(USER_COMMISSION_SNAPSHOT);
+            out.writeInt(userCommissions.size());
+            for (UserCommission userCommission : userCommissions) {
+                out.writeLong(userCommission.getUserId());
+                out.writeByte(userCommission.getFrom().ordinal());
+                out.writeByte(userCommission.getTo().ordinal());
+                writeDecimal(out, userCommission.getCommissionPt());
+            }
+        });
+    }
+
+    /**
+     * Reads the payload, throws {@link IllegalArgumentException} for a payload it can't read.
+     */
+    private static Record read(ByteBuffer payload) {
+        Record record = new Record(payload.duplicate());
+        byte type;
+        try {
+            type = payload.get();
+            if (type == SEQUENCED || type == UNCOMMITTED || type == COMMIT) {
+                record.wrapper = type;
+                record.sequence = payload.getLong();
+                if (type == COMMIT) {
+                    if (payload.hasRemaining()) {
+                        throw new IllegalArgumentException(payload.remaining() + " unread bytes in commit record");
+                    }
+                    return record;
+                }
+                type = payload.get();
+            }
+            if (type == TENANT) {
+                record.tenant = readTenant(payload);
+                type = payload.get();
+                if (type == TENANT || type == USER_COMMISSION_SNAPSHOT) {
+                    throw new IllegalArgumentException("Journal record type " + type + " can't belong to a tenant");
+                }
+            }
+            switch (type) {
+                case UNTIMED_RATE_SNAPSHOT:
+                case UNTIMED_RATES:
+                    record.rates = readRates(payload, false);
+                    break;
+                case RATE_SNAPSHOT:
+                case RATES:
+                    record.rates = readRates(payload, true);
+                    break;
+                case COMMISSION_SNAPSHOT:
+                    record.commissions = new ArrayList<>();
+                    for (int i = payload.getInt(); i > 0; i--) {
+                        record.commissions.add(readCommission(payload));
+                    }
+                    record.bands = readBands(payload);
+                    break;
+                case COMMISSION:
+                    record.commissions = Collections.singletonList(readCommission(payload));
+                    break;
+                case BANDS:
+                    record.bands = readBands(payload);
+                    break;
+                case USER_COMMISSION_SNAPSHOT:
+                    record.userCommissions = new ArrayList<>();
+                    for (int i = payload.getInt(); i > 0; i--) {
+                        long userId = payload.getLong();
+                        Currency from = readCurrency(payload);
+                        Currency to = readCurrency(payload);
+                        record.userCommissions.add(new UserCommission(userId, readDecimal(payload), from, to));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown journal record type " + type);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NumberFormatException ex) {
+            throw new IllegalArgumentException("Truncated journal record", ex);
+        }
+        if (payload.hasRemaining()) {
+            throw new IllegalArgumentException(payload.remaining() + " unread bytes in journal record");
+        }
+        record.type = type;
+        return record;
+    }
+
+    private static void writeRates(DataOutputStream out, Collection<ExchangeRate> rates) throws IOException {
+        out.writeInt(rates.size());
+        for (ExchangeRate rate : rates) {
+            out.writeByte(rate.getFrom().ordinal());
+            out.writeByte(rate.getTo().ordinal());
+            writeDecimal(out, rate.getRate());
+            writeDecimal(out, rate.getBid());
+            writeDecimal(out, rate.getAsk());
+            out.writeLong(rate.getUpdatedAt() == null ? 0 : rate.getUpdatedAt());
+        }
+    }
+
+    private static List<ExchangeRate> readRates(ByteBuffer in, boolean timed) {
+        List<ExchangeRate> rates = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            Currency from = readCurrency(in);
+            Currency to = readCurrency(in);
+            ExchangeRate rate = new ExchangeRate(from, readDecimal(in), to);
+            rate.setBid(readDecimal(in));
+            rate.setAsk(readDecimal(in));
+            if (timed) {
+                long updatedAt = in.getLong();
+                rate.setUpdatedAt(updatedAt == 0 ? null : updatedAt);
+            }
+            rates.add(rate);
+        }
+        return rates;
+    }
+
+    private static void writeCommission(DataOutputStream out, Commission commission) throws IOException {
+        out.writeByte(commission.getFrom().ordinal());
+        out.writeByte(commission.getTo().ordinal());
+        writeDecimal(out, commission.getCommissionPt());
+    }
+
+    private static Commission readCommission(ByteBuffer in) {
+        Currency from = readCurrency(in);
+        Currency to = readCurrency(in);
+        return new Commission(readDecimal(in), from, to);
+    }
+
+    private static void writeBands(DataOutputStream out, Collection<CommissionBands> bands) throws IOException {
+        out.writeInt(bands.size());
+        for (CommissionBands pairBands : bands) {
+            out.writeByte(pairBands.getFrom().ordinal());
+            out.writeByte(pairBands.getTo().ordinal());
+            out.writeInt(pairBands.getBands().size());
+            for (CommissionBand band : pairBands.getBands()) {
+                writeDecimal(out, band.getMinAmount());
+                writeDecimal(out, band.getCommissionPt());
+            }
+        }
+    }
+
+    private static List<CommissionBands> readBands(ByteBuffer in) {
+        List<CommissionBands> bands = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            Currency from = readCurrency(in);
+            Currency to = readCurrency(in);
+            List<CommissionBand> pairBands = new ArrayList<>();
+            for (int j = in.getInt(); j > 0; j--) {
+                BigDecimal minAmount = readDecimal(in);
+                pairBands.add(new CommissionBand(minAmount, readDecimal(in)));
+            }
+            bands.add(new CommissionBands(from, to, pairBands));
+        }
+        return bands;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(value.scale());
+        out.writeShort(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer in) {
+        int scale = in.getInt();
+        int length = in.getShort();
+        if (length <= 0) {
+            throw new IllegalArgumentException("Invalid decimal length " + length);
+        }
+        byte[] unscaled = new byte[length];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static String readTenant(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == 0) {
+            throw new IllegalArgumentException("Empty tenant name");
+        }
+        byte[] name = new byte[length];
+        in.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static Currency readCurrency(ByteBuffer in) {
+        return CURRENCIES[in.get()];
+    }
+
+    private static byte[] write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Contents of a read payload.
+     */
+    private static final class Record {
+
+        private final ByteBuffer payload;
+
+        private byte wrapper;
+        private byte type;
+        private long sequence;
+        private String tenant = TenantContext.DEFAULT_TENANT;
+        private List<ExchangeRate> rates;
+        private List<Commission> commissions;
+        private List<CommissionBands> bands;
+        private List<UserCommission> userCommissions;
+
+        private Record(ByteBuffer payload) {
+            this.payload = payload;
+        }
+
+        private void applyTo(JournalState state, Set<Long> committed) {
+            state.sequence(sequence);
+            if (wrapper == COMMIT) {
+                return;
+            }
+            if (wrapper == UNCOMMITTED && !committed.contains(sequence)) {
+                state.uncommitted(sequence, payload);
+                return;
+            }
+            if (type == RATE_SNAPSHOT || type == UNTIMED_RATE_SNAPSHOT) {
+                state.clearRates(tenant);
+            } else if (type == COMMISSION_SNAPSHOT) {
+                state.clearCommissions(tenant);
+            }
+            if (rates != null) {
+                state.ratesSequence(tenant, sequence);
+                for (ExchangeRate rate : rates) {
+                    state.rate(tenant, rate);
+                }
+            }
+            if (commissions != null || bands != null) {
+                state.commissionsSequence(tenant, sequence);
+            }
+            if (commissions != null) {
+                for (Commission commission : commissions) {
+                    state.commission(tenant, commission.getFrom(), commission.getTo(), commission.getCommissionPt());
+                }
+            }
+            if (bands != null) {
+                for (CommissionBands pairBands : bands) {
+                    state.bands(tenant, pairBands.getFrom(), pairBands.getTo(), pairBands.getBands());
+                }
+            }
+            if (userCommissions != null) {
+                state.userCommissions(userCommissions);
+            }
+            state.recordApplied();
+        }
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
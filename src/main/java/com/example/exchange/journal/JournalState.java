@@ -0,0 +1,214 @@
+package com.example.exchange.journal;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBand;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.UserCommission;
+import com.example.exchange.models.enums.Currency;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rates and commissions of every tenant rebuilt by replaying the journal or the snapshot file. A kind of state of a
+ * tenant is recovered only when the file holds its snapshot, updates without a snapshot before them don't describe the
+ * whole state.
+ */
+public final class JournalState {
+
+    private final Map<String, Tables> tenants = new TreeMap<>();
+
+    private List<UserCommission> userCommissions = Collections.emptyList();
+
+    private final Map<Long, ByteBuffer> uncommitted = new TreeMap<>();
+
+    private boolean userCommissionsRecovered;
+    private int records;
+    private long writtenAt;
+    private long sequence;
+
+    /**
+     * Time in milliseconds the file was last written, the recovered tables were confirmed by the database no later.
+     */
+    public long getWrittenAt() {
+        return writtenAt;
+    }
+
+    void setWrittenAt(long writtenAt) {
+        this.writtenAt = writtenAt;
+    }
+
+    /**
+     * Tenants with records in the file, in name order.
+     */
+    public Set<String> getTenants() {
+        return Collections.unmodifiableSet(tenants.keySet());
+    }
+
+    public boolean hasExchangeRates(String tenant) {
+        Tables tables = tenants.get(tenant);
+        return tables != null && tables.ratesRecovered;
+    }
+
+    public boolean hasCommissions(String tenant) {
+        Tables tables = tenants.get(tenant);
+        return tables != null && tables.commissionsRecovered;
+    }
+
+    /**
+     * Sequence number of the last record that changed the rates of the tenant, 0 when the records have none.
+     */
+    public long getExchangeRatesSequence(String tenant) {
+        Tables tables = tenants.get(tenant);
+        return tables == null ? 0 : tables.ratesSequence;
+    }
+
+    /**
+     * Sequence number of the last record that changed the commissions or bands of the tenant, 0 when the records
+     * have none.
+     */
+    public long getCommissionsSequence(String tenant) {
+        Tables tables = tenants.get(tenant);
+        return tables == null ? 0 : tables.commissionsSequence;
+    }
+
+    public boolean hasUserCommissions() {
+        return userCommissionsRecovered;
+    }
+
+    public List<ExchangeRate> getExchangeRates(String tenant) {
+        List<ExchangeRate> result = new ArrayList<>();
+        Tables tables = tenants.get(tenant);
+        if (tables != null) {
+            for (ExchangeRate rate : tables.rates) {
+                if (rate != null) {
+                    result.add(rate);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<Commission> getCommissions(String tenant) {
+        List<Commission> result = new ArrayList<>();
+        Tables tables = tenants.get(tenant);
+        for (int pair = 0; tables != null && pair < Currency.PAIRS; pair++) {
+            if (tables.commissions[pair] != null) {
+                result.add(new Commission(tables.commissions[pair], Currency.fromOfPair(pair),
+                        Currency.toOfPair(pair)));
+            }
+        }
+        return result;
+    }
+
+    public List<CommissionBands> getCommissionBands(String tenant) {
+        List<CommissionBands> result = new ArrayList<>();
+        Tables tables = tenants.get(tenant);
+        for (int pair = 0; tables != null && pair < Currency.PAIRS; pair++) {
+            List<CommissionBand> pairBands = tables.bands.get(pair);
+            if (pairBands != null && !pairBands.isEmpty()) {
+                result.add(new CommissionBands(Currency.fromOfPair(pair), Currency.toOfPair(pair),
+                        new ArrayList<>(pairBands)));
+            }
+        }
+        return result;
+    }
+
+    public List<UserCommission> getUserCommissions() {
+        return userCommissions;
+    }
+
+    int getRecords() {
+        return records;
+    }
+
+    void recordApplied() {
+        records++;
+    }
+
+    /**
+     * Highest sequence number in the file, 0 when no record has one.
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    void sequence(long sequence) {
+        this.sequence = Math.max(this.sequence, sequence);
+    }
+
+    /**
+     * Payloads of uncommitted records without a commit record, by sequence number.
+     */
+    Map<Long, ByteBuffer> getUncommitted() {
+        return uncommitted;
+    }
+
+    void uncommitted(long sequence, ByteBuffer payload) {
+        uncommitted.put(sequence, payload);
+    }
+
+    void clearRates(String tenant) {
+        Tables tables = tablesOf(tenant);
+        Arrays.fill(tables.rates, null);
+        tables.ratesRecovered = true;
+    }
+
+    void rate(String tenant, ExchangeRate rate) {
+        tablesOf(tenant).rates[Currency.pairIndex(rate.getFrom(), rate.getTo())] = rate;
+    }
+
+    void ratesSequence(String tenant, long sequence) {
+        Tables tables = tablesOf(tenant);
+        tables.ratesSequence = Math.max(tables.ratesSequence, sequence);
+    }
+
+    void commissionsSequence(String tenant, long sequence) {
+        Tables tables = tablesOf(tenant);
+        tables.commissionsSequence = Math.max(tables.commissionsSequence, sequence);
+    }
+
+    void clearCommissions(String tenant) {
+        Tables tables = tablesOf(tenant);
+        Arrays.fill(tables.commissions, null);
+        Collections.fill(tables.bands, null);
+        tables.commissionsRecovered = true;
+    }
+
+    void commission(String tenant, Currency from, Currency to, BigDecimal commissionPt) {
+        tablesOf(tenant).commissions[Currency.pairIndex(from, to)] = commissionPt;
+    }
+
+    void bands(String tenant, Currency from, Currency to, List<CommissionBand> pairBands) {
+        tablesOf(tenant).bands.set(Currency.pairIndex(from, to), pairBands);
+    }
+
+    void userCommissions(List<UserCommission> userCommissions) {
+        this.userCommissions = userCommissions;
+        userCommissionsRecovered = true;
+    }
+
+    private Tables tablesOf(String tenant) {
+        return tenants.computeIfAbsent(tenant, name -> new Tables());
+    }
+
+    private static final class Tables {
+
+        private final ExchangeRate[] rates = new ExchangeRate[Currency.PAIRS];
+        private final BigDecimal[] commissions = new BigDecimal[Currency.PAIRS];
+        private final List<List<CommissionBand>> bands = new ArrayList<>(Collections.nCopies(Currency.PAIRS, null));
+
+        private boolean ratesRecovered;
+        private boolean commissionsRecovered;
+        private long ratesSequence;
+        private long commissionsSequence;
+    }
+}
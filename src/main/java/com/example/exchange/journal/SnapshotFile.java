@@ -0,0 +1,192 @@
+package com.example.exchange.journal;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.UserCommission;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Memory-mapped snapshot of the in-memory rate, commission and user commission tables stored at
+ * {@code app.snapshot.path}, the snapshot is disabled when the path isn't set.
+ * <p>
+ * The file starts with a magic number and a format version followed by framed records of the journal format, one
+ * snapshot record for every table of every tenant. Version 1 files, written before tenants were kept, hold the tables
+ * of the default tenant. Since version 3 rate and commission records carry the admin journal sequence number the
+ * table was read at, so recovery can tell whether the journal holds newer changes. It is rewritten through a new file
+ * and an atomic rename whenever a table changes, and is mapped and read once on start, so a node can quote before the
+ * database answers.
+ */
+@Log4j2
+@Component
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x45585350;
+    private static final int VERSION = 3;
+
+    private static final int HEADER_BYTES = 8;
+    private static final String RATES = "rates:";
+    private static final String COMMISSIONS = "commissions:";
+    private static final String USER_COMMISSIONS = "user-commissions";
+
+    private final Path path;
+    private final Map<String, byte[]> parts = new TreeMap<>();
+
+    private JournalState loadedState = new JournalState();
+    private boolean failed;
+
+    @Autowired
+    public SnapshotFile(@Value("${app.snapshot.path:}") String path) {
+        this.path = path.isEmpty() ? null : Paths.get(path);
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * State read from the snapshot file when the application started.
+     */
+    public JournalState getLoadedState() {
+        return loadedState;
+    }
+
+    /**
+     * Saves the rates of the tenant read from the database after {@link AdminJournal#getCommittedSequence} returned
+     * the sequence number.
+     */
+    public void saveExchangeRates(String tenant, Collection<ExchangeRate> rates, long sequence) {
+        save(RATES + tenant, ratesPart(tenant, rates, sequence));
+    }
+
+    /**
+     * Saves the commissions of the tenant read from the database after {@link AdminJournal#getCommittedSequence}
+     * returned the sequence number.
+     */
+    public void saveCommissions(String tenant, Collection<Commission> commissions, Collection<CommissionBands> bands,
+                                long sequence) {
+        save(COMMISSIONS + tenant, commissionsPart(tenant, commissions, bands, sequence));
+    }
+
+    public void saveUserCommissions(Collection<UserCommission> userCommissions) {
+        save(USER_COMMISSIONS, JournalRecords.userCommissionSnapshot(userCommissions));
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        JournalState state = new JournalState();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            state.setWrittenAt(Files.getLastModifiedTime(path).toMillis());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                log.warn("Snapshot file " + path + " isn't a snapshot and is ignored");
+                return;
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                log.warn("Snapshot file " + path + " has unsupported version " + version + " and is ignored");
+                return;
+            }
+            if (JournalRecords.readFrames(buffer, state) != buffer.limit()) {
+                log.warn("Snapshot file " + path + " is corrupted and is ignored");
+                return;
+            }
+        } catch (IOException ex) {
+            log.error("Can't read snapshot file " + path + ": " + ex.getMessage());
+            return;
+        }
+
+        // tables which are not saved again keep their loaded snapshot
+        for (String tenant : state.getTenants()) {
+            if (state.hasExchangeRates(tenant)) {
+                parts.put(RATES + tenant, ratesPart(tenant, state.getExchangeRates(tenant),
+                        state.getExchangeRatesSequence(tenant)));
+            }
+            if (state.hasCommissions(tenant)) {
+                parts.put(COMMISSIONS + tenant, commissionsPart(tenant, state.getCommissions(tenant),
+                        state.getCommissionBands(tenant), state.getCommissionsSequence(tenant)));
+            }
+        }
+        if (state.hasUserCommissions()) {
+            parts.put(USER_COMMISSIONS, JournalRecords.userCommissionSnapshot(state.getUserCommissions()));
+        }
+        loadedState = state;
+        log.info("Snapshot file " + path + " was loaded");
+    }
+
+    /**
+     * Rewrites the file when the table has changed. The snapshot is only a warm start aid, so a failed write is
+     * logged and retried with the next save.
+     */
+    private synchronized void save(String part, byte[] payload) {
+        if (path == null || !failed && Arrays.equals(parts.get(part), payload)) {
+            return;
+        }
+        parts.put(part, payload);
+        try {
+            write();
+            failed = false;
+        } catch (IOException ex) {
+            failed = true;
+            log.error("Can't write snapshot file " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private static byte[] ratesPart(String tenant, Collection<ExchangeRate> rates, long sequence) {
+        return JournalRecords.sequenced(JournalRecords.SEQUENCED, sequence, JournalRecords.ofTenant(tenant,
+                JournalRecords.rates(JournalRecords.RATE_SNAPSHOT, rates)));
+    }
+
+    private static byte[] commissionsPart(String tenant, Collection<Commission> commissions,
+                                          Collection<CommissionBands> bands, long sequence) {
+        return JournalRecords.sequenced(JournalRecords.SEQUENCED, sequence, JournalRecords.ofTenant(tenant,
+                JournalRecords.commissionSnapshot(commissions, bands)));
+    }
+
+    private void write() throws IOException {
+        int size = HEADER_BYTES;
+        List<ByteBuffer> records = new ArrayList<>(parts.size());
+        for (byte[] part : parts.values()) {
+            ByteBuffer record = JournalRecords.frame(part);
+            records.add(record);
+            size += record.remaining();
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path written = path.resolveSibling(path.getFileName() + ".new");
+        try (FileChannel channel = FileChannel.open(written, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            for (ByteBuffer record : records) {
+                buffer.put(record);
+            }
+            buffer.force();
+        }
+        Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.exchange.metrics;
+
+import com.example.exchange.models.CacheStatistics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hit ratios of the Hibernate second-level cache regions and of the query cache since start.
+ */
+@Component
+public class CacheMetrics {
+
+    private final Statistics statistics;
+
+    @Autowired
+    public CacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<CacheStatistics> report() {
+        List<CacheStatistics> result = new ArrayList<>();
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        for (String region : regions) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.add(statisticsOf("region " + region, regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+            }
+        }
+        result.add(statisticsOf("second-level cache", statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        result.add(statisticsOf("query cache", statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()));
+        return result;
+    }
+
+    private static CacheStatistics statisticsOf(String name, long hits, long misses, long puts) {
+        long lookups = hits + misses;
+        return new CacheStatistics(name, hits, misses, puts, lookups == 0 ? 0 : (double) hits / lookups);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.exchange.metrics;
+
+import com.example.exchange.models.LatencyHistogram;
+import com.example.exchange.models.LatencyReport;
+import com.example.exchange.models.SlowRequest;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms in microseconds per exchange pair and operation and per repository method. Values go to
+ * lock-free HDR recorders; a report drains them into cumulative histograms. The slowest requests are kept in a
+ * bounded min-heap, requests faster than the fastest kept one don't take the lock.
+ */
+@Component
+public class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+
+    private final int slowestSize;
+    private final Series[] exchangeSeries = new Series[Currency.PAIRS * OPERATION_TYPES.length];
+    private final Map<String, Series> repositorySeries = new ConcurrentHashMap<>();
+    private final PriorityQueue<SlowRequest> slowest = new PriorityQueue<>(Comparator.comparingLong(SlowRequest::getTotalUs));
+    private volatile long slowestThresholdUs;
+
+    public LatencyRecorder(@Value("${app.metrics.slowest-requests:20}") int slowestSize) {
+        this.slowestSize = slowestSize;
+        for (int pair = 0; pair < Currency.PAIRS; pair++) {
+            for (OperationType operationType : OPERATION_TYPES) {
+                exchangeSeries[pair * OPERATION_TYPES.length + operationType.ordinal()] = new Series("exchange "
+                        + Currency.fromOfPair(pair) + "->" + Currency.toOfPair(pair) + " " + operationType);
+            }
+        }
+    }
+
+    static int exchangeIndex(Currency from, Currency to, OperationType operationType) {
+        return Currency.pairIndex(from, to) * OPERATION_TYPES.length + operationType.ordinal();
+    }
+
+    void recordExchange(int exchangeIndex, long nanos) {
+        exchangeSeries[exchangeIndex].record(nanos);
+    }
+
+    public void recordRepository(String method, long nanos) {
+        Series series = repositorySeries.get(method);
+        if (series == null) {
+            series = repositorySeries.computeIfAbsent(method, name -> new Series("repository " + name));
+        }
+        series.record(nanos);
+    }
+
+    void offer(RequestTiming timing, long totalNanos) {
+        long totalUs = TimeUnit.NANOSECONDS.toMicros(totalNanos);
+        if (slowestSize <= 0 || totalUs <= slowestThresholdUs) {
+            return;
+        }
+        SlowRequest request = new SlowRequest(timing.method, timing.uri, timing.startMillis, totalUs,
+                TimeUnit.NANOSECONDS.toMicros(timing.authNanos), TimeUnit.NANOSECONDS.toMicros(timing.dbNanos),
+                TimeUnit.NANOSECONDS.toMicros(timing.calculationNanos),
+                TimeUnit.NANOSECONDS.toMicros(timing.serializationNanos));
+        synchronized (slowest) {
+            slowest.add(request);
+            if (slowest.size() > slowestSize) {
+                slowest.poll();
+            }
+            if (slowest.size() == slowestSize) {
+                slowestThresholdUs = slowest.peek().getTotalUs();
+            }
+        }
+    }
+
+    public LatencyReport report() {
+        List<LatencyHistogram> histograms = new ArrayList<>();
+        for (Series series : exchangeSeries) {
+            series.report(histograms);
+        }
+        for (Series series : repositorySeries.values()) {
+            series.report(histograms);
+        }
+        List<SlowRequest> requests;
+        synchronized (slowest) {
+            requests = new ArrayList<>(slowest);
+        }
+        requests.sort(Comparator.comparingLong(SlowRequest::getTotalUs).reversed());
+        return new LatencyReport(histograms, requests);
+    }
+
+    private static final class Series {
+
+        private final String name;
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        private Series(String name) {
+            this.name = name;
+        }
+
+        private void record(long nanos) {
+            recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+        }
+
+        private synchronized void report(List<LatencyHistogram> histograms) {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            if (total.getTotalCount() == 0) {
+                return;
+            }
+            histograms.add(new LatencyHistogram(name, total.getTotalCount(), total.getValueAtPercentile(50),
+                    total.getValueAtPercentile(90), total.getValueAtPercentile(99), total.getValueAtPercentile(99.9),
+                    total.getMaxValue()));
+        }
+    }
+}
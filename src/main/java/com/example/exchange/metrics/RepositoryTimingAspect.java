@@ -0,0 +1,52 @@
+package com.example.exchange.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records every repository call in the histogram of its method and adds it to the DB time of the current request.
+ */
+@Aspect
+@Component
+public class RepositoryTimingAspect {
+
+    private final LatencyRecorder latencyRecorder;
+    private final Map<Class<?>, Map<Method, String>> names = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RepositoryTimingAspect(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    @Around("target(org.springframework.data.repository.Repository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            latencyRecorder.recordRepository(name(joinPoint), nanos);
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.addDb(nanos);
+            }
+        }
+    }
+
+    private String name(ProceedingJoinPoint joinPoint) {
+        Object repository = joinPoint.getThis();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        return names.computeIfAbsent(repository.getClass(), type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> AopProxyUtils.proxiedUserInterfaces(repository)[0].getSimpleName()
+                        + "." + key.getName());
+    }
+}
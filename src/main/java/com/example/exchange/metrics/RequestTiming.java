@@ -0,0 +1,56 @@
+package com.example.exchange.metrics;
+
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+
+/**
+ * Timing breakdown of the request handled by the current thread. It's started by {@link RequestTimingFilter}, so
+ * it's absent when requests don't pass the servlet filters.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    final long startMillis = System.currentTimeMillis();
+    final long startNanos = System.nanoTime();
+    final String method;
+    final String uri;
+
+    long authNanos;
+    long dbNanos;
+    long calculationNanos;
+    long serializationNanos;
+    long markNanos;
+    int exchangeIndex = -1;
+
+    private RequestTiming(String method, String uri) {
+        this.method = method;
+        this.uri = uri;
+    }
+
+    static RequestTiming start(String method, String uri) {
+        RequestTiming timing = new RequestTiming(method, uri);
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void finish() {
+        CURRENT.remove();
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Tags the request as an exchange quote, its latency is recorded in the histogram of the pair and operation.
+     */
+    public void exchange(Currency from, Currency to, OperationType operationType, long calculationNanos) {
+        this.exchangeIndex = LatencyRecorder.exchangeIndex(from, to, operationType);
+        this.calculationNanos += calculationNanos;
+    }
+
+    void addDb(long nanos) {
+        dbNanos += nanos;
+    }
+}
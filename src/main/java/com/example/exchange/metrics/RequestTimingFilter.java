@@ -0,0 +1,54 @@
+package com.example.exchange.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Runs before the security filters, so the timing of a request includes authentication.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final LatencyRecorder latencyRecorder;
+
+    @Autowired
+    public RequestTimingFilter(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.start(request.getMethod(), request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long endNanos = System.nanoTime();
+            if (timing.markNanos != 0) {
+                // response body was written after the mark set by RequestTimingAdvice
+                timing.serializationNanos += endNanos - timing.markNanos;
+            }
+            long totalNanos = endNanos - timing.startNanos;
+            if (timing.exchangeIndex >= 0) {
+                latencyRecorder.recordExchange(timing.exchangeIndex, totalNanos);
+            }
+            latencyRecorder.offer(timing, totalNanos);
+            RequestTiming.finish();
+        }
+    }
+}
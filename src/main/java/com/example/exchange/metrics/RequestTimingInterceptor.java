@@ -0,0 +1,23 @@
+package com.example.exchange.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handlers are invoked after the security filters, so the time until here is the authentication time of the request.
+ */
+@Component
+public class RequestTimingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null && timing.authNanos == 0) {
+            timing.authNanos = System.nanoTime() - timing.startNanos;
+        }
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.exchange.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -10,4 +11,14 @@ import lombok.NoArgsConstructor;
 public class ApiError {
 
     private String description;
+
+    /**
+     * Validation failure code of {@link com.example.exchange.exceptions.ErrorCode}, absent for other errors.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String code;
+
+    public ApiError(String description) {
+        this.description = description;
+    }
 }
@@ -0,0 +1,28 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request queue of an endpoint class and its connection pool partition, pool fields are zero when the pool isn't
+ * partitioned.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkheadStatistics {
+
+    private String endpointClass;
+    private int maxConcurrent;
+    private int active;
+    private int maxWaiting;
+    private int waiting;
+    private int peakWaiting;
+    private long accepted;
+    private long rejected;
+    private int poolSize;
+    private int activeConnections;
+    private int idleConnections;
+    private int threadsAwaitingConnection;
+}
@@ -0,0 +1,17 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatistics {
+
+    private String name;
+    private long hits;
+    private long misses;
+    private long puts;
+    private double hitRatio;
+}
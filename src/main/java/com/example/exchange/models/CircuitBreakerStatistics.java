@@ -0,0 +1,18 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CircuitBreakerStatistics {
+
+    private String name;
+    private String state;
+    private long calls;
+    private long failures;
+    private long rejected;
+    private long opened;
+}
@@ -0,0 +1,22 @@
+package com.example.exchange.models;
+
+import com.example.exchange.models.entities.CommissionBandEntity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionBand {
+
+    private BigDecimal minAmount;
+    private BigDecimal commissionPt;
+
+    public CommissionBand(CommissionBandEntity entity) {
+        minAmount = entity.getMinAmount();
+        commissionPt = entity.getCommissionPt();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.exchange.models;
+
+import com.example.exchange.models.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommissionBands {
+
+    private Currency from;
+    private Currency to;
+    private List<CommissionBand> bands;
+}
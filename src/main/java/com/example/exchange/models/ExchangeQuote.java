@@ -0,0 +1,24 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Rate of a currency pair with the commission of the pair, {@code commissionPt} is {@code null} when the pair has no
+ * commission.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExchangeQuote {
+
+    private String from;
+    private String to;
+    private BigDecimal rate;
+    private BigDecimal bid;
+    private BigDecimal ask;
+    private BigDecimal commissionPt;
+}
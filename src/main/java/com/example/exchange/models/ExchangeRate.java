@@ -2,6 +2,9 @@ package com.example.exchange.models;
 
 import com.example.exchange.models.entities.ExchangeRateEntity;
 import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.json.ExchangeRateJson;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,15 +14,30 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = ExchangeRateJson.Serializer.class)
+@JsonDeserialize(using = ExchangeRateJson.Deserializer.class)
 public class ExchangeRate {
 
     private Currency from;
     private BigDecimal rate;
     private Currency to;
+    private BigDecimal bid;
+    private BigDecimal ask;
+    private Long updatedAt;
+
+    public ExchangeRate(Currency from, BigDecimal rate, Currency to) {
+        this.from = from;
+        this.rate = rate;
+        this.to = to;
+    }
 
     public ExchangeRate(ExchangeRateEntity entity) {
         from = Currency.valueOf(entity.getFrom());
         rate = entity.getRate();
         to = Currency.valueOf(entity.getTo());
+        // rows stored before the spread was introduced are quoted at the rate on both sides
+        bid = entity.getBid() == null ? entity.getRate() : entity.getBid();
+        ask = entity.getAsk() == null ? entity.getRate() : entity.getAsk();
+        updatedAt = entity.getUpdatedAt();
     }
 }
@@ -2,6 +2,9 @@ package com.example.exchange.models;
 
 import com.example.exchange.models.enums.Currency;
 import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.models.json.ExchangeRequestJson;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,6 +14,8 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = ExchangeRequestJson.Serializer.class)
+@JsonDeserialize(using = ExchangeRequestJson.Deserializer.class)
 public class ExchangeRequest {
 
     private BigDecimal amountFrom;
@@ -0,0 +1,19 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyHistogram {
+
+    private String name;
+    private long count;
+    private long p50Us;
+    private long p90Us;
+    private long p99Us;
+    private long p999Us;
+    private long maxUs;
+}
@@ -0,0 +1,16 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyReport {
+
+    private List<LatencyHistogram> histograms;
+    private List<SlowRequest> slowestRequests;
+}
@@ -0,0 +1,36 @@
+package com.example.exchange.models;
+
+import com.example.exchange.exceptions.ExchangeException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Position in a list ordered by currency pair, written as {@code FROM:TO} of the last returned pair. A cursor is only
+ * valid for the filters of the request it was returned by.
+ */
+@Data
+@AllArgsConstructor
+public class PairCursor {
+
+    private String from;
+    private String to;
+
+    /**
+     * Cursor written by {@link #toString()}, {@code null} for a missing or empty cursor.
+     */
+    public static PairCursor parse(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        int separator = cursor.indexOf(':');
+        if (separator <= 0 || separator == cursor.length() - 1 || cursor.indexOf(':', separator + 1) >= 0) {
+            throw new ExchangeException("Invalid cursor " + cursor);
+        }
+        return new PairCursor(cursor.substring(0, separator), cursor.substring(separator + 1));
+    }
+
+    @Override
+    public String toString() {
+        return from + ":" + to;
+    }
+}
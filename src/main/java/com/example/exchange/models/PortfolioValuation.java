@@ -0,0 +1,19 @@
+package com.example.exchange.models;
+
+import com.example.exchange.models.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioValuation {
+
+    private Currency baseCurrency;
+    private BigDecimal total;
+    private List<PositionValue> values;
+}
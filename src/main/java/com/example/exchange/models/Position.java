@@ -0,0 +1,17 @@
+package com.example.exchange.models;
+
+import com.example.exchange.models.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Position {
+
+    private Currency currency;
+    private BigDecimal amount;
+}
@@ -0,0 +1,21 @@
+package com.example.exchange.models;
+
+import com.example.exchange.models.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Total amount of all positions in the currency and its value in the base currency of the valuation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionValue {
+
+    private Currency currency;
+    private BigDecimal amount;
+    private BigDecimal value;
+}
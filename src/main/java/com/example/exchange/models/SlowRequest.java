@@ -0,0 +1,20 @@
+package com.example.exchange.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlowRequest {
+
+    private String method;
+    private String uri;
+    private long startedAt;
+    private long totalUs;
+    private long authUs;
+    private long dbUs;
+    private long calculationUs;
+    private long serializationUs;
+}
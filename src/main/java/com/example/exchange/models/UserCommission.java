@@ -0,0 +1,27 @@
+package com.example.exchange.models;
+
+import com.example.exchange.models.entities.UserCommissionEntity;
+import com.example.exchange.models.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCommission {
+
+    private Long userId;
+    private BigDecimal commissionPt;
+    private Currency from;
+    private Currency to;
+
+    public UserCommission(UserCommissionEntity entity) {
+        userId = entity.getUserId();
+        commissionPt = entity.getCommissionPt();
+        from = Currency.valueOf(entity.getFrom());
+        to = Currency.valueOf(entity.getTo());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.exchange.models.entities;
+
+import com.example.exchange.tenant.TenantContext;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Digits;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "commission_bands",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"tenant", "currencyFrom", "currencyTo", "minAmount"}))
+public class CommissionBandEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant", nullable = false)
+    private String tenant = TenantContext.DEFAULT_TENANT;
+
+    @Column(name = "currencyFrom")
+    private String from;
+
+    @Column(name = "currencyTo")
+    private String to;
+
+    @Column(name = "minAmount")
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Digits(integer = 36, fraction = 2)
+    private BigDecimal minAmount;
+
+    @Column(name = "commissionPt")
+    @DecimalMax(value = "100.00")
+    @DecimalMin(value = "0.0")
+    @Digits(integer = 3, fraction = 2)
+    private BigDecimal commissionPt;
+
+    public CommissionBandEntity(Long id, String from, String to, BigDecimal minAmount, BigDecimal commissionPt) {
+        this(id, TenantContext.DEFAULT_TENANT, from, to, minAmount, commissionPt);
+    }
+}
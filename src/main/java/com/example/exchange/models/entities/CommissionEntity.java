@@ -1,16 +1,23 @@
 package com.example.exchange.models.entities;
 
 import com.example.exchange.models.Commission;
+import com.example.exchange.tenant.TenantContext;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Digits;
@@ -20,13 +27,20 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "commissions")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "commissions")
+@Table(name = "commissions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"tenant", "currencyFrom", "currencyTo"}),
+        indexes = @Index(name = "commissions_currencyTo", columnList = "tenant, currencyTo, currencyFrom"))
 public class CommissionEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "tenant", nullable = false)
+    private String tenant = TenantContext.DEFAULT_TENANT;
+
     @Column(name = "commissionPt")
     @DecimalMax(value = "100.00")
     @DecimalMin(value = "0.0")
@@ -39,7 +53,23 @@ public class CommissionEntity {
     @Column(name = "currencyTo")
     private String to;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public CommissionEntity(Long id, BigDecimal commissionPt, String from, String to) {
+        this.id = id;
+        this.commissionPt = commissionPt;
+        this.from = from;
+        this.to = to;
+    }
+
     public CommissionEntity(Commission commission) {
+        this(TenantContext.DEFAULT_TENANT, commission);
+    }
+
+    public CommissionEntity(String tenant, Commission commission) {
+        this.tenant = tenant;
         commissionPt = commission.getCommissionPt();
         from = commission.getFrom().toString();
         to = commission.getTo().toString();
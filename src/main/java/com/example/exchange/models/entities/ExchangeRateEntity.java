@@ -1,16 +1,23 @@
 package com.example.exchange.models.entities;
 
 import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.tenant.TenantContext;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Digits;
 import java.math.BigDecimal;
@@ -19,13 +26,20 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "exchangeRates")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "exchangeRates")
+@Table(name = "exchangeRates",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"tenant", "currencyFrom", "currencyTo"}),
+        indexes = @Index(name = "exchangeRates_currencyTo", columnList = "tenant, currencyTo, currencyFrom"))
 public class ExchangeRateEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "tenant", nullable = false)
+    private String tenant = TenantContext.DEFAULT_TENANT;
+
     @Column(name = "currencyFrom")
     private String from;
 
@@ -37,9 +51,44 @@ public class ExchangeRateEntity {
     @Column(name = "currencyTo")
     private String to;
 
+    @Column(name = "bid")
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Digits(integer = 33, fraction = 5)
+    private BigDecimal bid;
+
+    @Column(name = "ask")
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Digits(integer = 33, fraction = 5)
+    private BigDecimal ask;
+
+    /**
+     * Time of the last change of the rate in epoch milliseconds, {@code null} for rows stored before it was tracked.
+     */
+    @Column(name = "updatedAt")
+    private Long updatedAt;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public ExchangeRateEntity(Long id, String from, BigDecimal rate, String to) {
+        this.id = id;
+        this.from = from;
+        this.rate = rate;
+        this.to = to;
+    }
+
     public ExchangeRateEntity(ExchangeRate exchangeRate) {
+        this(TenantContext.DEFAULT_TENANT, exchangeRate);
+    }
+
+    public ExchangeRateEntity(String tenant, ExchangeRate exchangeRate) {
+        this.tenant = tenant;
         from = exchangeRate.getFrom().toString();
         rate = exchangeRate.getRate();
         to = exchangeRate.getTo().toString();
+        bid = exchangeRate.getBid();
+        ask = exchangeRate.getAsk();
+        updatedAt = exchangeRate.getUpdatedAt();
     }
 }
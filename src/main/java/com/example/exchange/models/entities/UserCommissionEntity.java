@@ -0,0 +1,45 @@
+package com.example.exchange.models.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Digits;
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "user_commissions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"userId", "currencyFrom", "currencyTo"}))
+public class UserCommissionEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "userId")
+    private Long userId;
+
+    @Column(name = "currencyFrom")
+    private String from;
+
+    @Column(name = "currencyTo")
+    private String to;
+
+    @Column(name = "commissionPt")
+    @DecimalMax(value = "100.00")
+    @DecimalMin(value = "0.0")
+    @Digits(integer = 3, fraction = 2)
+    private BigDecimal commissionPt;
+}
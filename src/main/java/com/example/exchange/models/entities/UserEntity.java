@@ -1,9 +1,13 @@
 package com.example.exchange.models.entities;
 
+import com.example.exchange.tenant.TenantContext;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -15,6 +19,8 @@ import javax.persistence.Table;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "users")
 @Table(name = "service_users")
 public class UserEntity {
 
@@ -30,4 +36,17 @@ public class UserEntity {
 
     @Column(name = "userRole")
     private String userRole;
+
+    /**
+     * Branch whose rates and commissions the user sees and changes.
+     */
+    @Column(name = "tenant", nullable = false)
+    private String tenant = TenantContext.DEFAULT_TENANT;
+
+    public UserEntity(Long id, String userName, String userPassword, String userRole) {
+        this.id = id;
+        this.userName = userName;
+        this.userPassword = userPassword;
+        this.userRole = userRole;
+    }
 }
@@ -5,5 +5,58 @@ public enum Currency {
     EUR,
     USD,
     UAH,
-    RUB
+    RUB;
+
+    private static final Currency[] VALUES = values();
+
+    public static final int PAIRS = VALUES.length * VALUES.length;
+
+    public static int pairIndex(Currency from, Currency to) {
+        return from.ordinal() * VALUES.length + to.ordinal();
+    }
+
+    public static Currency fromOfPair(int pairIndex) {
+        return VALUES[pairIndex / VALUES.length];
+    }
+
+    public static Currency toOfPair(int pairIndex) {
+        return VALUES[pairIndex % VALUES.length];
+    }
+
+    /**
+     * Resolves a currency code without allocation. The last letter of the code is a perfect hash of the supported
+     * currencies, the remaining letters are only compared. Returns {@code null} for unknown codes.
+     */
+    public static Currency fromCode(char[] chars, int offset, int length) {
+        return length == 3 ? fromCode(chars[offset], chars[offset + 1], chars[offset + 2]) : null;
+    }
+
+    /**
+     * Resolves a three letter code given as characters or ASCII bytes, see {@link #fromCode(char[], int, int)}.
+     */
+    public static Currency fromCode(int first, int second, int third) {
+        Currency candidate;
+        switch (third) {
+            case 'R':
+                candidate = EUR;
+                break;
+            case 'D':
+                candidate = USD;
+                break;
+            case 'H':
+                candidate = UAH;
+                break;
+            case 'B':
+                candidate = RUB;
+                break;
+            default:
+                return null;
+        }
+        String code = candidate.name();
+        return first == code.charAt(0) && second == code.charAt(1) ? candidate : null;
+    }
+
+    public static Currency fromCode(String code) {
+        return code == null ? null : fromCode(code.toCharArray(), 0, code.length());
+    }
 }
@@ -0,0 +1,7 @@
+package com.example.exchange.models.enums;
+
+public enum ExportFormat {
+
+    CSV,
+    NDJSON
+}
@@ -3,5 +3,29 @@ package com.example.exchange.models.enums;
 public enum OperationType {
 
     GET,
-    GIVE
+    GIVE;
+
+    /**
+     * Resolves an operation type without allocation, returns {@code null} for unknown values.
+     */
+    public static OperationType fromCode(char[] chars, int offset, int length) {
+        OperationType candidate;
+        switch (length) {
+            case 3:
+                candidate = GET;
+                break;
+            case 4:
+                candidate = GIVE;
+                break;
+            default:
+                return null;
+        }
+        String code = candidate.name();
+        for (int i = 0; i < length; i++) {
+            if (chars[offset + i] != code.charAt(i)) {
+                return null;
+            }
+        }
+        return candidate;
+    }
 }
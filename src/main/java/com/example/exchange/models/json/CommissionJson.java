@@ -0,0 +1,68 @@
+package com.example.exchange.models.json;
+
+import com.example.exchange.models.Commission;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public final class CommissionJson {
+
+    private static final SerializableString COMMISSION_PT = new SerializedString("commissionPt");
+    private static final SerializableString FROM = new SerializedString("from");
+    private static final SerializableString TO = new SerializedString("to");
+
+    private CommissionJson() {
+    }
+
+    public static class Serializer extends StdSerializer<Commission> {
+
+        public Serializer() {
+            super(Commission.class);
+        }
+
+        @Override
+        public void serialize(Commission value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            JsonValues.writeDecimal(gen, COMMISSION_PT, value.getCommissionPt());
+            JsonValues.writeEnum(gen, FROM, value.getFrom());
+            JsonValues.writeEnum(gen, TO, value.getTo());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<Commission> {
+
+        public Deserializer() {
+            super(Commission.class);
+        }
+
+        @Override
+        public Commission deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Commission commission = new Commission();
+            for (String field = JsonValues.firstFieldName(p, ctxt, Commission.class); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "commissionPt":
+                        commission.setCommissionPt(JsonValues.readDecimal(p, ctxt));
+                        break;
+                    case "from":
+                        commission.setFrom(JsonValues.readCurrency(p, ctxt));
+                        break;
+                    case "to":
+                        commission.setTo(JsonValues.readCurrency(p, ctxt));
+                        break;
+                    default:
+                        handleUnknownProperty(p, ctxt, commission, field);
+                }
+            }
+            return commission;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.exchange.models.json;
+
+import com.example.exchange.models.ExchangeRate;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public final class ExchangeRateJson {
+
+    private static final SerializableString FROM = new SerializedString("from");
+    private static final SerializableString RATE = new SerializedString("rate");
+    private static final SerializableString TO = new SerializedString("to");
+    private static final SerializableString BID = new SerializedString("bid");
+    private static final SerializableString ASK = new SerializedString("ask");
+    private static final SerializableString UPDATED_AT = new SerializedString("updatedAt");
+
+    private ExchangeRateJson() {
+    }
+
+    public static class Serializer extends StdSerializer<ExchangeRate> {
+
+        public Serializer() {
+            super(ExchangeRate.class);
+        }
+
+        @Override
+        public void serialize(ExchangeRate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            JsonValues.writeEnum(gen, FROM, value.getFrom());
+            JsonValues.writeDecimal(gen, RATE, value.getRate());
+            JsonValues.writeEnum(gen, TO, value.getTo());
+            JsonValues.writeDecimal(gen, BID, value.getBid());
+            JsonValues.writeDecimal(gen, ASK, value.getAsk());
+            JsonValues.writeLong(gen, UPDATED_AT, value.getUpdatedAt());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<ExchangeRate> {
+
+        public Deserializer() {
+            super(ExchangeRate.class);
+        }
+
+        @Override
+        public ExchangeRate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            ExchangeRate exchangeRate = new ExchangeRate();
+            for (String field = JsonValues.firstFieldName(p, ctxt, ExchangeRate.class); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "from":
+                        exchangeRate.setFrom(JsonValues.readCurrency(p, ctxt));
+                        break;
+                    case "rate":
+                        exchangeRate.setRate(JsonValues.readDecimal(p, ctxt));
+                        break;
+                    case "to":
+                        exchangeRate.setTo(JsonValues.readCurrency(p, ctxt));
+                        break;
+                    case "bid":
+                        exchangeRate.setBid(JsonValues.readDecimal(p, ctxt));
+                        break;
+                    case "ask":
+                        exchangeRate.setAsk(JsonValues.readDecimal(p, ctxt));
+                        break;
+                    case "updatedAt":
+                        exchangeRate.setUpdatedAt(JsonValues.readLong(p, ctxt));
+                        break;
+                    default:
+                        handleUnknownProperty(p, ctxt, exchangeRate, field);
+                }
+            }
+            return exchangeRate;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.exchange.models.json;
+
+import com.example.exchange.models.ExchangeRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public final class ExchangeRequestJson {
+
+    private static final SerializableString AMOUNT_FROM = new SerializedString("amountFrom");
+    private static final SerializableString AMOUNT_TO = new SerializedString("amountTo");
+    private static final SerializableString CURRENCY_FROM = new SerializedString("currencyFrom");
+    private static final SerializableString CURRENCY_TO = new SerializedString("currencyTo");
+    private static final SerializableString OPERATION_TYPE = new SerializedString("operationType");
+
+    private ExchangeRequestJson() {
+    }
+
+    public static class Serializer extends StdSerializer<ExchangeRequest> {
+
+        public Serializer() {
+            super(ExchangeRequest.class);
+        }
+
+        @Override
+        public void serialize(ExchangeRequest value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            JsonValues.writeDecimal(gen, AMOUNT_FROM, value.getAmountFrom());
+            JsonValues.writeDecimal(gen, AMOUNT_TO, value.getAmountTo());
+            JsonValues.writeEnum(gen, CURRENCY_FROM, value.getCurrencyFrom());
+            JsonValues.writeEnum(gen, CURRENCY_TO, value.getCurrencyTo());
+            JsonValues.writeEnum(gen, OPERATION_TYPE, value.getOperationType());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<ExchangeRequest> {
+
+        public Deserializer() {
+            super(ExchangeRequest.class);
+        }
+
+        @Override
+        public ExchangeRequest deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            ExchangeRequest request = new ExchangeRequest();
+            for (String field = JsonValues.firstFieldName(p, ctxt, ExchangeRequest.class); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "amountFrom":
+                        request.setAmountFrom(JsonValues.readDecimal(p, ctxt));
+                        break;
+                    case "amountTo":
+                        request.setAmountTo(JsonValues.readDecimal(p, ctxt));
+                        break;
+                    case "currencyFrom":
+                        request.setCurrencyFrom(JsonValues.readCurrency(p, ctxt));
+                        break;
+                    case "currencyTo":
+                        request.setCurrencyTo(JsonValues.readCurrency(p, ctxt));
+                        break;
+                    case "operationType":
+                        request.setOperationType(JsonValues.readOperationType(p, ctxt));
+                        break;
+                    default:
+                        handleUnknownProperty(p, ctxt, request, field);
+                }
+            }
+            return request;
+        }
+    }
+}
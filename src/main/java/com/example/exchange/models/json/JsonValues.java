@@ -0,0 +1,128 @@
+package com.example.exchange.models.json;
+
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Value readers and writers shared by the hand-written DTO serializers. They accept the same input as the default
+ * bean deserializers: numbers or numeric strings for amounts, enum names for currencies and operation types.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    /**
+     * Name of the first field of the object, the parser may already be positioned on it.
+     */
+    static String firstFieldName(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        if (p.isExpectedStartObjectToken()) {
+            return p.nextFieldName();
+        }
+        if (p.hasToken(JsonToken.FIELD_NAME)) {
+            return p.getCurrentName();
+        }
+        if (!p.hasToken(JsonToken.END_OBJECT)) {
+            ctxt.handleUnexpectedToken(type, p);
+        }
+        return null;
+    }
+
+    static BigDecimal readDecimal(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return p.getDecimalValue();
+            case VALUE_STRING:
+                try {
+                    return new BigDecimal(p.getText().trim());
+                } catch (NumberFormatException ex) {
+                    throw ctxt.weirdStringException(p.getText(), BigDecimal.class, "not a valid representation");
+                }
+            case VALUE_NULL:
+                return null;
+            default:
+                return (BigDecimal) ctxt.handleUnexpectedToken(BigDecimal.class, p);
+        }
+    }
+
+    static Long readLong(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentToken()) {
+            case VALUE_NUMBER_INT:
+                return p.getLongValue();
+            case VALUE_STRING:
+                try {
+                    return Long.valueOf(p.getText().trim());
+                } catch (NumberFormatException ex) {
+                    throw ctxt.weirdStringException(p.getText(), Long.class, "not a valid representation");
+                }
+            case VALUE_NULL:
+                return null;
+            default:
+                return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+    }
+
+    static Currency readCurrency(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (p.currentToken() != JsonToken.VALUE_STRING) {
+            return (Currency) ctxt.handleUnexpectedToken(Currency.class, p);
+        }
+        Currency currency = Currency.fromCode(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        if (currency == null) {
+            throw ctxt.weirdStringException(p.getText(), Currency.class, "not one of the values accepted for Enum class");
+        }
+        return currency;
+    }
+
+    static OperationType readOperationType(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (p.currentToken() != JsonToken.VALUE_STRING) {
+            return (OperationType) ctxt.handleUnexpectedToken(OperationType.class, p);
+        }
+        OperationType operationType = OperationType.fromCode(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        if (operationType == null) {
+            throw ctxt.weirdStringException(p.getText(), OperationType.class, "not one of the values accepted for Enum class");
+        }
+        return operationType;
+    }
+
+    static void writeDecimal(JsonGenerator gen, SerializableString name, BigDecimal value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeLong(JsonGenerator gen, SerializableString name, Long value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeEnum(JsonGenerator gen, SerializableString name, Enum<?> value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value.name());
+        }
+    }
+}
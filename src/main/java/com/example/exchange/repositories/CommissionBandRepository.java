@@ -0,0 +1,20 @@
+package com.example.exchange.repositories;
+
+import com.example.exchange.models.entities.CommissionBandEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CommissionBandRepository extends JpaRepository<CommissionBandEntity, Long> {
+
+    List<CommissionBandEntity> findByTenant(String tenant, Sort sort);
+
+    @Modifying
+    @Query("delete from CommissionBandEntity e where e.tenant = ?1 and e.from = ?2 and e.to = ?3")
+    int deleteByTenantAndFromAndTo(String tenant, String from, String to);
+}
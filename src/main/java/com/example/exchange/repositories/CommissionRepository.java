@@ -1,13 +1,42 @@
 package com.example.exchange.repositories;
 
 import com.example.exchange.models.entities.CommissionEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CommissionRepository extends JpaRepository<CommissionEntity, Long> {
 
-    Optional<CommissionEntity> findByFromAndTo(String from, String to);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Optional<CommissionEntity> findByTenantAndFromAndTo(String tenant, String from, String to);
+
+    List<CommissionEntity> findByTenant(String tenant);
+
+    List<CommissionEntity> findByTenant(String tenant, Sort sort);
+
+    @Query("select e from CommissionEntity e where e.tenant = ?1 and (e.from > ?2 or e.from = ?2 and e.to > ?3) " +
+            "order by e.from, e.to")
+    List<CommissionEntity> findPageAfter(String tenant, String from, String to, Pageable pageable);
+
+    @Query("select e from CommissionEntity e where e.tenant = ?1 and e.from = ?2 and e.to > ?3 order by e.to")
+    List<CommissionEntity> findPageByFromAfter(String tenant, String from, String to, Pageable pageable);
+
+    @Query("select e from CommissionEntity e where e.tenant = ?1 and e.to = ?2 and e.from > ?3 order by e.from")
+    List<CommissionEntity> findPageByToAfter(String tenant, String to, String from, Pageable pageable);
+
+    @Query("select e from CommissionEntity e where e.tenant = ?1 order by e.id")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<CommissionEntity> streamByTenant(String tenant);
 }
@@ -1,13 +1,50 @@
 package com.example.exchange.repositories;
 
+import com.example.exchange.models.ExchangeQuote;
 import com.example.exchange.models.entities.ExchangeRateEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExchangeRateRepository extends JpaRepository<ExchangeRateEntity, Long> {
 
-    Optional<ExchangeRateEntity> findByFromAndTo(String from, String to);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Optional<ExchangeRateEntity> findByTenantAndFromAndTo(String tenant, String from, String to);
+
+    List<ExchangeRateEntity> findByTenant(String tenant);
+
+    List<ExchangeRateEntity> findByTenant(String tenant, Sort sort);
+
+    @Query("select new com.example.exchange.models.ExchangeQuote(e.from, e.to, e.rate, e.bid, e.ask, c.commissionPt) " +
+            "from ExchangeRateEntity e left join CommissionEntity c " +
+            "on c.tenant = e.tenant and c.from = e.from and c.to = e.to " +
+            "where e.tenant = ?1 and e.from = ?2 and e.to = ?3")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Optional<ExchangeQuote> findQuoteByTenantAndFromAndTo(String tenant, String from, String to);
+
+    @Query("select e from ExchangeRateEntity e where e.tenant = ?1 and (e.from > ?2 or e.from = ?2 and e.to > ?3) " +
+            "order by e.from, e.to")
+    List<ExchangeRateEntity> findPageAfter(String tenant, String from, String to, Pageable pageable);
+
+    @Query("select e from ExchangeRateEntity e where e.tenant = ?1 and e.from = ?2 and e.to > ?3 order by e.to")
+    List<ExchangeRateEntity> findPageByFromAfter(String tenant, String from, String to, Pageable pageable);
+
+    @Query("select e from ExchangeRateEntity e where e.tenant = ?1 and e.to = ?2 and e.from > ?3 order by e.from")
+    List<ExchangeRateEntity> findPageByToAfter(String tenant, String to, String from, Pageable pageable);
+
+    @Query("select e from ExchangeRateEntity e where e.tenant = ?1 order by e.id")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<ExchangeRateEntity> streamByTenant(String tenant);
 }
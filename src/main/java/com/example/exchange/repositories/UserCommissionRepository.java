@@ -0,0 +1,18 @@
+package com.example.exchange.repositories;
+
+import com.example.exchange.models.entities.UserCommissionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserCommissionRepository extends JpaRepository<UserCommissionEntity, Long> {
+
+    Optional<UserCommissionEntity> findByUserIdAndFromAndTo(Long userId, String from, String to);
+
+    @Query("select c from UserCommissionEntity c, UserEntity u where u.id = c.userId and u.tenant = ?1")
+    List<UserCommissionEntity> findByUserTenant(String tenant);
+}
@@ -2,12 +2,20 @@ package com.example.exchange.repositories;
 
 import com.example.exchange.models.entities.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
+    String QUERY_CACHE_REGION = "user-queries";
+
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = QUERY_CACHE_REGION)})
     Optional<UserEntity> findByUserName(String userName);
+
+    boolean existsByIdAndTenant(Long id, String tenant);
 }
@@ -1,8 +1,14 @@
 package com.example.exchange.services;
 
+import com.example.exchange.cache.CommissionTable;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.PairCursor;
+import com.example.exchange.models.UserCommission;
 import com.example.exchange.models.enums.Currency;
 import com.example.exchange.models.Commission;
 
+import org.springframework.data.domain.Slice;
+
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
@@ -10,7 +16,19 @@ import java.util.Optional;
 public interface CommissionService {
 
     List<Commission> getAllCommissions();
+    Slice<Commission> getCommissions(Currency from, Currency to, PairCursor after, int limit);
     Optional<Commission> getCommission(Currency from, Currency to);
     BigDecimal getCommissionCoefficient(Currency from, Currency to);
+    BigDecimal getCommissionCoefficient(Currency from, Currency to, BigDecimal amount);
+    BigDecimal getCommissionCoefficient(Long userId, Currency from, Currency to, BigDecimal amount);
+    BigDecimal getUserCommissionCoefficient(Long userId, Currency from, Currency to);
+    CommissionTable getCommissionTable();
     void setCommission(Commission commission) throws Exception;
+    List<CommissionBands> getAllCommissionBands();
+    void setCommissionBands(List<CommissionBands> commissionBands);
+    List<UserCommission> getAllUserCommissions();
+    void setUserCommission(UserCommission userCommission);
+    void removeUserCommission(Long userId, Currency from, Currency to);
+    void reloadCommissions();
+    long getConfirmedAt();
 }
@@ -1,72 +1,425 @@
 package com.example.exchange.services;
 
+import com.example.exchange.cache.CommissionTable;
+import com.example.exchange.cache.UserCommissionTable;
+import com.example.exchange.config.RetryOnConflict;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.JournalState;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.CommissionBand;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.PairCursor;
+import com.example.exchange.models.UserCommission;
+import com.example.exchange.models.entities.CommissionBandEntity;
+import com.example.exchange.models.entities.UserCommissionEntity;
 import com.example.exchange.models.enums.Currency;
 import com.example.exchange.exceptions.CommissionException;
+import com.example.exchange.exceptions.ErrorCode;
+import com.example.exchange.exceptions.ValidationErrors;
 import com.example.exchange.models.Commission;
 import com.example.exchange.models.entities.CommissionEntity;
+import com.example.exchange.repositories.CommissionBandRepository;
 import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import com.example.exchange.repositories.UserRepository;
+import com.example.exchange.tenant.TenantContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 public class CommissionServiceImpl implements CommissionService {
 
     private final CommissionRepository commissionRepository;
+    private final CommissionBandRepository commissionBandRepository;
+    private final UserCommissionRepository userCommissionRepository;
+    private final UserRepository userRepository;
+    private final AdminJournal adminJournal;
+    private final SnapshotFile snapshotFile;
+
+    private final Map<String, CommissionTable> commissionTables = new ConcurrentHashMap<>();
+    private final Set<String> journaledTenants = ConcurrentHashMap.newKeySet();
+    private volatile UserCommissionTable userCommissionTable = UserCommissionTable.EMPTY;
+    private final Map<String, Long> commissionsConfirmedAt = new ConcurrentHashMap<>();
+    private volatile long commissionsReloadedAt;
 
     @Autowired
-    public CommissionServiceImpl(CommissionRepository commissionRepository) {
+    public CommissionServiceImpl(CommissionRepository commissionRepository, CommissionBandRepository commissionBandRepository,
+                                 UserCommissionRepository userCommissionRepository, UserRepository userRepository,
+                                 AdminJournal adminJournal, SnapshotFile snapshotFile) {
         this.commissionRepository = commissionRepository;
+        this.commissionBandRepository = commissionBandRepository;
+        this.userCommissionRepository = userCommissionRepository;
+        this.userRepository = userRepository;
+        this.adminJournal = adminJournal;
+        this.snapshotFile = snapshotFile;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Commission> getAllCommissions() {
-        return commissionRepository.findAll().stream()
+        return commissionRepository.findByTenant(TenantContext.current()).stream()
                 .map(Commission::new)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Slice<Commission> getCommissions(Currency from, Currency to, PairCursor after, int limit) {
+        Pageable page = KeysetPages.request(limit);
+        String tenant = TenantContext.current();
+        List<CommissionEntity> entities;
+        if (from != null && to != null) {
+            // a single pair is the whole list, so any cursor is past it
+            entities = after != null
+                    ? Collections.emptyList()
+                    : commissionRepository.findByTenantAndFromAndTo(tenant, from.toString(), to.toString())
+                            .map(Collections::singletonList)
+                            .orElse(Collections.emptyList());
+        } else if (from != null) {
+            entities = commissionRepository.findPageByFromAfter(tenant, from.toString(),
+                    after == null ? "" : after.getTo(), page);
+        } else if (to != null) {
+            entities = commissionRepository.findPageByToAfter(tenant, to.toString(),
+                    after == null ? "" : after.getFrom(), page);
+        } else {
+            entities = after == null
+                    ? commissionRepository.findPageAfter(tenant, "", "", page)
+                    : commissionRepository.findPageAfter(tenant, after.getFrom(), after.getTo(), page);
+        }
+        return KeysetPages.slice(entities.stream()
+                .map(Commission::new)
+                .collect(Collectors.toList()), limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Commission> getCommission(Currency from, Currency to) {
-        Optional<CommissionEntity> optional = commissionRepository.findByFromAndTo(from.toString(), to.toString());
+        Optional<CommissionEntity> optional = commissionRepository.findByTenantAndFromAndTo(TenantContext.current(),
+                from.toString(), to.toString());
         return optional.map(Commission::new);
     }
 
     @Override
     public BigDecimal getCommissionCoefficient(Currency from, Currency to) {
-        Optional<Commission> optionalCommission = getCommission(from, to);
-        BigDecimal commissionPt;
-        if (optionalCommission.isPresent()) {
-            commissionPt = optionalCommission.get().getCommissionPt();
-        } else {
-            commissionPt = BigDecimal.ZERO;
-        }
-        return BigDecimal.ONE.subtract(commissionPt.divide(BigDecimal.valueOf(100), 5, BigDecimal.ROUND_DOWN));
+        return getCommissionTable().getCoefficient(from, to);
+    }
+
+    @Override
+    public BigDecimal getCommissionCoefficient(Currency from, Currency to, BigDecimal amount) {
+        return getCommissionTable().getCoefficient(from, to, amount);
     }
 
     @Override
+    public BigDecimal getCommissionCoefficient(Long userId, Currency from, Currency to, BigDecimal amount) {
+        BigDecimal userCoefficient = getUserCommissionCoefficient(userId, from, to);
+        return userCoefficient != null ? userCoefficient : getCommissionTable().getCoefficient(from, to, amount);
+    }
+
+    @Override
+    public BigDecimal getUserCommissionCoefficient(Long userId, Currency from, Currency to) {
+        return userId == null ? null : userCommissionTable.getCoefficient(userId, from, to);
+    }
+
+    @Override
+    public CommissionTable getCommissionTable() {
+        CommissionTable commissionTable = commissionTables.get(TenantContext.current());
+        return commissionTable != null ? commissionTable : CommissionTable.EMPTY;
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional
     public void setCommission(Commission commission) {
-        if (commission.getCommissionPt().compareTo(BigDecimal.ZERO) < 0) {
-            throw new CommissionException("Commission percent shouldn't be negative");
-        }
-        if (commission.getCommissionPt().compareTo(BigDecimal.valueOf(100)) >= 0) {
-            throw new CommissionException("Commission percent shouldn't be greater then 100 or equal");
-        }
+        validateCommissionPt(commission.getCommissionPt());
         if (commission.getFrom().equals(commission.getTo())) {
-            throw new CommissionException("Currencies From and To should be different");
+            throw ValidationErrors.commission(ErrorCode.SAME_CURRENCIES);
         }
-        Optional<CommissionEntity> optional = commissionRepository.findByFromAndTo(commission.getFrom().toString(),
-                commission.getTo().toString());
+        String tenant = TenantContext.current();
+        Optional<CommissionEntity> optional = commissionRepository.findByTenantAndFromAndTo(tenant,
+                commission.getFrom().toString(), commission.getTo().toString());
         if (optional.isPresent()) {
             CommissionEntity dbEntity = optional.get();
             dbEntity.setCommissionPt(commission.getCommissionPt());
             commissionRepository.saveAndFlush(dbEntity);
         } else {
-            commissionRepository.saveAndFlush(new CommissionEntity(commission));
+            commissionRepository.saveAndFlush(new CommissionEntity(tenant, commission));
+        }
+        TransactionHooks.aroundCommit(() -> adminJournal.appendCommission(tenant, commission), adminJournal::commit,
+                adminJournal::abort);
+        TransactionHooks.afterCommit(() -> reloadCommissionTable(tenant));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CommissionBands> getAllCommissionBands() {
+        return groupBands(commissionBandRepository.findByTenant(TenantContext.current(),
+                Sort.by("from", "to", "minAmount")));
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional
+    public void setCommissionBands(List<CommissionBands> commissionBands) {
+        String tenant = TenantContext.current();
+        for (CommissionBands pairBands : commissionBands) {
+            if (pairBands.getFrom().equals(pairBands.getTo())) {
+                throw ValidationErrors.commission(ErrorCode.SAME_CURRENCIES);
+            }
+            Set<BigDecimal> thresholds = new HashSet<>();
+            for (CommissionBand band : pairBands.getBands()) {
+                validateCommissionPt(band.getCommissionPt());
+                if (band.getMinAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                    throw new CommissionException("Band min amount should be greater than zero, commission for smaller "
+                            + "amounts is set as commission of the pair");
+                }
+                if (!thresholds.add(band.getMinAmount().stripTrailingZeros())) {
+                    throw new CommissionException("Duplicate band " + band.getMinAmount() + " for exchange from "
+                            + pairBands.getFrom() + " to " + pairBands.getTo());
+                }
+            }
+        }
+        // pairs are replaced in pairIndex order, so concurrent replacements of overlapping pairs don't deadlock
+        List<CommissionBands> byPair = new ArrayList<>(commissionBands);
+        byPair.sort(Comparator.comparingInt(pairBands -> Currency.pairIndex(pairBands.getFrom(), pairBands.getTo())));
+        List<CommissionBandEntity> entities = new ArrayList<>();
+        for (CommissionBands pairBands : byPair) {
+            commissionBandRepository.deleteByTenantAndFromAndTo(tenant, pairBands.getFrom().toString(),
+                    pairBands.getTo().toString());
+            for (CommissionBand band : pairBands.getBands()) {
+                entities.add(new CommissionBandEntity(null, tenant, pairBands.getFrom().toString(),
+                        pairBands.getTo().toString(), band.getMinAmount(), band.getCommissionPt()));
+            }
+        }
+        commissionBandRepository.saveAll(entities);
+        commissionBandRepository.flush();
+        TransactionHooks.aroundCommit(() -> adminJournal.appendCommissionBands(tenant, commissionBands),
+                adminJournal::commit, adminJournal::abort);
+        TransactionHooks.afterCommit(() -> reloadCommissionTable(tenant));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserCommission> getAllUserCommissions() {
+        return userCommissionRepository.findByUserTenant(TenantContext.current()).stream()
+                .map(UserCommission::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional
+    public void setUserCommission(UserCommission userCommission) {
+        validateCommissionPt(userCommission.getCommissionPt());
+        if (userCommission.getFrom().equals(userCommission.getTo())) {
+            throw ValidationErrors.commission(ErrorCode.SAME_CURRENCIES);
+        }
+        // users of other tenants are reported as missing
+        if (userCommission.getUserId() == null
+                || !userRepository.existsByIdAndTenant(userCommission.getUserId(), TenantContext.current())) {
+            throw new CommissionException("User " + userCommission.getUserId() + " doesn't exist");
+        }
+        Optional<UserCommissionEntity> optional = userCommissionRepository.findByUserIdAndFromAndTo(
+                userCommission.getUserId(), userCommission.getFrom().toString(), userCommission.getTo().toString());
+        if (optional.isPresent()) {
+            UserCommissionEntity dbEntity = optional.get();
+            dbEntity.setCommissionPt(userCommission.getCommissionPt());
+            userCommissionRepository.saveAndFlush(dbEntity);
+        } else {
+            userCommissionRepository.saveAndFlush(new UserCommissionEntity(null, userCommission.getUserId(),
+                    userCommission.getFrom().toString(), userCommission.getTo().toString(), userCommission.getCommissionPt()));
+        }
+        TransactionHooks.afterCommit(this::reloadUserCommissions);
+    }
+
+    @Override
+    @Transactional
+    public void removeUserCommission(Long userId, Currency from, Currency to) {
+        if (!userRepository.existsByIdAndTenant(userId, TenantContext.current())) {
+            return;
+        }
+        userCommissionRepository.findByUserIdAndFromAndTo(userId, from.toString(), to.toString())
+                .ifPresent(userCommissionRepository::delete);
+        TransactionHooks.afterCommit(this::reloadUserCommissions);
+    }
+
+    /**
+     * Commissions of every tenant are taken from the snapshot file or replayed from the admin journal, whichever holds
+     * the later journal sequence number, so the node can quote before the database answers, and are reconciled with
+     * the database by the first scheduled reload. When neither file has commissions they are loaded from the database. Per-user commissions
+     * aren't journaled.
+     */
+    @PostConstruct
+    public void recoverCommissions() {
+        JournalState snapshot = snapshotFile.getLoadedState();
+        JournalState journal = adminJournal.getRecoveredState();
+        Set<String> tenants = new TreeSet<>(snapshot.getTenants());
+        tenants.addAll(journal.getTenants());
+        for (String tenant : tenants) {
+            if (journal.hasCommissions(tenant)) {
+                journaledTenants.add(tenant);
+            }
+            // changes journaled after the snapshot was saved are newer than the snapshot
+            if (journal.hasCommissions(tenant) && (!snapshot.hasCommissions(tenant)
+                    || journal.getCommissionsSequence(tenant) > snapshot.getCommissionsSequence(tenant))) {
+                commissionsConfirmedAt.put(tenant, journal.getWrittenAt());
+                publishCommissions(tenant, journal.getCommissions(tenant), journal.getCommissionBands(tenant),
+                        journal.getCommissionsSequence(tenant));
+            } else if (snapshot.hasCommissions(tenant)) {
+                commissionsConfirmedAt.put(tenant, snapshot.getWrittenAt());
+                publishCommissions(tenant, snapshot.getCommissions(tenant), snapshot.getCommissionBands(tenant),
+                        snapshot.getCommissionsSequence(tenant));
+            }
+        }
+        if (commissionTables.isEmpty()) {
+            reloadCommissionTables();
+        }
+        if (snapshot.hasUserCommissions()) {
+            publishUserCommissions(snapshot.getUserCommissions());
+        } else {
+            reloadUserCommissions();
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.cache.reconcile-delay-ms:1000}",
+            fixedDelayString = "${app.cache.refresh-interval-ms:60000}")
+    public void reloadCommissions() {
+        reloadCommissionTables();
+        reloadUserCommissions();
+    }
+
+    /**
+     * Time the commissions of the current tenant were last confirmed by the database, tenants unknown to the last full
+     * reload were confirmed by that reload.
+     */
+    @Override
+    public long getConfirmedAt() {
+        return commissionsConfirmedAt.getOrDefault(TenantContext.current(), commissionsReloadedAt);
+    }
+
+    private void reloadCommissionTables() {
+        long sequence = adminJournal.getCommittedSequence();
+        Map<String, List<Commission>> commissions = new HashMap<>();
+        for (CommissionEntity entity : commissionRepository.findAll(Sort.by("id"))) {
+            commissions.computeIfAbsent(entity.getTenant(), tenant -> new ArrayList<>()).add(new Commission(entity));
+        }
+        Map<String, List<CommissionBandEntity>> bandEntities = new HashMap<>();
+        for (CommissionBandEntity entity : commissionBandRepository.findAll(Sort.by("id"))) {
+            bandEntities.computeIfAbsent(entity.getTenant(), tenant -> new ArrayList<>()).add(entity);
+        }
+        long confirmedAt = System.currentTimeMillis();
+        commissionsReloadedAt = confirmedAt;
+        // tenants without commissions left are emptied
+        Set<String> tenants = new HashSet<>(commissionTables.keySet());
+        tenants.add(TenantContext.DEFAULT_TENANT);
+        tenants.addAll(commissions.keySet());
+        tenants.addAll(bandEntities.keySet());
+        for (String tenant : tenants) {
+            List<Commission> tenantCommissions = commissions.getOrDefault(tenant, Collections.emptyList());
+            List<CommissionBands> tenantBands = groupBands(bandEntities.getOrDefault(tenant, Collections.emptyList()));
+            commissionsConfirmedAt.put(tenant, confirmedAt);
+            publishCommissions(tenant, tenantCommissions, tenantBands, sequence);
+            seedJournal(tenant, tenantCommissions, tenantBands);
+        }
+    }
+
+    /**
+     * Reloads the commissions of one tenant after a change, the tables of other tenants are left as they are.
+     */
+    private void reloadCommissionTable(String tenant) {
+        long sequence = adminJournal.getCommittedSequence();
+        List<Commission> commissions = commissionRepository.findByTenant(tenant, Sort.by("id")).stream()
+                .map(Commission::new)
+                .collect(Collectors.toList());
+        List<CommissionBands> commissionBands = groupBands(commissionBandRepository.findByTenant(tenant,
+                Sort.by("id")));
+        commissionsConfirmedAt.put(tenant, System.currentTimeMillis());
+        publishCommissions(tenant, commissions, commissionBands, sequence);
+        seedJournal(tenant, commissions, commissionBands);
+    }
+
+    /**
+     * Starts the journal of a tenant with a snapshot of its commissions, later changes are appended after it.
+     */
+    private void seedJournal(String tenant, List<Commission> commissions, List<CommissionBands> commissionBands) {
+        if (!journaledTenants.contains(tenant)) {
+            adminJournal.snapshotCommissions(tenant, commissions, commissionBands);
+            journaledTenants.add(tenant);
+        }
+    }
+
+    private void reloadUserCommissions() {
+        publishUserCommissions(userCommissionRepository.findAll(Sort.by("id")).stream()
+                .map(UserCommission::new)
+                .collect(Collectors.toList()));
+    }
+
+    private void publishCommissions(String tenant, List<Commission> commissions, List<CommissionBands> commissionBands,
+                                    long sequence) {
+        commissionTables.put(tenant, tableOf(commissions, commissionBands));
+        snapshotFile.saveCommissions(tenant, commissions, commissionBands, sequence);
+    }
+
+    private void publishUserCommissions(List<UserCommission> userCommissions) {
+        UserCommissionTable.Builder builder = UserCommissionTable.builder(userCommissions.size());
+        for (UserCommission userCommission : userCommissions) {
+            builder.commission(userCommission.getUserId(), userCommission.getFrom(), userCommission.getTo(),
+                    userCommission.getCommissionPt());
+        }
+        userCommissionTable = builder.build();
+        snapshotFile.saveUserCommissions(userCommissions);
+    }
+
+    private static List<CommissionBands> groupBands(List<CommissionBandEntity> entities) {
+        Map<String, CommissionBands> result = new LinkedHashMap<>();
+        for (CommissionBandEntity entity : entities) {
+            result.computeIfAbsent(entity.getFrom() + entity.getTo(), key -> new CommissionBands(
+                    Currency.valueOf(entity.getFrom()), Currency.valueOf(entity.getTo()), new ArrayList<>()))
+                    .getBands().add(new CommissionBand(entity));
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private static CommissionTable tableOf(List<Commission> commissions, List<CommissionBands> commissionBands) {
+        CommissionTable.Builder builder = CommissionTable.builder();
+        for (Commission commission : commissions) {
+            builder.commission(commission.getFrom(), commission.getTo(), commission.getCommissionPt());
+        }
+        for (CommissionBands pairBands : commissionBands) {
+            for (CommissionBand band : pairBands.getBands()) {
+                builder.band(pairBands.getFrom(), pairBands.getTo(), band.getMinAmount(), band.getCommissionPt());
+            }
+        }
+        return builder.build();
+    }
+
+    private static void validateCommissionPt(BigDecimal commissionPt) {
+        if (commissionPt.compareTo(BigDecimal.ZERO) < 0) {
+            throw ValidationErrors.commission(ErrorCode.COMMISSION_NEGATIVE);
+        }
+        if (commissionPt.compareTo(BigDecimal.valueOf(100)) >= 0) {
+            throw ValidationErrors.commission(ErrorCode.COMMISSION_TOO_LARGE);
         }
     }
 }
@@ -3,12 +3,15 @@ package com.example.exchange.services;
 import com.example.exchange.models.DataBaseUserPrincipal;
 import com.example.exchange.models.entities.UserEntity;
 import com.example.exchange.repositories.UserRepository;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.Optional;
 
 @Service
@@ -16,8 +19,11 @@ public class DataBaseUserDetailsService implements UserDetailsService {
 
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
 
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) {
         Optional<UserEntity> user = userRepository.findByUserName(username);
         if (user.isPresent()) {
@@ -26,4 +32,13 @@ public class DataBaseUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException(username);
         }
     }
+
+    /**
+     * Drops the cached users and user name lookups, so changes made directly in {@code service_users} apply to the
+     * next request instead of after the TTL of the {@code users} regions.
+     */
+    public void evictUsers() {
+        entityManagerFactory.getCache().evict(UserEntity.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(UserRepository.QUERY_CACHE_REGION);
+    }
 }
@@ -2,15 +2,29 @@ package com.example.exchange.services;
 
 import com.example.exchange.models.ExchangeRate;
 import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.PairCursor;
+import com.example.exchange.models.PortfolioValuation;
+import com.example.exchange.models.Position;
 import com.example.exchange.models.enums.Currency;
 
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
 public interface ExchangeService {
 
     ExchangeRequest calculateExchange(ExchangeRequest exchangeRequest);
+    ExchangeRequest calculateExchange(ExchangeRequest exchangeRequest, Long userId);
+    List<ExchangeRequest> calculateExchanges(Currency currencyFrom, BigDecimal amountFrom, Long userId);
+    PortfolioValuation valuePortfolio(Currency baseCurrency, List<Position> positions, Long userId);
     List<ExchangeRate> getAllExchangeRates();
+    Slice<ExchangeRate> getExchangeRates(Currency from, Currency to, PairCursor after, int limit);
     Optional<ExchangeRate> getExchangeRate(Currency from, Currency to);
     void setExchangeRate(ExchangeRate exchangeRate);
+    void setExchangeRates(List<ExchangeRate> exchangeRates);
+    void reloadExchangeRates();
+    long getStalenessMs();
+    boolean isRateStale(Currency from, Currency to);
 }
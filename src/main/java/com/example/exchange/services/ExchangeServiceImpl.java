@@ -1,125 +1,594 @@
 package com.example.exchange.services;
 
+import com.example.exchange.cache.CommissionTable;
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.QuoteTable;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.cache.RateMatrix;
+import com.example.exchange.config.RetryOnConflict;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.JournalState;
+import com.example.exchange.journal.SnapshotFile;
 import com.example.exchange.models.entities.ExchangeRateEntity;
 import com.example.exchange.models.enums.Currency;
 import com.example.exchange.models.enums.OperationType;
 import com.example.exchange.exceptions.ExchangeException;
+import com.example.exchange.exceptions.RatesUnavailableException;
+import com.example.exchange.exceptions.ErrorCode;
+import com.example.exchange.exceptions.ValidationErrors;
+import com.example.exchange.models.ExchangeQuote;
 import com.example.exchange.models.ExchangeRate;
 import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.PairCursor;
+import com.example.exchange.models.PortfolioValuation;
+import com.example.exchange.models.Position;
+import com.example.exchange.models.PositionValue;
 import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.tenant.TenantContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 public class ExchangeServiceImpl implements ExchangeService {
 
+    private static final Currency[] CURRENCIES = Currency.values();
+
     private final ExchangeRateRepository exchangeRateRepository;
     private final CommissionService commissionService;
+    private final QuotePolicy quotePolicy;
+    private final RateAgeLimits rateAgeLimits;
+    private final AdminJournal adminJournal;
+    private final SnapshotFile snapshotFile;
+
+    private final Map<String, RatePartition> partitions = new ConcurrentHashMap<>();
+    private final Set<String> journaledTenants = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> ratesConfirmedAt = new ConcurrentHashMap<>();
+    private volatile long ratesReloadedAt;
+
+    @Value("${app.cache.max-staleness-ms:0}")
+    private long maxStalenessMs;
 
     @Autowired
-    public ExchangeServiceImpl(ExchangeRateRepository exchangeRateRepository, CommissionService commissionService) {
+    public ExchangeServiceImpl(ExchangeRateRepository exchangeRateRepository, CommissionService commissionService,
+                               QuotePolicy quotePolicy, RateAgeLimits rateAgeLimits, AdminJournal adminJournal,
+                               SnapshotFile snapshotFile) {
         this.exchangeRateRepository = exchangeRateRepository;
         this.commissionService = commissionService;
+        this.quotePolicy = quotePolicy;
+        this.rateAgeLimits = rateAgeLimits;
+        this.adminJournal = adminJournal;
+        this.snapshotFile = snapshotFile;
     }
 
     @Override
     public ExchangeRequest calculateExchange(ExchangeRequest exchangeRequest) {
+        return calculateExchange(exchangeRequest, null);
+    }
+
+    @Override
+    public ExchangeRequest calculateExchange(ExchangeRequest exchangeRequest, Long userId) {
         if (exchangeRequest.getCurrencyFrom().equals(exchangeRequest.getCurrencyTo())) {
-            throw new ExchangeException("Currencies From and To should be different");
+            throw ValidationErrors.exchange(ErrorCode.SAME_CURRENCIES);
         }
+        checkStaleness();
 
-        Optional<ExchangeRate> optionalRate = getExchangeRate(exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo());
-        if (!optionalRate.isPresent()) {
-            throw new ExchangeException("This service doesn't support exchange between " + exchangeRequest.getCurrencyFrom() + " and " + exchangeRequest.getCurrencyTo());
+        // both operations sell currencyFrom to the service, so both are priced at the bid of the pair
+        QuoteTable quotes = quotes();
+        BigDecimal rate = quotes.getBid(exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo());
+        BigDecimal coefficient = commissionService.getUserCommissionCoefficient(userId,
+                exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo());
+        if (rate == null) {
+            // the pair may have been added on another node after the last reload, rate and commission are read
+            // with one query, amount bands of the pair are picked up by the next reload
+            ExchangeQuote quote = findQuote(TenantContext.current(), exchangeRequest.getCurrencyFrom(),
+                    exchangeRequest.getCurrencyTo())
+                    .orElseThrow(() -> ValidationErrors.exchange(ErrorCode.UNSUPPORTED_PAIR,
+                            exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo()));
+            rate = quote.getBid() != null ? quote.getBid() : quote.getRate();
+            if (coefficient == null) {
+                coefficient = quote.getCommissionPt() != null
+                        ? CommissionTable.coefficientOf(quote.getCommissionPt())
+                        : BigDecimal.ONE;
+            }
+        } else if (rateAgeLimits.isRejecting() && rateAgeLimits.isStale(quotes.getRates(),
+                exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo(), System.currentTimeMillis())) {
+            throw staleRate(exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo());
         }
 
-        BigDecimal commissionCoefficient = commissionService.getCommissionCoefficient(exchangeRequest.getCurrencyFrom(),
-                exchangeRequest.getCurrencyTo());
-
         if (exchangeRequest.getOperationType() == OperationType.GIVE) {
             if (exchangeRequest.getAmountFrom().compareTo(BigDecimal.ZERO) < 0
                     || exchangeRequest.getAmountFrom().compareTo(BigDecimal.ZERO) == 0) {
-                throw new ExchangeException("For operation " + exchangeRequest.getOperationType()
-                        + " amountFrom should be greater than zero");
+                throw ValidationErrors.exchange(ErrorCode.AMOUNT_FROM_NOT_POSITIVE);
             }
-            exchangeRequest.setAmountTo(
-                    exchangeRequest.getAmountFrom()
-                            .multiply(optionalRate.get().getRate())
-                            .multiply(commissionCoefficient)
-                            .setScale(2, BigDecimal.ROUND_DOWN)
-            );
+            BigDecimal multiplier = coefficient != null
+                    ? quotePolicy.multiplierOf(rate, coefficient)
+                    : quotes.getMultiplier(exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo(),
+                            exchangeRequest.getAmountFrom());
+            exchangeRequest.setAmountTo(quotePolicy.give(exchangeRequest.getAmountFrom(), multiplier));
 
         } else if (exchangeRequest.getOperationType() == OperationType.GET) {
             if (exchangeRequest.getAmountTo().compareTo(BigDecimal.ZERO) < 0
                     || exchangeRequest.getAmountTo().compareTo(BigDecimal.ZERO) == 0) {
-                throw new ExchangeException("For operation " + exchangeRequest.getOperationType()
-                        + " amountTo should be greater than zero");
+                throw ValidationErrors.exchange(ErrorCode.AMOUNT_TO_NOT_POSITIVE);
             }
-            BigDecimal divisor = optionalRate.get().getRate()
-                    .multiply(commissionCoefficient)
-                    .setScale(2, BigDecimal.ROUND_DOWN);
-            exchangeRequest.setAmountFrom(
-                    exchangeRequest.getAmountTo()
-                            .divide(divisor, BigDecimal.ROUND_DOWN)
-            );
+            BigDecimal divisor = coefficient != null
+                    ? quotePolicy.divisorOf(rate, coefficient)
+                    : quotes.getDivisor(exchangeRequest.getCurrencyFrom(), exchangeRequest.getCurrencyTo(),
+                            exchangeRequest.getAmountTo());
+            if (divisor.signum() == 0) {
+                throw ValidationErrors.exchange(ErrorCode.RATE_TOO_SMALL, exchangeRequest.getCurrencyFrom(),
+                        exchangeRequest.getCurrencyTo());
+            }
+            exchangeRequest.setAmountFrom(quotePolicy.get(exchangeRequest.getAmountTo(), divisor));
 
         } else {
-            throw new ExchangeException("Unsupported operation type: " + exchangeRequest.getOperationType());
+            throw ValidationErrors.exchange(ErrorCode.OPERATION_TYPE_MISSING);
         }
         return exchangeRequest;
     }
 
     @Override
+    public List<ExchangeRequest> calculateExchanges(Currency currencyFrom, BigDecimal amountFrom, Long userId) {
+        if (amountFrom == null || amountFrom.compareTo(BigDecimal.ZERO) <= 0) {
+            throw ValidationErrors.exchange(ErrorCode.AMOUNT_FROM_NOT_POSITIVE);
+        }
+        checkStaleness();
+
+        // only pairs of the current quote table are converted, pairs missing on this node are not looked up and
+        // pairs with refused stale rates are left out the same way
+        QuoteTable quotes = quotes();
+        BigDecimal[] multipliers = quotes.getMultipliers(currencyFrom, amountFrom);
+        boolean rejectStale = rateAgeLimits.isRejecting();
+        long now = System.currentTimeMillis();
+        List<ExchangeRequest> results = new ArrayList<>();
+        for (Currency currencyTo : CURRENCIES) {
+            BigDecimal multiplier = multipliers[currencyTo.ordinal()];
+            if (multiplier == null
+                    || rejectStale && rateAgeLimits.isStale(quotes.getRates(), currencyFrom, currencyTo, now)) {
+                continue;
+            }
+            BigDecimal coefficient = commissionService.getUserCommissionCoefficient(userId, currencyFrom, currencyTo);
+            if (coefficient != null) {
+                multiplier = quotePolicy.multiplierOf(quotes.getBid(currencyFrom, currencyTo), coefficient);
+            }
+            results.add(new ExchangeRequest(amountFrom, quotePolicy.give(amountFrom, multiplier), currencyFrom,
+                    currencyTo, OperationType.GIVE));
+        }
+        return results;
+    }
+
+    @Override
+    public PortfolioValuation valuePortfolio(Currency baseCurrency, List<Position> positions, Long userId) {
+        checkStaleness();
+        // decimal sums are exact, so grouping in parallel gives the same totals in any order
+        Map<Currency, BigDecimal> amounts = positions.parallelStream()
+                .map(ExchangeServiceImpl::validatePosition)
+                .collect(Collectors.groupingBy(Position::getCurrency, () -> new EnumMap<>(Currency.class),
+                        Collectors.reducing(BigDecimal.ZERO, Position::getAmount, BigDecimal::add)));
+
+        // every currency is valued with the same quotes, pairs missing on this node are not looked up
+        QuoteTable quotes = quotes();
+        List<PositionValue> values = new ArrayList<>(amounts.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Currency, BigDecimal> entry : amounts.entrySet()) {
+            BigDecimal value = valueOf(quotes, entry.getKey(), baseCurrency, entry.getValue(), userId);
+            values.add(new PositionValue(entry.getKey(), entry.getValue(), value));
+            total = total.add(value);
+        }
+        return new PortfolioValuation(baseCurrency, total, values);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<ExchangeRate> getAllExchangeRates() {
-        return exchangeRateRepository.findAll().stream()
+        return exchangeRateRepository.findByTenant(TenantContext.current()).stream()
                 .map(ExchangeRate::new)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Slice<ExchangeRate> getExchangeRates(Currency from, Currency to, PairCursor after, int limit) {
+        Pageable page = KeysetPages.request(limit);
+        String tenant = TenantContext.current();
+        List<ExchangeRateEntity> entities;
+        if (from != null && to != null) {
+            // a single pair is the whole list, so any cursor is past it
+            entities = after != null
+                    ? Collections.emptyList()
+                    : exchangeRateRepository.findByTenantAndFromAndTo(tenant, from.toString(), to.toString())
+                            .map(Collections::singletonList)
+                            .orElse(Collections.emptyList());
+        } else if (from != null) {
+            entities = exchangeRateRepository.findPageByFromAfter(tenant, from.toString(),
+                    after == null ? "" : after.getTo(), page);
+        } else if (to != null) {
+            entities = exchangeRateRepository.findPageByToAfter(tenant, to.toString(),
+                    after == null ? "" : after.getFrom(), page);
+        } else {
+            entities = after == null
+                    ? exchangeRateRepository.findPageAfter(tenant, "", "", page)
+                    : exchangeRateRepository.findPageAfter(tenant, after.getFrom(), after.getTo(), page);
+        }
+        return KeysetPages.slice(entities.stream()
+                .map(ExchangeRate::new)
+                .collect(Collectors.toList()), limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<ExchangeRate> getExchangeRate(Currency from, Currency to) {
-        Optional<ExchangeRateEntity> optional = exchangeRateRepository.findByFromAndTo(from.toString(), to.toString());
+        Optional<ExchangeRateEntity> optional = exchangeRateRepository.findByTenantAndFromAndTo(TenantContext.current(),
+                from.toString(), to.toString());
         return optional.map(ExchangeRate::new);
     }
 
     @Override
+    @RetryOnConflict
     @Transactional
     public void setExchangeRate(ExchangeRate exchangeRate) {
-        if (exchangeRate.getRate().compareTo(BigDecimal.ZERO) < 0
-                || exchangeRate.getRate().compareTo(BigDecimal.ZERO) == 0) {
-            throw new ExchangeException("Rate shouldn't be more than zero");
+        validateExchangeRate(exchangeRate);
+        exchangeRate.setUpdatedAt(System.currentTimeMillis());
+        String tenant = TenantContext.current();
+        ExchangeRate reverseExchangeRate = reverse(exchangeRate);
+        ExchangeRate first = exchangeRate;
+        ExchangeRate second = reverseExchangeRate;
+        if (Currency.pairIndex(exchangeRate.getFrom(), exchangeRate.getTo())
+                > Currency.pairIndex(exchangeRate.getTo(), exchangeRate.getFrom())) {
+            first = reverseExchangeRate;
+            second = exchangeRate;
         }
-        if (exchangeRate.getFrom().equals(exchangeRate.getTo())) {
-            throw new ExchangeException("Currencies From and To should be different");
-        }
-        Optional<ExchangeRateEntity> optionalGive = exchangeRateRepository.findByFromAndTo(exchangeRate.getFrom().toString(),
-                exchangeRate.getTo().toString());
-        if (optionalGive.isPresent()) {
-            ExchangeRateEntity dbEntity = optionalGive.get();
-            dbEntity.setRate(exchangeRate.getRate());
-            exchangeRateRepository.save(dbEntity);
-        } else {
-            exchangeRateRepository.save(new ExchangeRateEntity(exchangeRate));
-        }
-        Optional<ExchangeRateEntity> optionalGet = exchangeRateRepository.findByFromAndTo(exchangeRate.getTo().toString(),
-                exchangeRate.getFrom().toString());
-        BigDecimal reverseRate = BigDecimal.ONE.divide(exchangeRate.getRate(), 5, BigDecimal.ROUND_DOWN);
-        if (optionalGet.isPresent()) {
-            ExchangeRateEntity dbEntity = optionalGet.get();
-            dbEntity.setRate(reverseRate);
+        // both rows are read without locks and checked by their versions, a concurrent update of the pair or of its
+        // reverse fails the flush and the whole method is retried; the rows are flushed in pairIndex order whichever
+        // direction is set, so the row locks taken by the updates can't deadlock
+        Optional<ExchangeRateEntity> firstEntity = exchangeRateRepository.findByTenantAndFromAndTo(tenant,
+                first.getFrom().toString(), first.getTo().toString());
+        Optional<ExchangeRateEntity> secondEntity = exchangeRateRepository.findByTenantAndFromAndTo(tenant,
+                second.getFrom().toString(), second.getTo().toString());
+        writeExchangeRate(tenant, first, firstEntity);
+        writeExchangeRate(tenant, second, secondEntity);
+        TransactionHooks.aroundCommit(() -> adminJournal.appendExchangeRates(tenant, Arrays.asList(exchangeRate,
+                reverseExchangeRate)), adminJournal::commit, adminJournal::abort);
+        TransactionHooks.afterCommit(() -> reloadExchangeRates(tenant));
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional
+    public void setExchangeRates(List<ExchangeRate> exchangeRates) {
+        ExchangeRate[] pairs = new ExchangeRate[Currency.PAIRS];
+        String tenant = TenantContext.current();
+        long updatedAt = System.currentTimeMillis();
+        int row = 0;
+        for (ExchangeRate exchangeRate : exchangeRates) {
+            row++;
+            try {
+                validateExchangeRate(exchangeRate);
+            } catch (ExchangeException ex) {
+                throw new ExchangeException("Row " + row + ": " + ex.getMessage());
+            }
+            exchangeRate.setUpdatedAt(updatedAt);
+            pairs[Currency.pairIndex(exchangeRate.getFrom(), exchangeRate.getTo())] = exchangeRate;
+            pairs[Currency.pairIndex(exchangeRate.getTo(), exchangeRate.getFrom())] = reverse(exchangeRate);
+        }
+
+        ExchangeRateEntity[] entities = new ExchangeRateEntity[Currency.PAIRS];
+        for (ExchangeRateEntity entity : exchangeRateRepository.findByTenant(tenant)) {
+            entities[Currency.pairIndex(Currency.valueOf(entity.getFrom()), Currency.valueOf(entity.getTo()))] = entity;
+        }
+        List<ExchangeRate> journaled = new ArrayList<>();
+        List<ExchangeRateEntity> changed = new ArrayList<>();
+        for (int i = 0; i < Currency.PAIRS; i++) {
+            if (pairs[i] == null) {
+                continue;
+            }
+            journaled.add(pairs[i]);
+            if (entities[i] == null) {
+                changed.add(new ExchangeRateEntity(tenant, pairs[i]));
+            } else {
+                setSides(entities[i], pairs[i]);
+                changed.add(entities[i]);
+            }
+        }
+        exchangeRateRepository.saveAll(changed);
+        exchangeRateRepository.flush();
+        TransactionHooks.aroundCommit(() -> adminJournal.appendExchangeRates(tenant, journaled), adminJournal::commit,
+                adminJournal::abort);
+        TransactionHooks.afterCommit(() -> reloadExchangeRates(tenant));
+    }
+
+    private void writeExchangeRate(String tenant, ExchangeRate exchangeRate, Optional<ExchangeRateEntity> optional) {
+        if (optional.isPresent()) {
+            ExchangeRateEntity dbEntity = optional.get();
+            setSides(dbEntity, exchangeRate);
             exchangeRateRepository.saveAndFlush(dbEntity);
         } else {
-            ExchangeRate reverseExchangeRate = new ExchangeRate();
-            reverseExchangeRate.setFrom(exchangeRate.getTo());
-            reverseExchangeRate.setRate(reverseRate);
-            reverseExchangeRate.setTo(exchangeRate.getFrom());
-            exchangeRateRepository.saveAndFlush(new ExchangeRateEntity(reverseExchangeRate));
+            exchangeRateRepository.saveAndFlush(new ExchangeRateEntity(tenant, exchangeRate));
+        }
+    }
+
+    /**
+     * Rates of every tenant are taken from the snapshot file or replayed from the admin journal, whichever holds the
+     * later journal sequence number, so the node can quote before the database answers, and are reconciled with the
+     * database by the first scheduled reload. When neither file has rates they are loaded from the database.
+     */
+    @PostConstruct
+    public void recoverExchangeRates() {
+        JournalState snapshot = snapshotFile.getLoadedState();
+        JournalState journal = adminJournal.getRecoveredState();
+        Set<String> tenants = new TreeSet<>(snapshot.getTenants());
+        tenants.addAll(journal.getTenants());
+        for (String tenant : tenants) {
+            if (journal.hasExchangeRates(tenant)) {
+                journaledTenants.add(tenant);
+            }
+            // changes journaled after the snapshot was saved are newer than the snapshot
+            if (journal.hasExchangeRates(tenant) && (!snapshot.hasExchangeRates(tenant)
+                    || journal.getExchangeRatesSequence(tenant) > snapshot.getExchangeRatesSequence(tenant))) {
+                ratesConfirmedAt.put(tenant, journal.getWrittenAt());
+                publishExchangeRates(tenant, journal.getExchangeRates(tenant),
+                        journal.getExchangeRatesSequence(tenant));
+            } else if (snapshot.hasExchangeRates(tenant)) {
+                ratesConfirmedAt.put(tenant, snapshot.getWrittenAt());
+                publishExchangeRates(tenant, snapshot.getExchangeRates(tenant),
+                        snapshot.getExchangeRatesSequence(tenant));
+            }
+        }
+        if (partitions.isEmpty()) {
+            reloadExchangeRates();
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.cache.reconcile-delay-ms:1000}",
+            fixedDelayString = "${app.cache.refresh-interval-ms:60000}")
+    public void reloadExchangeRates() {
+        long sequence = adminJournal.getCommittedSequence();
+        Map<String, List<ExchangeRate>> exchangeRates = new HashMap<>();
+        for (ExchangeRateEntity entity : exchangeRateRepository.findAll(Sort.by("id"))) {
+            exchangeRates.computeIfAbsent(entity.getTenant(), tenant -> new ArrayList<>()).add(new ExchangeRate(entity));
+        }
+        long confirmedAt = System.currentTimeMillis();
+        ratesReloadedAt = confirmedAt;
+        // tenants without rates left are emptied
+        exchangeRates.putIfAbsent(TenantContext.DEFAULT_TENANT, Collections.emptyList());
+        for (String tenant : partitions.keySet()) {
+            exchangeRates.putIfAbsent(tenant, Collections.emptyList());
+        }
+        exchangeRates.forEach((tenant, rates) -> {
+            ratesConfirmedAt.put(tenant, confirmedAt);
+            publishExchangeRates(tenant, rates, sequence);
+        });
+        exchangeRates.forEach(this::seedJournal);
+    }
+
+    /**
+     * Reloads the rates of one tenant after a change, the partitions of other tenants are left as they are.
+     */
+    private void reloadExchangeRates(String tenant) {
+        long sequence = adminJournal.getCommittedSequence();
+        List<ExchangeRate> exchangeRates = exchangeRateRepository.findByTenant(tenant, Sort.by("id")).stream()
+                .map(ExchangeRate::new)
+                .collect(Collectors.toList());
+        ratesConfirmedAt.put(tenant, System.currentTimeMillis());
+        publishExchangeRates(tenant, exchangeRates, sequence);
+        seedJournal(tenant, exchangeRates);
+    }
+
+    /**
+     * Starts the journal of a tenant with a snapshot of its rates, later changes are appended after it.
+     */
+    private void seedJournal(String tenant, List<ExchangeRate> exchangeRates) {
+        if (!journaledTenants.contains(tenant)) {
+            adminJournal.snapshotExchangeRates(tenant, exchangeRates);
+            journaledTenants.add(tenant);
+        }
+    }
+
+    private void publishExchangeRates(String tenant, List<ExchangeRate> exchangeRates, long sequence) {
+        partitions.put(tenant, new RatePartition(matrixOf(exchangeRates)));
+        snapshotFile.saveExchangeRates(tenant, exchangeRates, sequence);
+    }
+
+    private static RateMatrix matrixOf(List<ExchangeRate> exchangeRates) {
+        RateMatrix.Builder builder = RateMatrix.builder();
+        for (ExchangeRate exchangeRate : exchangeRates) {
+            builder.rate(exchangeRate.getFrom(), exchangeRate.getTo(), exchangeRate.getBid(), exchangeRate.getAsk(),
+                    exchangeRate.getUpdatedAt());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Value of the amount in the base currency, rounded like the GIVE operation of {@link #calculateExchange}.
+     */
+    private BigDecimal valueOf(QuoteTable quotes, Currency currency, Currency baseCurrency, BigDecimal amount,
+                               Long userId) {
+        if (currency == baseCurrency || amount.signum() == 0) {
+            return quotePolicy.give(amount, BigDecimal.ONE);
+        }
+        BigDecimal rate = quotes.getBid(currency, baseCurrency);
+        if (rate == null) {
+            throw ValidationErrors.exchange(ErrorCode.UNSUPPORTED_PAIR, currency, baseCurrency);
+        }
+        if (rateAgeLimits.isRejecting()
+                && rateAgeLimits.isStale(quotes.getRates(), currency, baseCurrency, System.currentTimeMillis())) {
+            throw staleRate(currency, baseCurrency);
+        }
+        BigDecimal coefficient = commissionService.getUserCommissionCoefficient(userId, currency, baseCurrency);
+        BigDecimal multiplier = coefficient != null
+                ? quotePolicy.multiplierOf(rate, coefficient)
+                : quotes.getMultiplier(currency, baseCurrency, amount);
+        return quotePolicy.give(amount, multiplier);
+    }
+
+    /**
+     * Age of the rates and commissions of the current tenant, tenants unknown to the last full reload are as old as
+     * that reload.
+     */
+    @Override
+    public long getStalenessMs() {
+        long confirmedAt = ratesConfirmedAt.getOrDefault(TenantContext.current(), ratesReloadedAt);
+        return System.currentTimeMillis() - Math.min(confirmedAt, commissionService.getConfirmedAt());
+    }
+
+    @Override
+    public boolean isRateStale(Currency from, Currency to) {
+        return rateAgeLimits.isLimited() && rateAgeLimits.isStale(partition(TenantContext.current()).rateMatrix, from,
+                to, System.currentTimeMillis());
+    }
+
+    private static RatesUnavailableException staleRate(Currency from, Currency to) {
+        return new RatesUnavailableException("Rate between " + from + " and " + to + " is older than its age limit");
+    }
+
+    /**
+     * Refuses to quote from tables the database hasn't confirmed for longer than {@code app.cache.max-staleness-ms}.
+     */
+    private void checkStaleness() {
+        if (maxStalenessMs > 0 && getStalenessMs() > maxStalenessMs) {
+            throw new RatesUnavailableException("Rates weren't confirmed by the database for " + getStalenessMs()
+                    + " ms");
+        }
+    }
+
+    private Optional<ExchangeQuote> findQuote(String tenant, Currency from, Currency to) {
+        try {
+            return exchangeRateRepository.findQuoteByTenantAndFromAndTo(tenant, from.toString(), to.toString());
+        } catch (DataAccessResourceFailureException | CannotCreateTransactionException ex) {
+            throw new RatesUnavailableException("Rate between " + from + " and " + to + " isn't loaded and the "
+                    + "database is unavailable");
+        }
+    }
+
+    private static Position validatePosition(Position position) {
+        if (position == null || position.getCurrency() == null || position.getAmount() == null) {
+            throw ValidationErrors.exchange(ErrorCode.POSITION_INCOMPLETE);
+        }
+        if (position.getAmount().signum() < 0) {
+            throw ValidationErrors.exchange(ErrorCode.POSITION_NEGATIVE, position.getCurrency());
+        }
+        return position;
+    }
+
+    /**
+     * Quotes of the current tenant are rebuilt by the first request that sees a new rate matrix or commission table
+     * of the tenant.
+     */
+    private QuoteTable quotes() {
+        RatePartition partition = partition(TenantContext.current());
+        RateMatrix rates = partition.rateMatrix;
+        CommissionTable commissions = commissionService.getCommissionTable();
+        QuoteTable quotes = partition.quoteTable;
+        if (quotes == null || !quotes.isBuiltFrom(rates, commissions)) {
+            quotes = new QuoteTable(rates, commissions, quotePolicy);
+            partition.quoteTable = quotes;
+        }
+        return quotes;
+    }
+
+    private RatePartition partition(String tenant) {
+        RatePartition partition = partitions.get(tenant);
+        return partition != null
+                ? partition
+                : partitions.computeIfAbsent(tenant, key -> new RatePartition(RateMatrix.EMPTY));
+    }
+
+    /**
+     * Validates the rate and completes its sides: a rate without spread is quoted at the rate on both sides,
+     * a spread without rate is quoted at the middle of the spread.
+     */
+    private static void validateExchangeRate(ExchangeRate exchangeRate) {
+        if (exchangeRate.getFrom().equals(exchangeRate.getTo())) {
+            throw ValidationErrors.exchange(ErrorCode.SAME_CURRENCIES);
+        }
+        if ((exchangeRate.getBid() == null) != (exchangeRate.getAsk() == null)) {
+            throw new ExchangeException("Bid and ask should be set together");
+        }
+        if (exchangeRate.getBid() != null) {
+            if (exchangeRate.getBid().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new ExchangeException("Bid should be more than zero");
+            }
+            if (exchangeRate.getAsk().compareTo(exchangeRate.getBid()) < 0) {
+                throw new ExchangeException("Ask shouldn't be less than bid");
+            }
+            if (exchangeRate.getRate() == null) {
+                exchangeRate.setRate(exchangeRate.getBid().add(exchangeRate.getAsk())
+                        .divide(BigDecimal.valueOf(2), 5, BigDecimal.ROUND_DOWN));
+            }
+        }
+        if (exchangeRate.getRate() == null
+                || exchangeRate.getRate().compareTo(BigDecimal.ZERO) < 0
+                || exchangeRate.getRate().compareTo(BigDecimal.ZERO) == 0) {
+            throw new ExchangeException("Rate shouldn't be more than zero");
+        }
+        if (exchangeRate.getBid() != null && (exchangeRate.getRate().compareTo(exchangeRate.getBid()) < 0
+                || exchangeRate.getRate().compareTo(exchangeRate.getAsk()) > 0)) {
+            throw new ExchangeException("Rate should be between bid and ask");
+        }
+        if (exchangeRate.getBid() == null) {
+            exchangeRate.setBid(exchangeRate.getRate());
+            exchangeRate.setAsk(exchangeRate.getRate());
+        }
+    }
+
+    /**
+     * Reverse pair is bought where the pair is sold: its bid is the inverted ask and its ask is the inverted bid.
+     */
+    private static ExchangeRate reverse(ExchangeRate exchangeRate) {
+        ExchangeRate reverseExchangeRate = new ExchangeRate(exchangeRate.getTo(), reverseRate(exchangeRate.getRate()),
+                exchangeRate.getFrom());
+        reverseExchangeRate.setBid(reverseRate(exchangeRate.getAsk()));
+        reverseExchangeRate.setAsk(reverseRate(exchangeRate.getBid()));
+        reverseExchangeRate.setUpdatedAt(exchangeRate.getUpdatedAt());
+        return reverseExchangeRate;
+    }
+
+    private static void setSides(ExchangeRateEntity entity, ExchangeRate exchangeRate) {
+        entity.setRate(exchangeRate.getRate());
+        entity.setBid(exchangeRate.getBid());
+        entity.setAsk(exchangeRate.getAsk());
+        entity.setUpdatedAt(exchangeRate.getUpdatedAt());
+    }
+
+    private static BigDecimal reverseRate(BigDecimal rate) {
+        return BigDecimal.ONE.divide(rate, 5, BigDecimal.ROUND_DOWN);
+    }
+
+    /**
+     * Rates of one tenant. A reload replaces the partition of its tenant only, so quotes of other tenants keep their
+     * quote tables.
+     */
+    private static final class RatePartition {
+
+        private final RateMatrix rateMatrix;
+        private volatile QuoteTable quoteTable;
+
+        private RatePartition(RateMatrix rateMatrix) {
+            this.rateMatrix = rateMatrix;
         }
     }
 }
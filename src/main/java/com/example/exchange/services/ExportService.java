@@ -0,0 +1,12 @@
+package com.example.exchange.services;
+
+import com.example.exchange.models.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    void exportExchangeRates(String tenant, ExportFormat format, OutputStream out) throws IOException;
+    void exportCommissions(String tenant, ExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,156 @@
+package com.example.exchange.services;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.entities.CommissionEntity;
+import com.example.exchange.models.entities.ExchangeRateEntity;
+import com.example.exchange.models.enums.ExportFormat;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streams tables row by row from a database cursor straight into the response, so memory use doesn't depend on the
+ * table size. Every {@link #CHUNK_SIZE} rows the persistence context is cleared and the output is flushed as a chunk.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final CommissionRepository commissionRepository;
+    private final ObjectWriter exchangeRateWriter;
+    private final ObjectWriter commissionWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public ExportServiceImpl(ExchangeRateRepository exchangeRateRepository, CommissionRepository commissionRepository,
+                             ObjectMapper objectMapper) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.commissionRepository = commissionRepository;
+        this.exchangeRateWriter = objectMapper.writerFor(ExchangeRate.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.commissionWriter = objectMapper.writerFor(Commission.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportExchangeRates(String tenant, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ExchangeRateEntity> rows = exchangeRateRepository.streamByTenant(tenant)) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(rows, "from,to,rate,bid,ask,updatedAt", (entity, writer) -> {
+                    writer.write(entity.getFrom());
+                    writer.write(',');
+                    writer.write(entity.getTo());
+                    writer.write(',');
+                    writer.write(entity.getRate().toPlainString());
+                    writer.write(',');
+                    writeDecimal(entity.getBid(), writer);
+                    writer.write(',');
+                    writeDecimal(entity.getAsk(), writer);
+                    writer.write(',');
+                    if (entity.getUpdatedAt() != null) {
+                        writer.write(Long.toString(entity.getUpdatedAt()));
+                    }
+                }, out);
+            } else {
+                writeNdjson(rows, ExchangeRate::new, exchangeRateWriter, out);
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCommissions(String tenant, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<CommissionEntity> rows = commissionRepository.streamByTenant(tenant)) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(rows, "from,to,commissionPt", (entity, writer) -> {
+                    writer.write(entity.getFrom());
+                    writer.write(',');
+                    writer.write(entity.getTo());
+                    writer.write(',');
+                    writer.write(entity.getCommissionPt().toPlainString());
+                }, out);
+            } else {
+                writeNdjson(rows, Commission::new, commissionWriter, out);
+            }
+        }
+    }
+
+    /**
+     * Writes an empty field for rows stored before the column existed.
+     */
+    private static void writeDecimal(BigDecimal value, Writer writer) throws IOException {
+        if (value != null) {
+            writer.write(value.toPlainString());
+        }
+    }
+
+    private <T> void writeCsv(Stream<T> rows, String header, CsvRowWriter<T> rowWriter, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(header);
+        writer.write('\n');
+        int count = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            rowWriter.write(iterator.next(), writer);
+            writer.write('\n');
+            if (++count % CHUNK_SIZE == 0) {
+                entityManager.clear();
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private <T, D> void writeNdjson(Stream<T> rows, Function<T, D> mapper, ObjectWriter objectWriter, OutputStream out)
+            throws IOException {
+        JsonGenerator generator = objectWriter.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        int count = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            objectWriter.writeValue(generator, mapper.apply(iterator.next()));
+            if (++count % CHUNK_SIZE == 0) {
+                entityManager.clear();
+                generator.flush();
+            }
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    @FunctionalInterface
+    private interface CsvRowWriter<T> {
+
+        void write(T row, Writer writer) throws IOException;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.exchange.services;
+
+import com.example.exchange.exceptions.ExchangeException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+/**
+ * Pages of lists ordered by currency pair. A page query reads one row more than the limit to find out whether there
+ * is a next page without counting the rows.
+ */
+final class KeysetPages {
+
+    static final int MAX_LIMIT = 1000;
+
+    private KeysetPages() {
+    }
+
+    static Pageable request(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ExchangeException("Page limit should be between 1 and " + MAX_LIMIT);
+        }
+        return PageRequest.of(0, limit + 1);
+    }
+
+    static <T> Slice<T> slice(List<T> rows, int limit) {
+        boolean hasNext = rows.size() > limit;
+        return new SliceImpl<>(hasNext ? rows.subList(0, limit) : rows, PageRequest.of(0, limit), hasNext);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.exchange.services;
+
+import com.example.exchange.exceptions.ExchangeException;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.enums.Currency;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses vendor rate feed with lines {@code FROM,TO,RATE} (for example {@code EUR,USD,1.08250}). Empty lines and
+ * lines starting with {@code #} are skipped. The file is memory-mapped and parsed byte by byte, so no String is
+ * created per line.
+ */
+public final class RateFeedParser {
+
+    private static final int MAX_DIGITS = 18;
+
+    private RateFeedParser() {
+    }
+
+    public static List<ExchangeRate> parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ExchangeException("Rate feed " + file + " is too large: " + size + " bytes");
+            }
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public static List<ExchangeRate> parse(ByteBuffer buffer) {
+        List<ExchangeRate> rates = new ArrayList<>();
+        int limit = buffer.limit();
+        int start = buffer.position();
+        int line = 0;
+        while (start < limit) {
+            line++;
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start && buffer.get(start) != '#') {
+                rates.add(parseLine(buffer, start, end, line));
+            }
+            start = next;
+        }
+        return rates;
+    }
+
+    private static ExchangeRate parseLine(ByteBuffer buffer, int start, int end, int line) {
+        if (end - start < 9 || buffer.get(start + 3) != ',' || buffer.get(start + 7) != ',') {
+            throw lineError(line, "expected FROM,TO,RATE");
+        }
+        Currency from = currency(buffer, start, line);
+        Currency to = currency(buffer, start + 4, line);
+        return new ExchangeRate(from, decimal(buffer, start + 8, end, line), to);
+    }
+
+    private static Currency currency(ByteBuffer buffer, int offset, int line) {
+        Currency currency = Currency.fromCode(buffer.get(offset), buffer.get(offset + 1), buffer.get(offset + 2));
+        if (currency == null) {
+            throw lineError(line, "unknown currency at position " + (offset + 1));
+        }
+        return currency;
+    }
+
+    private static BigDecimal decimal(ByteBuffer buffer, int offset, int end, int line) {
+        boolean negative = buffer.get(offset) == '-';
+        if (negative) {
+            offset++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = offset; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    throw lineError(line, "rate has too many digits");
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                throw lineError(line, "rate is not a number");
+            }
+        }
+        if (digits == 0) {
+            throw lineError(line, "rate is empty");
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    private static ExchangeException lineError(int line, String message) {
+        return new ExchangeException("Rate feed line " + line + ": " + message);
+    }
+}
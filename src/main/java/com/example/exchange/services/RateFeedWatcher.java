@@ -0,0 +1,97 @@
+package com.example.exchange.services;
+
+import com.example.exchange.exceptions.ExchangeException;
+import com.example.exchange.models.ExchangeRate;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Polls {@code app.rate-feed.directory} for {@code *.csv} rate feeds. Every file is applied in one transaction and
+ * then renamed to {@code *.csv.done}, or to {@code *.csv.failed} when it has invalid rows or can't be applied. Files
+ * modified less than {@code app.rate-feed.settle-ms} ago are considered still being written. When the database is
+ * unavailable the file is left in place and the poll stops, so later feeds don't overtake it.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(prefix = "app.rate-feed", name = "directory")
+public class RateFeedWatcher {
+
+    private final ExchangeService exchangeService;
+    private final Path directory;
+    private final long settleMs;
+
+    @Autowired
+    public RateFeedWatcher(ExchangeService exchangeService,
+                           @Value("${app.rate-feed.directory}") String directory,
+                           @Value("${app.rate-feed.settle-ms:2000}") long settleMs) {
+        this.exchangeService = exchangeService;
+        this.directory = Paths.get(directory);
+        this.settleMs = settleMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-feed.poll-interval-ms:10000}")
+    public void poll() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream
+                    .filter(path -> path.getFileName().toString().endsWith(".csv"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException ex) {
+            log.error("Can't list rate feed directory " + directory + ": " + ex.getMessage());
+            return;
+        }
+        long settled = System.currentTimeMillis() - settleMs;
+        for (Path file : files) {
+            try {
+                if (Files.getLastModifiedTime(file).toMillis() <= settled) {
+                    ingest(file);
+                }
+            } catch (IOException ex) {
+                log.error("Can't read rate feed " + file + ": " + ex.getMessage());
+            } catch (DataAccessException | TransactionException ex) {
+                log.warn("Rate feed " + file + " is left for the next poll, the database is unavailable: "
+                        + ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    public void ingest(Path file) throws IOException {
+        log.info("Ingesting rate feed " + file);
+        try {
+            List<ExchangeRate> rates = RateFeedParser.parse(file);
+            exchangeService.setExchangeRates(rates);
+            log.info(rates.size() + " rates were applied from " + file);
+            rename(file, ".done");
+        } catch (ExchangeException ex) {
+            log.error("Rate feed " + file + " was rejected: " + ex.getMessage());
+            rename(file, ".failed");
+        } catch (RuntimeException ex) {
+            if (ex instanceof DataAccessException || ex instanceof TransactionException) {
+                throw ex;
+            }
+            log.error("Rate feed " + file + " failed", ex);
+            rename(file, ".failed");
+        }
+    }
+
+    private void rename(Path file, String suffix) throws IOException {
+        Files.move(file, file.resolveSibling(file.getFileName() + suffix), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
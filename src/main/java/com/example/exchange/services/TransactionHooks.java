@@ -0,0 +1,80 @@
+package com.example.exchange.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Runs the action before the current transaction is committed, or right away when there is no transaction.
+     * An exception thrown by the action rolls the transaction back.
+     */
+    public static void beforeCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the action after the current transaction is committed, or right away when there is no transaction.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the action before the current transaction is committed like {@link #beforeCommit} and hands its result to
+     * {@code committed} or {@code rolledBack} once the transaction is complete. Without a transaction the action and
+     * {@code committed} run right away.
+     */
+    public static void aroundCommit(LongSupplier action, LongConsumer committed, LongConsumer rolledBack) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed.accept(action.getAsLong());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean done;
+            private long result;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                result = action.getAsLong();
+                done = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!done) {
+                    return;
+                }
+                if (status == STATUS_COMMITTED) {
+                    committed.accept(result);
+                } else {
+                    rolledBack.accept(result);
+                }
+            }
+        });
+    }
+}
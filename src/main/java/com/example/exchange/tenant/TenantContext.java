@@ -0,0 +1,32 @@
+package com.example.exchange.tenant;
+
+/**
+ * Tenant (branch) whose rates and commissions the current thread reads and changes. Requests take the tenant of the
+ * authenticated user, everything else, like scheduled reloads and the rate feed, works on the default tenant.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    public static boolean isDefault(String tenant) {
+        return DEFAULT_TENANT.equals(tenant);
+    }
+
+    public static void enter(String tenant) {
+        CURRENT.set(tenant);
+    }
+
+    public static void exit() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.exchange.tenant;
+
+import com.example.exchange.models.DataBaseUserPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handlers are invoked after the security filters, so the tenant is taken from the authenticated principal. Other
+ * principals, like in-memory test users, belong to the default tenant. A request that continues asynchronously, like a
+ * streamed export, clears the tenant of the request thread when the handler returns, since
+ * {@link #afterCompletion} isn't called on that thread.
+ */
+@Component
+public class TenantInterceptor implements AsyncHandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Object principal = authentication == null ? null : authentication.getPrincipal();
+        TenantContext.enter(principal instanceof DataBaseUserPrincipal
+                ? ((DataBaseUserPrincipal) principal).getUser().getTenant()
+                : TenantContext.DEFAULT_TENANT);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        TenantContext.exit();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        TenantContext.exit();
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.exchange;
+
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.JournalState;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBand;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.services.CommissionService;
+import com.example.exchange.services.ExchangeServiceImpl;
+import com.example.exchange.tenant.TenantContext;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AdminJournalTests {
+
+    private static final String DEFAULT = TenantContext.DEFAULT_TENANT;
+    private static final String BRANCH = "branch";
+    private static final long COMPACT_BYTES = 16 * 1024 * 1024;
+
+    @Test
+    public void replayTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03600", Currency.USD)));
+        journal.snapshotCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("2.50"),
+                Currency.UAH, Currency.USD)), Collections.emptyList());
+        journal.commit(journal.appendExchangeRates(DEFAULT, Arrays.asList(rate(Currency.UAH, "0.03700", Currency.USD),
+                rate(Currency.USD, "27.02702", Currency.UAH))));
+        journal.commit(journal.appendCommission(DEFAULT, new Commission(new BigDecimal("1.25"), Currency.UAH,
+                Currency.USD)));
+        journal.commit(journal.appendCommissionBands(DEFAULT, Collections.singletonList(new CommissionBands(Currency.UAH,
+                Currency.USD, Collections.singletonList(new CommissionBand(new BigDecimal("1000.00"),
+                new BigDecimal("0.50")))))));
+        journal.close();
+        long size = Files.size(file);
+
+        JournalState state = open(file).getRecoveredState();
+
+        Assertions.assertThat(state.hasExchangeRates(DEFAULT))
+                .isTrue();
+        Assertions.assertThat(state.getExchangeRates(DEFAULT))
+                .containsExactlyInAnyOrder(rate(Currency.UAH, "0.03700", Currency.USD),
+                        rate(Currency.USD, "27.02702", Currency.UAH));
+        Assertions.assertThat(state.hasCommissions(DEFAULT))
+                .isTrue();
+        Assertions.assertThat(state.getCommissions(DEFAULT))
+                .containsExactly(new Commission(new BigDecimal("1.25"), Currency.UAH, Currency.USD));
+        Assertions.assertThat(state.getCommissionBands(DEFAULT))
+                .containsExactly(new CommissionBands(Currency.UAH, Currency.USD,
+                        Collections.singletonList(new CommissionBand(new BigDecimal("1000.00"), new BigDecimal("0.50")))));
+        // replayed updates are folded into snapshots
+        Assertions.assertThat(Files.size(file))
+                .isLessThan(size);
+    }
+
+    @Test
+    public void tornTailTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03600", Currency.USD)));
+        long sequence = journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700",
+                Currency.USD)));
+        long valid = Files.size(file);
+        journal.commit(sequence);
+        journal.close();
+        // the commit record is torn, so the change is skipped
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        journal = open(file);
+
+        Assertions.assertThat(journal.getRecoveredState().getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03600", Currency.USD));
+        Assertions.assertThat(Files.size(file))
+                .isEqualTo(valid);
+        journal.commit(journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03800",
+                Currency.USD))));
+        journal.close();
+        Assertions.assertThat(open(file).getRecoveredState().getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03800", Currency.USD));
+    }
+
+    @Test
+    public void corruptedRecordTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03600", Currency.USD)));
+        journal.commit(journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700",
+                Currency.USD))));
+        journal.close();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        Assertions.assertThat(open(file).getRecoveredState().getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03600", Currency.USD));
+    }
+
+    @Test
+    public void groupCommitTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        int appends = 400;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < appends; i++) {
+            Commission commission = new Commission(BigDecimal.valueOf(i, 2), Currency.fromOfPair(i % Currency.PAIRS),
+                    Currency.toOfPair(i % Currency.PAIRS));
+            futures.add(CompletableFuture.runAsync(() -> journal.commit(journal.appendCommission(DEFAULT, commission)),
+                    executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+        journal.close();
+
+        Assertions.assertThat(journal.getSyncCount())
+                .isBetween(1L, 2L * appends);
+        JournalState state = open(file).getRecoveredState();
+        Assertions.assertThat(state.getCommissions(DEFAULT))
+                .hasSize(Currency.PAIRS);
+        // updates without a snapshot are replayed but don't recover the commissions
+        Assertions.assertThat(state.hasCommissions(DEFAULT))
+                .isFalse();
+    }
+
+    @Test
+    public void rateUpdateTimeTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        ExchangeRate timed = rate(Currency.UAH, "0.03700", Currency.USD);
+        timed.setUpdatedAt(1600000000000L);
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Arrays.asList(timed, rate(Currency.USD, "27.02702", Currency.UAH)));
+        journal.close();
+
+        Assertions.assertThat(open(file).getRecoveredState().getExchangeRates(DEFAULT))
+                .extracting(ExchangeRate::getUpdatedAt)
+                .containsExactlyInAnyOrder(1600000000000L, null);
+    }
+
+    @Test
+    public void tenantsTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03600", Currency.USD)));
+        journal.snapshotCommissions(DEFAULT, Collections.emptyList(), Collections.emptyList());
+        journal.snapshotExchangeRates(BRANCH, Collections.singletonList(rate(Currency.UAH, "0.03650", Currency.USD)));
+        journal.snapshotCommissions(BRANCH, Collections.singletonList(new Commission(new BigDecimal("1.50"),
+                Currency.UAH, Currency.USD)), Collections.emptyList());
+        journal.commit(journal.appendExchangeRates(BRANCH, Collections.singletonList(rate(Currency.UAH, "0.03750",
+                Currency.USD))));
+        journal.close();
+        // the first replay compacts the journal, the second one reads the compacted journal
+        open(file).close();
+
+        JournalState state = open(file).getRecoveredState();
+
+        Assertions.assertThat(state.getTenants())
+                .containsExactly(BRANCH, DEFAULT);
+        Assertions.assertThat(state.getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03600", Currency.USD));
+        Assertions.assertThat(state.getExchangeRates(BRANCH))
+                .containsExactly(rate(Currency.UAH, "0.03750", Currency.USD));
+        Assertions.assertThat(state.hasCommissions(DEFAULT))
+                .isTrue();
+        Assertions.assertThat(state.getCommissions(DEFAULT))
+                .isEmpty();
+        Assertions.assertThat(state.getCommissions(BRANCH))
+                .containsExactly(new Commission(new BigDecimal("1.50"), Currency.UAH, Currency.USD));
+    }
+
+    @Test
+    public void uncommittedChangeTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03600", Currency.USD)));
+        journal.commit(journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700",
+                Currency.USD))));
+        journal.abort(journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03800",
+                Currency.USD))));
+        // the transaction of the last change neither committed nor rolled back before the crash
+        journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03900", Currency.USD)));
+        journal.close();
+
+        Assertions.assertThat(open(file).getRecoveredState().getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03700", Currency.USD));
+    }
+
+    @Test
+    public void runtimeCompactionTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = new AdminJournal(file.toString(), 4096);
+        journal.open();
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03600", Currency.USD)));
+        journal.snapshotCommissions(DEFAULT, Collections.emptyList(), Collections.emptyList());
+        long inFlight = journal.appendExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700",
+                Currency.USD)));
+        for (int i = 1; i <= 500; i++) {
+            journal.commit(journal.appendCommission(DEFAULT, new Commission(BigDecimal.valueOf(i, 2), Currency.UAH,
+                    Currency.USD)));
+        }
+        // committed after the compactions, which kept the change of the open transaction
+        journal.commit(inFlight);
+        journal.close();
+
+        Assertions.assertThat(journal.getCompactionCount())
+                .isPositive();
+        Assertions.assertThat(Files.size(file))
+                .isLessThan(2 * 4096);
+        JournalState state = open(file).getRecoveredState();
+        Assertions.assertThat(state.getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03700", Currency.USD));
+        Assertions.assertThat(state.getCommissions(DEFAULT))
+                .containsExactly(new Commission(new BigDecimal("5.00"), Currency.UAH, Currency.USD));
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        AdminJournal journal = new AdminJournal("", COMPACT_BYTES);
+        journal.open();
+
+        journal.appendCommission(DEFAULT, new Commission(new BigDecimal("1.25"), Currency.UAH, Currency.USD));
+
+        Assertions.assertThat(journal.isEnabled())
+                .isFalse();
+        Assertions.assertThat(journal.getRecoveredState().hasCommissions(DEFAULT))
+                .isFalse();
+    }
+
+    @Test
+    public void recoverExchangeRatesTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("admin.journal");
+        AdminJournal journal = open(file);
+        journal.snapshotExchangeRates(DEFAULT, Arrays.asList(rate(Currency.UAH, "0.03600", Currency.USD),
+                rate(Currency.USD, "27.00000", Currency.UAH)));
+        journal.close();
+        ExchangeRateRepository repositoryMock = Mockito.mock(ExchangeRateRepository.class);
+        CommissionService commissionServiceMock = Mockito.mock(CommissionService.class);
+        ExchangeServiceImpl service = new ExchangeServiceImpl(repositoryMock, commissionServiceMock, QuotePolicy.DEFAULT,
+                RateAgeLimits.NONE, open(file), new SnapshotFile(""));
+
+        service.recoverExchangeRates();
+
+        Mockito.verifyNoInteractions(repositoryMock);
+    }
+
+    private static AdminJournal open(Path file) throws Exception {
+        AdminJournal journal = new AdminJournal(file.toString(), COMPACT_BYTES);
+        journal.open();
+        return journal;
+    }
+
+    private static ExchangeRate rate(Currency from, String rate, Currency to) {
+        ExchangeRate exchangeRate = new ExchangeRate(from, new BigDecimal(rate), to);
+        exchangeRate.setBid(exchangeRate.getRate());
+        exchangeRate.setAsk(exchangeRate.getRate());
+        return exchangeRate;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.exchange;
+
+import com.example.exchange.controllers.ExchangeController;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.entities.CommissionBandEntity;
+import com.example.exchange.models.entities.CommissionEntity;
+import com.example.exchange.models.entities.ExchangeRateEntity;
+import com.example.exchange.models.entities.UserCommissionEntity;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.repositories.CommissionBandRepository;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import com.example.exchange.repositories.UserRepository;
+import com.example.exchange.services.CommissionServiceImpl;
+import com.example.exchange.services.ExchangeService;
+import com.example.exchange.services.ExchangeServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * Guards hot paths against allocation creep: every operation is warmed up, then run in a loop while the allocation
+ * counter of the current thread is read before and after. Budgets are kept in {@code allocation-budgets.properties}.
+ */
+@Tag("allocation")
+@ActiveProfiles("test")
+@SpringBootTest
+public class AllocationBudgetTests {
+
+    private static final int WARM_UP = 50_000;
+    private static final int ITERATIONS = 20_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Properties BUDGETS = new Properties();
+
+    @Autowired
+    private ExchangeController exchangeController;
+    @Autowired
+    private ExchangeService exchangeService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    public static void loadBudgets() throws IOException {
+        Assumptions.assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "Thread allocation counters are not supported");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        try (InputStream in = AllocationBudgetTests.class.getResourceAsStream("/allocation-budgets.properties")) {
+            BUDGETS.load(in);
+        }
+    }
+
+    @Test
+    public void commissionCoefficientTest() {
+        CommissionServiceImpl commissionService = commissionService();
+        BigDecimal amount = new BigDecimal("1500.00");
+
+        assertBudget("commission.coefficient",
+                () -> commissionService.getCommissionCoefficient(null, Currency.UAH, Currency.USD, amount));
+        assertBudget("commission.coefficient.user",
+                () -> commissionService.getCommissionCoefficient(7L, Currency.UAH, Currency.USD, amount));
+    }
+
+    @Test
+    public void calculateExchangeTest() {
+        ExchangeRateRepository exchangeRateRepository = Mockito.mock(ExchangeRateRepository.class);
+        Mockito.when(exchangeRateRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new ExchangeRateEntity(1L, Currency.UAH.toString(),
+                        new BigDecimal("0.03700"), Currency.USD.toString())));
+        ExchangeServiceImpl service = new ExchangeServiceImpl(exchangeRateRepository, commissionService(), QuotePolicy.DEFAULT,
+                RateAgeLimits.NONE, Mockito.mock(AdminJournal.class), Mockito.mock(SnapshotFile.class));
+        service.reloadExchangeRates();
+        ExchangeRequest give = new ExchangeRequest(new BigDecimal("1500.00"), null, Currency.UAH, Currency.USD,
+                OperationType.GIVE);
+        ExchangeRequest get = new ExchangeRequest(null, new BigDecimal("50.00"), Currency.UAH, Currency.USD,
+                OperationType.GET);
+
+        assertBudget("exchange.calculate.give", () -> service.calculateExchange(give));
+        assertBudget("exchange.calculate.get", () -> service.calculateExchange(get));
+    }
+
+    @Test
+    public void controllerExchangeTest() throws Exception {
+        exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.18000"), Currency.USD));
+        byte[] body = objectMapper.writeValueAsBytes(new ExchangeRequest(new BigDecimal("100.00"), null, Currency.EUR,
+                Currency.USD, OperationType.GIVE));
+
+        assertBudget("controller.exchange", () -> {
+            try {
+                ExchangeRequest request = objectMapper.readValue(body, ExchangeRequest.class);
+                return objectMapper.writeValueAsBytes(exchangeController.exchangeRequest(request, null));
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    private static CommissionServiceImpl commissionService() {
+        CommissionRepository commissionRepository = Mockito.mock(CommissionRepository.class);
+        CommissionBandRepository commissionBandRepository = Mockito.mock(CommissionBandRepository.class);
+        UserCommissionRepository userCommissionRepository = Mockito.mock(UserCommissionRepository.class);
+        Mockito.when(commissionRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionEntity(1L, new BigDecimal("3.00"),
+                        Currency.UAH.toString(), Currency.USD.toString())));
+        Mockito.when(commissionBandRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionBandEntity(1L, Currency.UAH.toString(),
+                        Currency.USD.toString(), new BigDecimal("1000.00"), new BigDecimal("2.00"))));
+        Mockito.when(userCommissionRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new UserCommissionEntity(1L, 7L, Currency.UAH.toString(),
+                        Currency.USD.toString(), new BigDecimal("1.00"))));
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(commissionRepository, commissionBandRepository,
+                userCommissionRepository, Mockito.mock(UserRepository.class), Mockito.mock(AdminJournal.class),
+                Mockito.mock(SnapshotFile.class));
+        commissionService.reloadCommissions();
+        return commissionService;
+    }
+
+    private static void assertBudget(String name, Operation operation) {
+        long budget = Long.parseLong(BUDGETS.getProperty(name));
+        Object sink = null;
+        for (int i = 0; i < WARM_UP; i++) {
+            sink = operation.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = operation.run();
+        }
+        long perOperation = (THREADS.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+        Assertions.assertThat(sink).isNotNull();
+        Assertions.assertThat(perOperation)
+                .as("bytes allocated per operation by %s (%d bytes/op, budget %d)", name, perOperation, budget)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.exchange;
+
+import com.example.exchange.config.AuthThrottle;
+import com.example.exchange.config.FailedAttemptCounter;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class AuthThrottleTests {
+
+    @Test
+    public void countInWindowTest() {
+        FailedAttemptCounter counter = new FailedAttemptCounter(16, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            counter.recordFailure("mallory", 10_500);
+        }
+
+        Assertions.assertThat(counter.getFailures("mallory", 10_999)).isEqualTo(3);
+        Assertions.assertThat(counter.getFailures("alice", 10_999)).isLessThanOrEqualTo(3);
+        Assertions.assertThat(counter.getFailures("mallory", 11_000)).isZero();
+        counter.recordFailure("mallory", 11_000);
+        Assertions.assertThat(counter.getFailures("mallory", 11_000)).isEqualTo(1);
+    }
+
+    @Test
+    public void throttleUserTest() {
+        AuthThrottle throttle = new AuthThrottle(true, 100, 3, 60000, 1024);
+        MockHttpServletRequest mallory = basicRequest("10.0.0.1", "mallory:guess");
+        MockHttpServletRequest alice = basicRequest("10.0.0.1", "alice:secret");
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(throttle.isThrottled(mallory)).isFalse();
+            throttle.recordFailure(mallory);
+        }
+
+        Assertions.assertThat(throttle.isThrottled(mallory)).isTrue();
+        Assertions.assertThat(throttle.isThrottled(alice)).isFalse();
+    }
+
+    @Test
+    public void acceptUserFromOtherAddressTest() {
+        AuthThrottle throttle = new AuthThrottle(true, 100, 3, 60000, 1024);
+
+        // wrong passwords sent in alice's name from another client
+        for (int i = 0; i < 10; i++) {
+            throttle.recordFailure(basicRequest("10.0.0.1", "alice:guess" + i));
+        }
+
+        Assertions.assertThat(throttle.isThrottled(basicRequest("10.0.0.1", "alice:guess"))).isTrue();
+        Assertions.assertThat(throttle.isThrottled(basicRequest("10.0.0.2", "alice:secret"))).isFalse();
+    }
+
+    @Test
+    public void throttleAddressTest() {
+        AuthThrottle throttle = new AuthThrottle(true, 3, 100, 60000, 1024);
+
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure(basicRequest("10.0.0.1", "user" + i + ":guess"));
+        }
+
+        Assertions.assertThat(throttle.isThrottled(basicRequest("10.0.0.1", "alice:secret"))).isTrue();
+        Assertions.assertThat(throttle.isThrottled(basicRequest("10.0.0.2", "alice:secret"))).isFalse();
+    }
+
+    private static MockHttpServletRequest basicRequest(String address, String credentials) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Basic "
+                + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        return request;
+    }
+}
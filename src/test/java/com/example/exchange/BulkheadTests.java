@@ -0,0 +1,164 @@
+package com.example.exchange;
+
+import com.example.exchange.bulkhead.Bulkhead;
+import com.example.exchange.bulkhead.BulkheadFilter;
+import com.example.exchange.bulkhead.BulkheadProperties;
+import com.example.exchange.bulkhead.Bulkheads;
+import com.example.exchange.bulkhead.EndpointClass;
+import com.example.exchange.bulkhead.EndpointClassCallableInterceptor;
+import com.example.exchange.bulkhead.EndpointClassFilter;
+import com.example.exchange.models.BulkheadStatistics;
+import com.zaxxer.hikari.HikariConfig;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.FilterChain;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkheadTests {
+
+    private final BulkheadProperties properties = new BulkheadProperties();
+    private Bulkheads bulkheads;
+
+    @AfterEach
+    public void close() {
+        if (bulkheads != null) {
+            bulkheads.close();
+        }
+    }
+
+    @Test
+    public void acquireTest() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(2, 1, 10);
+
+        Assertions.assertThat(bulkhead.acquire()).isTrue();
+        Assertions.assertThat(bulkhead.acquire()).isTrue();
+        // the queue has room, but no permit is released before the wait times out
+        Assertions.assertThat(bulkhead.acquire()).isFalse();
+        bulkhead.release();
+        Assertions.assertThat(bulkhead.acquire()).isTrue();
+
+        Assertions.assertThat(bulkhead.getActive()).isEqualTo(2);
+        Assertions.assertThat(bulkhead.getWaiting()).isZero();
+        Assertions.assertThat(bulkhead.getPeakWaiting()).isEqualTo(1);
+        Assertions.assertThat(bulkhead.getAccepted()).isEqualTo(3);
+        Assertions.assertThat(bulkhead.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    public void endpointClassTest() {
+        Assertions.assertThat(EndpointClass.of("POST", "/api/exchange")).isEqualTo(EndpointClass.QUOTE);
+        Assertions.assertThat(EndpointClass.of("GET", "/api/exchange/all")).isEqualTo(EndpointClass.QUOTE);
+        Assertions.assertThat(EndpointClass.of("POST", "/api/portfolio/valuation")).isEqualTo(EndpointClass.QUOTE);
+        Assertions.assertThat(EndpointClass.of("GET", "/api/exchange-rates")).isEqualTo(EndpointClass.LIST);
+        Assertions.assertThat(EndpointClass.of("POST", "/api/exchange-rates")).isEqualTo(EndpointClass.ADMIN);
+        Assertions.assertThat(EndpointClass.of("GET", "/api/user-commissions")).isEqualTo(EndpointClass.ADMIN);
+        Assertions.assertThat(EndpointClass.of("GET", "/api/admin/latency")).isEqualTo(EndpointClass.ADMIN);
+    }
+
+    @Test
+    public void rejectTest() throws Exception {
+        properties.getQuote().setMaxConcurrent(1);
+        properties.getQuote().setMaxWaiting(0);
+        bulkheads = new Bulkheads(properties);
+        BulkheadFilter filter = new BulkheadFilter(bulkheads);
+        bulkheads.get(EndpointClass.QUOTE).acquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/exchange"), response,
+                (request, ignored) -> Assertions.fail("Request should be rejected"));
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(503);
+        Assertions.assertThat(response.getContentAsString()).contains("QUOTE");
+        // other classes keep their permits
+        MockHttpServletResponse listResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/exchange-rates"), listResponse, (request, ignored) -> {
+        });
+        Assertions.assertThat(listResponse.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void asyncReleaseTest() throws Exception {
+        bulkheads = new Bulkheads(properties);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/exchange-rates/export");
+        request.setAsyncSupported(true);
+
+        filter(request, (servletRequest, servletResponse) -> servletRequest.startAsync());
+
+        // the export is still streamed, so the permit is held while the request thread is cleared
+        Assertions.assertThat(bulkheads.get(EndpointClass.LIST).getActive()).isEqualTo(1);
+        Assertions.assertThat(EndpointClass.current()).isNull();
+        EndpointClassCallableInterceptor interceptor = new EndpointClassCallableInterceptor();
+        ServletWebRequest webRequest = new ServletWebRequest(request);
+        interceptor.preProcess(webRequest, () -> null);
+        Assertions.assertThat(EndpointClass.current()).isEqualTo(EndpointClass.LIST);
+        interceptor.postProcess(webRequest, () -> null, null);
+        Assertions.assertThat(EndpointClass.current()).isNull();
+
+        request.getAsyncContext().complete();
+
+        Assertions.assertThat(bulkheads.get(EndpointClass.LIST).getActive()).isZero();
+    }
+
+    @Test
+    public void partitionTest() throws Exception {
+        properties.getQuote().setPoolSize(3);
+        bulkheads = new Bulkheads(properties);
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bulkheads;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        DataSource dataSource = bulkheads.partition(config);
+        AtomicInteger lookupConnections = new AtomicInteger();
+        AtomicInteger lookupPermits = new AtomicInteger();
+        AtomicInteger quoteConnections = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            try (Connection ignored = dataSource.getConnection()) {
+                quoteConnections.set(statisticsOf(EndpointClass.QUOTE).getActiveConnections());
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+
+        // the user lookup of authentication runs between the two filters
+        new EndpointClassFilter(bulkheads).doFilter(new MockHttpServletRequest("POST", "/api/exchange"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    try (Connection ignored = dataSource.getConnection()) {
+                        lookupConnections.set(statisticsOf(EndpointClass.QUOTE).getActiveConnections());
+                        lookupPermits.set(bulkheads.get(EndpointClass.QUOTE).getActive());
+                    } catch (Exception ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                    new BulkheadFilter(bulkheads).doFilter(request, response, chain);
+                });
+
+        Assertions.assertThat(lookupConnections.get()).isEqualTo(1);
+        Assertions.assertThat(lookupPermits.get()).isZero();
+        Assertions.assertThat(quoteConnections.get()).isEqualTo(1);
+        Assertions.assertThat(statisticsOf(EndpointClass.QUOTE).getPoolSize()).isEqualTo(3);
+        // connections outside of API requests come from the list pool
+        try (Connection ignored = dataSource.getConnection()) {
+            Assertions.assertThat(statisticsOf(EndpointClass.LIST).getActiveConnections()).isEqualTo(1);
+            Assertions.assertThat(statisticsOf(EndpointClass.QUOTE).getActiveConnections()).isZero();
+        }
+    }
+
+    private void filter(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        new EndpointClassFilter(bulkheads).doFilter(request, new MockHttpServletResponse(),
+                (servletRequest, servletResponse) -> new BulkheadFilter(bulkheads).doFilter(servletRequest,
+                        servletResponse, chain));
+    }
+
+    private BulkheadStatistics statisticsOf(EndpointClass endpointClass) {
+        return bulkheads.report().stream()
+                .filter(statistics -> statistics.getEndpointClass().equals(endpointClass.name()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.exchange;
+
+import com.example.exchange.config.CircuitBreaker;
+import com.example.exchange.config.RepositoryCircuitBreakerAspect;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+public class CircuitBreakerTests {
+
+    @Test
+    public void openAfterThresholdTest() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 60000);
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThat(breaker.allow()).isTrue();
+            breaker.onFailure();
+        }
+        // a success resets the consecutive failures
+        Assertions.assertThat(breaker.allow()).isTrue();
+        breaker.onSuccess();
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(breaker.allow()).isTrue();
+            breaker.onFailure();
+        }
+
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        Assertions.assertThat(breaker.allow()).isFalse();
+        Assertions.assertThat(breaker.getCalls()).isEqualTo(6);
+        Assertions.assertThat(breaker.getFailures()).isEqualTo(5);
+        Assertions.assertThat(breaker.getRejected()).isEqualTo(1);
+        Assertions.assertThat(breaker.getOpened()).isEqualTo(1);
+    }
+
+    @Test
+    public void halfOpenProbeTest() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 20);
+        breaker.allow();
+        breaker.onFailure();
+        Thread.sleep(30);
+
+        Assertions.assertThat(breaker.allow()).isTrue();
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        // only one probe at a time
+        Assertions.assertThat(breaker.allow()).isFalse();
+        breaker.onFailure();
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        Thread.sleep(30);
+        Assertions.assertThat(breaker.allow()).isTrue();
+        breaker.onSuccess();
+
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        Assertions.assertThat(breaker.allow()).isTrue();
+        Assertions.assertThat(breaker.getOpened()).isEqualTo(2);
+    }
+
+    @Test
+    public void lateSuccessKeepsOpenTest() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 60000);
+        breaker.allow();
+        breaker.allow();
+        breaker.onFailure();
+
+        breaker.onSuccess();
+
+        Assertions.assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void repositoryBreakersTest() {
+        RepositoryCircuitBreakerAspect aspect = new RepositoryCircuitBreakerAspect();
+        ReflectionTestUtils.setField(aspect, "failureThreshold", 1);
+        ReflectionTestUtils.setField(aspect, "openMs", 60000L);
+        UserCommissionRepository userCommissionRepositoryMock = Mockito.mock(UserCommissionRepository.class);
+        Mockito.when(userCommissionRepositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenThrow(new CannotCreateTransactionException("Connection refused"));
+        AspectJProxyFactory factory = new AspectJProxyFactory(userCommissionRepositoryMock);
+        factory.addAspect(aspect);
+        UserCommissionRepository userCommissionRepository = factory.getProxy();
+
+        Assertions.assertThatExceptionOfType(CannotCreateTransactionException.class)
+                .isThrownBy(() -> userCommissionRepository.findAll(Sort.by("id")));
+
+        Assertions.assertThat(aspect.isClosed(UserCommissionRepository.class)).isFalse();
+        // quotes aren't marked by the breakers of repositories they don't read
+        Assertions.assertThat(aspect.isClosed(ExchangeRateRepository.class, CommissionRepository.class)).isTrue();
+    }
+}
@@ -1,28 +1,50 @@
 package com.example.exchange;
 
 import com.example.exchange.exceptions.CommissionException;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.SnapshotFile;
 import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBand;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.UserCommission;
+import com.example.exchange.models.entities.CommissionBandEntity;
 import com.example.exchange.models.entities.CommissionEntity;
+import com.example.exchange.models.entities.UserCommissionEntity;
 import com.example.exchange.models.enums.Currency;
+import com.example.exchange.repositories.CommissionBandRepository;
 import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import com.example.exchange.repositories.UserRepository;
 import com.example.exchange.services.CommissionServiceImpl;
+import com.example.exchange.tenant.TenantContext;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 import java.util.stream.Collectors;
 
+@SuppressWarnings("unchecked")
 public class CommissionServiceTests {
 
     private final Random random = new Random();
     private final CommissionRepository repositoryMock = Mockito.mock(CommissionRepository.class);
-    private final CommissionServiceImpl service = new CommissionServiceImpl(repositoryMock);
+    private final CommissionBandRepository bandRepositoryMock = Mockito.mock(CommissionBandRepository.class);
+    private final UserCommissionRepository userCommissionRepositoryMock = Mockito.mock(UserCommissionRepository.class);
+    private final UserRepository userRepositoryMock = Mockito.mock(UserRepository.class);
+    private final AdminJournal adminJournalMock = Mockito.mock(AdminJournal.class);
+    private final SnapshotFile snapshotFileMock = Mockito.mock(SnapshotFile.class);
+    private final CommissionServiceImpl service = new CommissionServiceImpl(repositoryMock, bandRepositoryMock,
+            userCommissionRepositoryMock, userRepositoryMock, adminJournalMock,
+            snapshotFileMock);
 
     @Test
     public void getAllCommissionsTest() {
@@ -35,7 +57,7 @@ public class CommissionServiceTests {
                 Currency.UAH.toString(), Currency.EUR.toString()));
         data.add(new CommissionEntity(4L, BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN),
                 Currency.EUR.toString(), Currency.UAH.toString()));
-        Mockito.when(repositoryMock.findAll())
+        Mockito.when(repositoryMock.findByTenant(TenantContext.DEFAULT_TENANT))
                 .thenReturn(data);
 
         List<Commission> result = service.getAllCommissions();
@@ -49,13 +71,13 @@ public class CommissionServiceTests {
                         .collect(Collectors.toList()));
 
         Mockito.verify(repositoryMock)
-                .findAll();
+                .findByTenant(TenantContext.DEFAULT_TENANT);
     }
 
     @Test
     public void getAllCommissionsEmptyTest() {
         List<CommissionEntity> data = new ArrayList<>(0);
-        Mockito.when(repositoryMock.findAll())
+        Mockito.when(repositoryMock.findByTenant(TenantContext.DEFAULT_TENANT))
                 .thenReturn(data);
 
         List<Commission> result = service.getAllCommissions();
@@ -65,14 +87,14 @@ public class CommissionServiceTests {
                 .isEmpty();
 
         Mockito.verify(repositoryMock)
-                .findAll();
+                .findByTenant(TenantContext.DEFAULT_TENANT);
     }
 
     @Test
     public void getCommissionTest() {
         CommissionEntity data = new CommissionEntity(1L, BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN),
                 Currency.UAH.toString(), Currency.USD.toString());
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString()))
                 .thenReturn(Optional.of(data));
 
         Optional<Commission> result = service.getCommission(Currency.UAH, Currency.USD);
@@ -83,12 +105,12 @@ public class CommissionServiceTests {
                 .get().isEqualTo(new Commission(data));
 
         Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
     public void getCommissionNotFoundTest() {
-        Mockito.when(repositoryMock.findByFromAndTo(Mockito.any(), Mockito.any()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.empty());
 
         Optional<Commission> result = service.getCommission(Currency.UAH, Currency.USD);
@@ -98,15 +120,16 @@ public class CommissionServiceTests {
                 .isNotPresent();
 
         Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
     public void getCommissionCoefficientTest() {
         CommissionEntity data = new CommissionEntity(1L, BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN),
                 Currency.UAH.toString(), Currency.USD.toString());
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
-                .thenReturn(Optional.of(data));
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadCommissions();
 
         BigDecimal result = service.getCommissionCoefficient(Currency.UAH, Currency.USD);
 
@@ -118,16 +141,173 @@ public class CommissionServiceTests {
                 .isGreaterThan(BigDecimal.ZERO)
                 .isLessThanOrEqualTo(BigDecimal.ONE)
                 .isEqualByComparingTo(expected);
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.USD, Currency.UAH))
+                .isEqualByComparingTo(BigDecimal.ONE);
 
-        Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void getCommissionCoefficientByBandTest() {
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionEntity(1L, new BigDecimal("3.00"),
+                        Currency.UAH.toString(), Currency.USD.toString())));
+        List<CommissionBandEntity> bands = new ArrayList<>();
+        bands.add(new CommissionBandEntity(1L, Currency.UAH.toString(), Currency.USD.toString(), new BigDecimal("10000.00"),
+                new BigDecimal("1.00")));
+        bands.add(new CommissionBandEntity(2L, Currency.UAH.toString(), Currency.USD.toString(), new BigDecimal("1000.00"),
+                new BigDecimal("2.00")));
+        bands.add(new CommissionBandEntity(3L, Currency.EUR.toString(), Currency.USD.toString(), new BigDecimal("500.00"),
+                new BigDecimal("0.50")));
+        Mockito.when(bandRepositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(bands);
+        service.reloadCommissions();
+
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD, new BigDecimal("0.01")))
+                .isEqualByComparingTo("0.97");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD, new BigDecimal("999.99")))
+                .isEqualByComparingTo("0.97");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD, new BigDecimal("1000")))
+                .isEqualByComparingTo("0.98");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD, new BigDecimal("9999.999")))
+                .isEqualByComparingTo("0.98");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD, new BigDecimal("10000.00")))
+                .isEqualByComparingTo("0.99");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD, new BigDecimal("1E+9")))
+                .isEqualByComparingTo("0.99");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.UAH, Currency.USD))
+                .isEqualByComparingTo("0.97");
+        // pair without commission of its own is free below the first band
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.EUR, Currency.USD, new BigDecimal("100")))
+                .isEqualByComparingTo(BigDecimal.ONE);
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.EUR, Currency.USD, new BigDecimal("500")))
+                .isEqualByComparingTo("0.995");
+        Assertions.assertThat(service.getCommissionCoefficient(Currency.USD, Currency.EUR, new BigDecimal("500")))
+                .isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void getUserCommissionCoefficientTest() {
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionEntity(1L, new BigDecimal("3.00"),
+                        Currency.UAH.toString(), Currency.USD.toString())));
+        Mockito.when(bandRepositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionBandEntity(1L, Currency.UAH.toString(),
+                        Currency.USD.toString(), new BigDecimal("1000.00"), new BigDecimal("2.00"))));
+        List<UserCommissionEntity> userCommissions = new ArrayList<>();
+        for (long userId = 1; userId <= 20000; userId++) {
+            userCommissions.add(new UserCommissionEntity(userId, userId, Currency.UAH.toString(), Currency.USD.toString(),
+                    BigDecimal.valueOf(userId % 100, 2)));
+        }
+        userCommissions.add(new UserCommissionEntity(20001L, 7L, Currency.EUR.toString(), Currency.USD.toString(),
+                new BigDecimal("0.50")));
+        Mockito.when(userCommissionRepositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(userCommissions);
+        service.reloadCommissions();
+
+        for (long userId = 1; userId <= 20000; userId++) {
+            Assertions.assertThat(service.getCommissionCoefficient(userId, Currency.UAH, Currency.USD, new BigDecimal("5000")))
+                    .isEqualByComparingTo(BigDecimal.ONE.subtract(BigDecimal.valueOf(userId % 100, 4)));
+        }
+        Assertions.assertThat(service.getCommissionCoefficient(7L, Currency.EUR, Currency.USD, BigDecimal.TEN))
+                .isEqualByComparingTo("0.995");
+        // users without override for the pair fall back to the global table
+        Assertions.assertThat(service.getCommissionCoefficient(8L, Currency.EUR, Currency.USD, BigDecimal.TEN))
+                .isEqualByComparingTo(BigDecimal.ONE);
+        Assertions.assertThat(service.getCommissionCoefficient(20001L, Currency.UAH, Currency.USD, new BigDecimal("5000")))
+                .isEqualByComparingTo("0.98");
+        Assertions.assertThat(service.getCommissionCoefficient(null, Currency.UAH, Currency.USD, BigDecimal.TEN))
+                .isEqualByComparingTo("0.97");
+    }
+
+    @Test
+    public void setUserCommissionTest() {
+        UserCommission userCommission = new UserCommission(5L, new BigDecimal("1.50"), Currency.UAH, Currency.USD);
+        Mockito.when(userRepositoryMock.existsByIdAndTenant(5L, TenantContext.DEFAULT_TENANT))
+                .thenReturn(true);
+        Mockito.when(userCommissionRepositoryMock.findByUserIdAndFromAndTo(5L, Currency.UAH.toString(), Currency.USD.toString()))
+                .thenReturn(Optional.empty());
+
+        service.setUserCommission(userCommission);
+
+        ArgumentCaptor<UserCommissionEntity> entityCaptor = ArgumentCaptor.forClass(UserCommissionEntity.class);
+        Mockito.verify(userCommissionRepositoryMock)
+                .saveAndFlush(entityCaptor.capture());
+        Assertions.assertThat(entityCaptor.getValue())
+                .isEqualTo(new UserCommissionEntity(null, 5L, Currency.UAH.toString(), Currency.USD.toString(),
+                        new BigDecimal("1.50")));
+    }
+
+    @Test
+    public void setUserCommissionUnknownUserTest() {
+        UserCommission userCommission = new UserCommission(5L, new BigDecimal("1.50"), Currency.UAH, Currency.USD);
+        Mockito.when(userRepositoryMock.existsByIdAndTenant(5L, TenantContext.DEFAULT_TENANT))
+                .thenReturn(false);
+
+        Assertions.assertThatExceptionOfType(CommissionException.class)
+                .isThrownBy(() -> service.setUserCommission(userCommission))
+                .withMessage("User 5 doesn't exist");
+
+        Mockito.verify(userCommissionRepositoryMock, Mockito.never())
+                .saveAndFlush(Mockito.any());
+    }
+
+    @Test
+    public void setCommissionBandsTest() {
+        List<CommissionBand> bands = new ArrayList<>();
+        bands.add(new CommissionBand(new BigDecimal("1000.00"), new BigDecimal("2.00")));
+        bands.add(new CommissionBand(new BigDecimal("10000.00"), new BigDecimal("1.00")));
+        List<CommissionBands> commissionBands = new ArrayList<>();
+        commissionBands.add(new CommissionBands(Currency.UAH, Currency.USD, bands));
+        commissionBands.add(new CommissionBands(Currency.EUR, Currency.USD, new ArrayList<>()));
+
+        service.setCommissionBands(commissionBands);
+
+        Mockito.verify(bandRepositoryMock)
+                .deleteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString());
+        Mockito.verify(bandRepositoryMock)
+                .deleteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.EUR.toString(), Currency.USD.toString());
+        ArgumentCaptor<List<CommissionBandEntity>> entitiesCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(bandRepositoryMock)
+                .saveAll(entitiesCaptor.capture());
+        Assertions.assertThat(entitiesCaptor.getValue())
+                .hasSize(2)
+                .allSatisfy(entity -> {
+                    Assertions.assertThat(entity.getId()).isNull();
+                    Assertions.assertThat(entity.getFrom()).isEqualTo(Currency.UAH.toString());
+                    Assertions.assertThat(entity.getTo()).isEqualTo(Currency.USD.toString());
+                });
+        Mockito.verify(bandRepositoryMock)
+                .findByTenant(Mockito.eq(TenantContext.DEFAULT_TENANT), Mockito.any(Sort.class));
+    }
+
+    @Test
+    public void setCommissionBandsInvalidTest() {
+        List<CommissionBand> bands = new ArrayList<>();
+        bands.add(new CommissionBand(new BigDecimal("1000.00"), new BigDecimal("2.00")));
+        bands.add(new CommissionBand(new BigDecimal("1000"), new BigDecimal("1.00")));
+        List<CommissionBands> duplicate = Collections.singletonList(new CommissionBands(Currency.UAH, Currency.USD, bands));
+        List<CommissionBands> zeroAmount = Collections.singletonList(new CommissionBands(Currency.UAH, Currency.USD,
+                Collections.singletonList(new CommissionBand(BigDecimal.ZERO, BigDecimal.ONE))));
+        List<CommissionBands> bigPercent = Collections.singletonList(new CommissionBands(Currency.UAH, Currency.USD,
+                Collections.singletonList(new CommissionBand(BigDecimal.TEN, BigDecimal.valueOf(100)))));
+        List<CommissionBands> sameCurrencies = Collections.singletonList(new CommissionBands(Currency.UAH, Currency.UAH,
+                Collections.singletonList(new CommissionBand(BigDecimal.TEN, BigDecimal.ONE))));
+
+        for (List<CommissionBands> commissionBands : Arrays.asList(duplicate, zeroAmount, bigPercent, sameCurrencies)) {
+            Assertions.assertThatExceptionOfType(CommissionException.class)
+                    .isThrownBy(() -> service.setCommissionBands(commissionBands));
+        }
+        Mockito.verify(bandRepositoryMock, Mockito.never())
+                .saveAll(Mockito.any());
     }
 
     @Test
     public void setNewCommissionTest() {
         Commission commission = new Commission(BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN), Currency.UAH,
                 Currency.USD);
-        Mockito.when(repositoryMock.findByFromAndTo(Mockito.any(), Mockito.any()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.empty());
 
         service.setCommission(commission);
@@ -145,7 +325,9 @@ public class CommissionServiceTests {
                 .isNull();
 
         Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(adminJournalMock)
+                .appendCommission(TenantContext.DEFAULT_TENANT, commission);
     }
 
     @Test
@@ -155,7 +337,7 @@ public class CommissionServiceTests {
         CommissionEntity data = new CommissionEntity(commission);
         long id = 1L;
         data.setId(id);
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString()))
                 .thenReturn(Optional.of(data));
 
         service.setCommission(commission);
@@ -172,7 +354,7 @@ public class CommissionServiceTests {
         Assertions.assertThat(capturedArgument.getId())
                 .isEqualTo(id);
 
-        Mockito.verify(repositoryMock).findByFromAndTo(Mockito.any(), Mockito.any());
+        Mockito.verify(repositoryMock).findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
@@ -0,0 +1,82 @@
+package com.example.exchange;
+
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hand-written DTO serializers against default bean (de)serialization, which is what the mapper does with
+ * annotations disabled. Run with {@code java -cp <test classpath> org.openjdk.jmh.Main DtoJsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoJsonBenchmark {
+
+    @Param({"custom", "bean"})
+    public String codec;
+
+    private ObjectReader requestReader;
+    private ObjectWriter requestWriter;
+    private ObjectWriter rateWriter;
+    private byte[] requestJson;
+    private ExchangeRequest request;
+    private ExchangeRate rate;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        if ("bean".equals(codec)) {
+            objectMapper.disable(MapperFeature.USE_ANNOTATIONS);
+        }
+        requestReader = objectMapper.readerFor(ExchangeRequest.class);
+        requestWriter = objectMapper.writerFor(ExchangeRequest.class);
+        rateWriter = objectMapper.writerFor(ExchangeRate.class);
+        request = new ExchangeRequest(new BigDecimal("1250.75"), BigDecimal.ZERO, Currency.UAH, Currency.USD,
+                OperationType.GIVE);
+        requestJson = requestWriter.writeValueAsBytes(request);
+        rate = new ExchangeRate(Currency.EUR, new BigDecimal("1.18000"), Currency.USD);
+        rate.setBid(new BigDecimal("1.17500"));
+        rate.setAsk(new BigDecimal("1.18500"));
+    }
+
+    @Benchmark
+    public ExchangeRequest readExchangeRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] writeExchangeRequest() throws IOException {
+        return requestWriter.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public byte[] writeExchangeRate() throws IOException {
+        return rateWriter.writeValueAsBytes(rate);
+    }
+}
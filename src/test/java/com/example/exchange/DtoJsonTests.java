@@ -0,0 +1,80 @@
+package com.example.exchange;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+public class DtoJsonTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final ObjectMapper beanMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(MapperFeature.USE_ANNOTATIONS);
+
+    @Test
+    public void currencyFromCodeTest() {
+        for (Currency currency : Currency.values()) {
+            Assertions.assertThat(Currency.fromCode(currency.name()))
+                    .isEqualTo(currency);
+        }
+        Assertions.assertThat(Currency.fromCode("GBP")).isNull();
+        Assertions.assertThat(Currency.fromCode("EUH")).isNull();
+        Assertions.assertThat(Currency.fromCode("usd")).isNull();
+        Assertions.assertThat(Currency.fromCode("USDT")).isNull();
+        Assertions.assertThat(Currency.fromCode("")).isNull();
+    }
+
+    @Test
+    public void sameJsonAsBeanSerializationTest() throws Exception {
+        ExchangeRequest request = new ExchangeRequest(new BigDecimal("100.50"), null, Currency.UAH, Currency.USD,
+                OperationType.GIVE);
+        ExchangeRate exchangeRate = new ExchangeRate(Currency.EUR, new BigDecimal("1.18000"), Currency.USD);
+        exchangeRate.setBid(new BigDecimal("1.17500"));
+        exchangeRate.setAsk(new BigDecimal("1.18500"));
+        Commission commission = new Commission(new BigDecimal("2.50"), Currency.RUB, Currency.EUR);
+
+        for (Object value : new Object[]{request, exchangeRate, commission}) {
+            Assertions.assertThat(objectMapper.readTree(objectMapper.writeValueAsString(value)))
+                    .isEqualTo(beanMapper.readTree(beanMapper.writeValueAsString(value)));
+            Assertions.assertThat(objectMapper.readValue(objectMapper.writeValueAsString(value), value.getClass()))
+                    .isEqualTo(value);
+        }
+    }
+
+    @Test
+    public void readLenientInputTest() throws Exception {
+        String json = "{\"unknown\":{\"nested\":[1,2]},\"amountFrom\":\"12.30\",\"amountTo\":null,"
+                + "\"currencyFrom\":\"EUR\",\"currencyTo\":\"RUB\",\"operationType\":\"GET\"}";
+
+        ExchangeRequest result = objectMapper.readValue(json, ExchangeRequest.class);
+
+        Assertions.assertThat(result)
+                .isEqualTo(beanMapper.readValue(json, ExchangeRequest.class))
+                .isEqualTo(new ExchangeRequest(new BigDecimal("12.30"), null, Currency.EUR, Currency.RUB,
+                        OperationType.GET));
+    }
+
+    @Test
+    public void readInvalidInputTest() {
+        Assertions.assertThatExceptionOfType(InvalidFormatException.class)
+                .isThrownBy(() -> objectMapper.readValue("{\"from\":\"GBP\",\"rate\":1}", ExchangeRate.class));
+        Assertions.assertThatExceptionOfType(InvalidFormatException.class)
+                .isThrownBy(() -> objectMapper.readValue("{\"operationType\":\"TAKE\"}", ExchangeRequest.class));
+        Assertions.assertThatExceptionOfType(InvalidFormatException.class)
+                .isThrownBy(() -> objectMapper.readValue("{\"commissionPt\":\"abc\"}", Commission.class));
+        Assertions.assertThatExceptionOfType(MismatchedInputException.class)
+                .isThrownBy(() -> objectMapper.readValue("[1]", Commission.class));
+    }
+}
@@ -5,10 +5,13 @@ import com.example.exchange.models.ExchangeRate;
 import com.example.exchange.models.entities.CommissionEntity;
 import com.example.exchange.models.entities.ExchangeRateEntity;
 import com.example.exchange.models.enums.Currency;
+import com.example.exchange.repositories.CommissionBandRepository;
 import com.example.exchange.repositories.CommissionRepository;
 import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
 import com.example.exchange.services.CommissionService;
 import com.example.exchange.services.ExchangeService;
+import com.example.exchange.tenant.TenantContext;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
@@ -20,6 +23,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
@@ -57,6 +61,10 @@ public class ExchangeApplicationMockRepositoriesTests {
     @MockBean
     private CommissionRepository commissionRepositoryMock;
     @MockBean
+    private CommissionBandRepository commissionBandRepositoryMock;
+    @MockBean
+    private UserCommissionRepository userCommissionRepositoryMock;
+    @MockBean
     private ExchangeRateRepository exchangeRateRepositoryMock;
 
     @BeforeEach
@@ -76,7 +84,7 @@ public class ExchangeApplicationMockRepositoriesTests {
         data.add(new CommissionEntity(2L, BigDecimal.valueOf(random.nextInt(100)), Currency.USD.toString(), Currency.UAH.toString()));
         data.add(new CommissionEntity(3L, BigDecimal.valueOf(random.nextInt(100)), Currency.UAH.toString(), Currency.EUR.toString()));
         data.add(new CommissionEntity(4L, BigDecimal.valueOf(random.nextInt(100)), Currency.EUR.toString(), Currency.UAH.toString()));
-        Mockito.when(commissionRepositoryMock.findAll())
+        Mockito.when(commissionRepositoryMock.findPageAfter(TenantContext.DEFAULT_TENANT, "", "", PageRequest.of(0, 101)))
                 .thenReturn(data);
 
         MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders
@@ -101,7 +109,7 @@ public class ExchangeApplicationMockRepositoriesTests {
                         .map(Commission::new)
                         .collect(Collectors.toList()));
 
-        Mockito.verify(commissionRepositoryMock).findAll();
+        Mockito.verify(commissionRepositoryMock).findPageAfter(TenantContext.DEFAULT_TENANT, "", "", PageRequest.of(0, 101));
     }
 
     @WithMockUser
@@ -111,7 +119,7 @@ public class ExchangeApplicationMockRepositoriesTests {
         data.add(new ExchangeRateEntity(1L, Currency.UAH.toString(), BigDecimal.valueOf(random.nextInt(100) + 1), Currency.USD.toString()));
         data.add(new ExchangeRateEntity(2L, Currency.UAH.toString(), BigDecimal.valueOf(random.nextInt(100) + 1), Currency.EUR.toString()));
         data.add(new ExchangeRateEntity(3L, Currency.UAH.toString(), BigDecimal.valueOf(random.nextInt(100) + 1), Currency.RUB.toString()));
-        Mockito.when(exchangeRateRepositoryMock.findAll())
+        Mockito.when(exchangeRateRepositoryMock.findPageAfter(TenantContext.DEFAULT_TENANT, "", "", PageRequest.of(0, 101)))
                 .thenReturn(data);
 
         MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders
@@ -136,6 +144,6 @@ public class ExchangeApplicationMockRepositoriesTests {
                 .map(ExchangeRate::new)
                 .collect(Collectors.toList()));
 
-        Mockito.verify(exchangeRateRepositoryMock).findAll();
+        Mockito.verify(exchangeRateRepositoryMock).findPageAfter(TenantContext.DEFAULT_TENANT, "", "", PageRequest.of(0, 101));
     }
 }
@@ -1,13 +1,27 @@
 package com.example.exchange;
 
+import com.example.exchange.bulkhead.Bulkhead;
+import com.example.exchange.bulkhead.Bulkheads;
+import com.example.exchange.bulkhead.EndpointClass;
+import com.example.exchange.config.AuthThrottleFilter;
+import com.example.exchange.metrics.RequestTimingFilter;
+import com.example.exchange.models.CacheStatistics;
 import com.example.exchange.models.Commission;
 import com.example.exchange.models.DataBaseUserPrincipal;
 import com.example.exchange.models.ExchangeRate;
 import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.LatencyHistogram;
+import com.example.exchange.models.LatencyReport;
+import com.example.exchange.models.Position;
 import com.example.exchange.models.entities.UserEntity;
 import com.example.exchange.models.enums.Currency;
 import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserRepository;
 import com.example.exchange.services.CommissionService;
+import com.example.exchange.services.DataBaseUserDetailsService;
+import com.example.exchange.services.ExchangeService;
+import com.example.exchange.tenant.TenantContext;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
@@ -16,7 +30,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
@@ -25,13 +44,17 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.sql.DataSource;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -50,12 +73,31 @@ class ExchangeApplicationTests {
 
 	@Autowired
 	private CommissionService commissionService;
+	@Autowired
+	private RequestTimingFilter requestTimingFilter;
+	@Autowired
+	private AuthThrottleFilter authThrottleFilter;
+	@Autowired
+	private TestRestTemplate restTemplate;
+	@Autowired
+	private Bulkheads bulkheads;
+	@Autowired
+	private ExchangeService exchangeService;
+	@Autowired
+	private ExchangeRateRepository exchangeRateRepository;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private DataBaseUserDetailsService userDetailsService;
+	@Autowired
+	private DataSource dataSource;
 
 	@BeforeEach
 	public void setup() {
 		random.nextInt();
 		mvc = MockMvcBuilders
 				.webAppContextSetup(context)
+				.addFilters(requestTimingFilter, authThrottleFilter)
 				.apply(SecurityMockMvcConfigurers.springSecurity()) // enable security for the mock set up
 				.build();
 	}
@@ -99,6 +141,34 @@ class ExchangeApplicationTests {
 				.andDo(MockMvcResultHandlers.print());
 	}
 
+	@Test
+	public void throttleFailedAuthenticationTest() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			mvc.perform(MockMvcRequestBuilders
+					.get("/api/exchange-rates")
+					.with(SecurityMockMvcRequestPostProcessors.httpBasic("mallory", "guess" + i)))
+					.andExpect(MockMvcResultMatchers.status().isUnauthorized());
+		}
+
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/exchange-rates")
+				.with(SecurityMockMvcRequestPostProcessors.httpBasic("mallory", "guess")))
+				.andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+				.andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.RETRY_AFTER))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.description")
+						.value("Too many failed authentication attempts"));
+	}
+
+	@Test
+	@WithMockUser
+	public void getUserCommissionsByUserTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/user-commissions")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isUnauthorized())
+				.andDo(MockMvcResultHandlers.print());
+	}
+
 	@Test
 	@WithMockUser(roles = "ADMIN")
 	public void setCommissionTest() throws Exception {
@@ -152,6 +222,23 @@ class ExchangeApplicationTests {
 		exchangeRequestTest(OperationType.GET);
 	}
 
+	@Test
+	@WithMockUser
+	public void exchangeRequestRejectedTest() throws Exception {
+		ExchangeRequest exchangeRequest = new ExchangeRequest(new BigDecimal("100.00"), null, Currency.UAH,
+				Currency.UAH, OperationType.GIVE);
+
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/exchange")
+				.accept(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(exchangeRequest))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.code").value("SAME_CURRENCIES"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.description")
+						.value("Currencies From and To should be different"));
+	}
+
 	private void exchangeRequestTest(OperationType operationType) throws Exception {
 		ExchangeRequest exchangeRequest;
 		switch (operationType) {
@@ -268,6 +355,60 @@ class ExchangeApplicationTests {
 				.andDo(MockMvcResultHandlers.print());
 	}
 
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void getBulkheadsTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/admin/bulkheads"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[?(@.endpointClass == 'QUOTE')].poolSize").value(10));
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void getCircuitBreakersTest() throws Exception {
+		exchangeService.getAllExchangeRates();
+
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/admin/circuit-breakers"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[?(@.name == 'ExchangeRateRepository')].state")
+						.value("CLOSED"));
+	}
+
+	@Test
+	@WithMockUser
+	public void getExchangeRatesPageTest() throws Exception {
+		exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.08250"), Currency.USD));
+		exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("41.50000"), Currency.UAH));
+
+		String cursor = mvc.perform(MockMvcRequestBuilders
+				.get("/api/exchange-rates")
+				.param("from", Currency.EUR.toString())
+				.param("limit", "1"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[0].to").value(Currency.UAH.toString()))
+				.andReturn()
+				.getResponse()
+				.getHeader("X-Next-Cursor");
+		Assertions.assertThat(cursor)
+				.isEqualTo("EUR:UAH");
+
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/exchange-rates")
+				.param("from", Currency.EUR.toString())
+				.param("cursor", cursor)
+				.param("limit", "1"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[0].to").value(Currency.USD.toString()));
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/exchange-rates")
+				.param("cursor", "EUR"))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest());
+	}
+
 	@Test
 	@WithMockUser
 	public void setExchangeRateByUserTest() throws Exception {
@@ -299,6 +440,13 @@ class ExchangeApplicationTests {
 				.andReturn();
 		ExchangeRate result = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), new TypeReference<ExchangeRate>(){});
 
+		// rate without spread is quoted at the rate on both sides
+		exchangeRate.setBid(exchangeRate.getRate());
+		exchangeRate.setAsk(exchangeRate.getRate());
+		Assertions.assertThat(result.getUpdatedAt())
+				.isNotNull()
+				.isLessThanOrEqualTo(System.currentTimeMillis());
+		exchangeRate.setUpdatedAt(result.getUpdatedAt());
 		Assertions.assertThat(result)
 				.isNotNull()
 				.isEqualTo(exchangeRate);
@@ -323,4 +471,283 @@ class ExchangeApplicationTests {
 				.doesNotContain(new ExchangeRate[]{null})
 				.contains(exchangeRate);
 	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void exportExchangeRatesCsvTest() throws Exception {
+		ExchangeRate exchangeRate = new ExchangeRate(Currency.EUR, BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5,
+				BigDecimal.ROUND_DOWN), Currency.UAH);
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/exchange-rates")
+				.accept(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(exchangeRate))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+
+		String result = export("/api/exchange-rates/export?format=CSV");
+
+		Assertions.assertThat(result)
+				.startsWith("from,to,rate,bid,ask,updatedAt\n")
+				.containsPattern("\nEUR,UAH," + exchangeRate.getRate().toPlainString() + ","
+						+ exchangeRate.getRate().toPlainString() + "," + exchangeRate.getRate().toPlainString() + ",\\d+\n")
+				.endsWith("\n");
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void exportCommissionsNdjsonTest() throws Exception {
+		Commission commission = new Commission(BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN), Currency.EUR,
+				Currency.RUB);
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/commissions")
+				.accept(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(commission))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+
+		String result = export("/api/commissions/export?format=NDJSON");
+
+		Assertions.assertThat(result)
+				.endsWith("\n");
+		List<Commission> resultList = new ArrayList<>();
+		for (String line : result.split("\n")) {
+			resultList.add(objectMapper.readValue(line, Commission.class));
+		}
+		Assertions.assertThat(resultList)
+				.contains(commission);
+	}
+
+	@Test
+	@WithMockUser
+	public void getLatencyByUserTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/admin/latency")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isUnauthorized())
+				.andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void getLatencyTest() throws Exception {
+		ExchangeRate exchangeRate = new ExchangeRate(Currency.RUB, BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5,
+				BigDecimal.ROUND_DOWN), Currency.UAH);
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/exchange-rates")
+				.content(objectMapper.writeValueAsString(exchangeRate))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+		ExchangeRequest exchangeRequest = new ExchangeRequest(BigDecimal.valueOf(random.nextInt(100) + 1), BigDecimal.ZERO,
+				Currency.RUB, Currency.UAH, OperationType.GIVE);
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/exchange")
+				.content(objectMapper.writeValueAsString(exchangeRequest))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+
+		MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders
+				.get("/api/admin/latency")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andDo(MockMvcResultHandlers.print())
+				.andReturn();
+		LatencyReport report = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), LatencyReport.class);
+
+		Assertions.assertThat(report.getHistograms())
+				.extracting(LatencyHistogram::getName)
+				.contains("exchange RUB->UAH GIVE", "repository ExchangeRateRepository.findByTenantAndFromAndTo");
+		Assertions.assertThat(report.getHistograms())
+				.allSatisfy(histogram -> Assertions.assertThat(histogram.getCount()).isPositive());
+		Assertions.assertThat(report.getSlowestRequests())
+				.isNotEmpty()
+				.anySatisfy(request -> Assertions.assertThat(request.getUri()).isEqualTo("/api/exchange"));
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void getCacheStatisticsTest() throws Exception {
+		commissionService.setCommission(new Commission(BigDecimal.valueOf(random.nextInt(100)).setScale(2,
+				BigDecimal.ROUND_DOWN), Currency.EUR, Currency.RUB));
+		commissionService.getCommission(Currency.EUR, Currency.RUB);
+		commissionService.getCommission(Currency.EUR, Currency.RUB);
+
+		MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders
+				.get("/api/admin/cache")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andDo(MockMvcResultHandlers.print())
+				.andReturn();
+		List<CacheStatistics> result = objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+				new TypeReference<List<CacheStatistics>>(){});
+
+		Assertions.assertThat(result)
+				.anySatisfy(statistics -> {
+					Assertions.assertThat(statistics.getName()).isEqualTo("query cache");
+					Assertions.assertThat(statistics.getHits()).isPositive();
+				})
+				.anySatisfy(statistics -> {
+					Assertions.assertThat(statistics.getName()).isEqualTo("region commissions");
+					Assertions.assertThat(statistics.getHits()).isPositive();
+					Assertions.assertThat(statistics.getHitRatio()).isBetween(0.0, 1.0);
+				});
+	}
+
+	@Test
+	public void bulkheadAfterAuthenticationTest() throws Exception {
+		// over the server, where the filters are ordered by the servlet container
+		UserEntity user = userRepository.save(new UserEntity(null, "quoting" + random.nextInt(1_000_000), "pass",
+				"ROLE_USER"));
+		String url = "/api/exchange/all?currencyFrom=EUR&amountFrom=10";
+		Bulkhead quotes = bulkheads.get(EndpointClass.QUOTE);
+		int held = 0;
+		try {
+			while (quotes.getActive() < quotes.getMaxConcurrent()) {
+				Assertions.assertThat(quotes.acquire()).isTrue();
+				held++;
+			}
+			long rejected = quotes.getRejected();
+
+			Assertions.assertThat(restTemplate.getForEntity(url, String.class).getStatusCode())
+					.isEqualTo(HttpStatus.UNAUTHORIZED);
+			Assertions.assertThat(restTemplate.withBasicAuth(user.getUserName(), "wrong")
+					.getForEntity(url, String.class).getStatusCode())
+					.isEqualTo(HttpStatus.UNAUTHORIZED);
+			Assertions.assertThat(quotes.getRejected()).isEqualTo(rejected);
+
+			Assertions.assertThat(restTemplate.withBasicAuth(user.getUserName(), "pass")
+					.getForEntity(url, String.class).getStatusCode())
+					.isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+			Assertions.assertThat(quotes.getRejected()).isEqualTo(rejected + 1);
+		} finally {
+			for (int i = 0; i < held; i++) {
+				quotes.release();
+			}
+		}
+	}
+
+	@Test
+	@WithMockUser(roles = "ADMIN")
+	public void evictUsersTest() throws Exception {
+		UserEntity user = userRepository.save(new UserEntity(null, "cached" + random.nextInt(1_000_000), "pass",
+				"ROLE_USER"));
+		Assertions.assertThat(userDetailsService.loadUserByUsername(user.getUserName()).getAuthorities())
+				.extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_USER");
+
+		// a role revoked directly in the database is served from the cache until it is evicted
+		new JdbcTemplate(dataSource).update("UPDATE service_users SET userRole = 'ROLE_NONE' WHERE id = ?", user.getId());
+		Assertions.assertThat(userDetailsService.loadUserByUsername(user.getUserName()).getAuthorities())
+				.extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_USER");
+
+		mvc.perform(MockMvcRequestBuilders.delete("/api/admin/cache/users"))
+				.andExpect(MockMvcResultMatchers.status().isNoContent());
+		Assertions.assertThat(userDetailsService.loadUserByUsername(user.getUserName()).getAuthorities())
+				.extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_NONE");
+	}
+
+	@Test
+	@WithMockUser
+	public void exchangeAllTest() throws Exception {
+		exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.08250"), Currency.USD));
+
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/exchange/all")
+				.param("currencyFrom", Currency.EUR.toString())
+				.param("amountFrom", "100.00"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[?(@.currencyTo == 'USD')].amountTo").isNotEmpty())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[?(@.currencyTo == 'EUR')]").isEmpty());
+	}
+
+	@Test
+	@WithMockUser
+	public void valuePortfolioTest() throws Exception {
+		exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.08250"), Currency.USD));
+		List<Position> positions = Arrays.asList(new Position(Currency.EUR, new BigDecimal("100.00")),
+				new Position(Currency.USD, new BigDecimal("50.00")), new Position(Currency.EUR, new BigDecimal("20.00")));
+
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/portfolio/valuation")
+				.param("baseCurrency", Currency.USD.toString())
+				.content(objectMapper.writeValueAsString(positions))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.values.length()").value(2))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.values[0].amount").value(120.00))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.total").isNumber());
+	}
+
+	@Test
+	public void otherTenantTest() throws Exception {
+		String tenant = "branch";
+		UserEntity user = new UserEntity(null, "teller" + random.nextInt(1_000_000), "pass", "ROLE_USER");
+		user.setTenant(tenant);
+		userRepository.save(user);
+		exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.08250"), Currency.USD));
+		TenantContext.enter(tenant);
+		try {
+			exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.20000"), Currency.USD));
+			commissionService.setCommission(new Commission(new BigDecimal("5.00"), Currency.EUR, Currency.USD));
+		} finally {
+			TenantContext.exit();
+		}
+
+		// the tenant is taken from the stored user, not from a mock principal
+		mvc.perform(MockMvcRequestBuilders
+				.get("/api/exchange-rates")
+				.with(SecurityMockMvcRequestPostProcessors.httpBasic(user.getUserName(), "pass")))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[?(@.from == 'EUR')].rate").value(1.2));
+		mvc.perform(MockMvcRequestBuilders
+				.post("/api/exchange")
+				.with(SecurityMockMvcRequestPostProcessors.httpBasic(user.getUserName(), "pass"))
+				.content(objectMapper.writeValueAsString(new ExchangeRequest(new BigDecimal("100.00"), null,
+						Currency.EUR, Currency.USD, OperationType.GIVE)))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.amountTo").value(114.0));
+		String result = export(MockMvcRequestBuilders
+				.get("/api/exchange-rates/export?format=CSV")
+				.with(SecurityMockMvcRequestPostProcessors.httpBasic(user.getUserName(), "pass")));
+
+		Assertions.assertThat(result.split("\n"))
+				.hasSize(3);
+		Assertions.assertThat(result)
+				.contains("\nEUR,USD,1.20000,")
+				.doesNotContain("1.08250");
+	}
+
+	@Test
+	public void findQuoteTest() throws Exception {
+		BigDecimal commissionPt = BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN);
+		exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.08250"), Currency.USD));
+		commissionService.setCommission(new Commission(commissionPt, Currency.EUR, Currency.USD));
+
+		Assertions.assertThat(exchangeRateRepository.findQuoteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.EUR.toString(), Currency.USD.toString()))
+				.hasValueSatisfying(quote -> {
+					Assertions.assertThat(quote.getRate()).isEqualByComparingTo("1.08250");
+					Assertions.assertThat(quote.getCommissionPt()).isEqualByComparingTo(commissionPt);
+				});
+		Assertions.assertThat(exchangeRateRepository.findQuoteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.USD.toString(), Currency.EUR.toString()))
+				.hasValueSatisfying(quote -> Assertions.assertThat(quote.getBid()).isPositive());
+	}
+
+	private String export(String url) throws Exception {
+		return export(MockMvcRequestBuilders.get(url));
+	}
+
+	private String export(MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult mvcResult = mvc.perform(request)
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+		return mvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.CONTENT_DISPOSITION))
+				.andReturn()
+				.getResponse()
+				.getContentAsString();
+	}
 }
@@ -0,0 +1,98 @@
+package com.example.exchange;
+
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.entities.CommissionBandEntity;
+import com.example.exchange.models.entities.CommissionEntity;
+import com.example.exchange.models.entities.ExchangeRateEntity;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.repositories.CommissionBandRepository;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import com.example.exchange.repositories.UserRepository;
+import com.example.exchange.services.CommissionServiceImpl;
+import com.example.exchange.services.ExchangeServiceImpl;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exchange path over the in-memory tables: one quote of each operation and a conversion to every currency. Run by
+ * {@link PerformanceRegressionTests} in the {@code perf} profile, or with
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main ExchangeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeBenchmark {
+
+    private ExchangeServiceImpl service;
+
+    @Setup
+    public void setup() {
+        ExchangeRateRepository exchangeRateRepository = Mockito.mock(ExchangeRateRepository.class);
+        Mockito.when(exchangeRateRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(
+                        new ExchangeRateEntity(1L, Currency.UAH.toString(), new BigDecimal("0.03700"), Currency.USD.toString()),
+                        new ExchangeRateEntity(2L, Currency.UAH.toString(), new BigDecimal("0.03400"), Currency.EUR.toString()),
+                        new ExchangeRateEntity(3L, Currency.UAH.toString(), new BigDecimal("2.45000"), Currency.RUB.toString())));
+        CommissionRepository commissionRepository = Mockito.mock(CommissionRepository.class);
+        CommissionBandRepository commissionBandRepository = Mockito.mock(CommissionBandRepository.class);
+        UserCommissionRepository userCommissionRepository = Mockito.mock(UserCommissionRepository.class);
+        Mockito.when(commissionRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionEntity(1L, new BigDecimal("3.00"),
+                        Currency.UAH.toString(), Currency.USD.toString())));
+        Mockito.when(commissionBandRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionBandEntity(1L, Currency.UAH.toString(),
+                        Currency.USD.toString(), new BigDecimal("1000.00"), new BigDecimal("2.00"))));
+        Mockito.when(userCommissionRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.emptyList());
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(commissionRepository,
+                commissionBandRepository, userCommissionRepository, Mockito.mock(UserRepository.class),
+                Mockito.mock(AdminJournal.class), Mockito.mock(SnapshotFile.class));
+        commissionService.reloadCommissions();
+        service = new ExchangeServiceImpl(exchangeRateRepository, commissionService, QuotePolicy.DEFAULT,
+                RateAgeLimits.NONE, Mockito.mock(AdminJournal.class), Mockito.mock(SnapshotFile.class));
+        service.reloadExchangeRates();
+    }
+
+    @Benchmark
+    public ExchangeRequest calculateGive() {
+        return service.calculateExchange(new ExchangeRequest(new BigDecimal("1500.00"), null, Currency.UAH,
+                Currency.USD, OperationType.GIVE));
+    }
+
+    @Benchmark
+    public ExchangeRequest calculateGet() {
+        return service.calculateExchange(new ExchangeRequest(null, new BigDecimal("50.00"), Currency.UAH,
+                Currency.USD, OperationType.GET));
+    }
+
+    @Benchmark
+    public List<ExchangeRequest> calculateAll() {
+        return service.calculateExchanges(Currency.UAH, new BigDecimal("1500.00"), null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.exchange;
+
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.services.ExchangeService;
+import com.example.exchange.tenant.TenantContext;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "app.retry.max-attempts=50") // every update of the pair conflicts with the others
+public class ExchangeRateConcurrencyTests {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES = 200;
+
+    @Autowired
+    private ExchangeService exchangeService;
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Test
+    public void parallelSetExchangeRateTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(UPDATES);
+        try {
+            for (int i = 0; i < UPDATES; i++) {
+                boolean forward = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    BigDecimal rate = BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(100_000, 1_000_000), 5);
+                    if (forward) {
+                        exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, rate, Currency.RUB));
+                    } else {
+                        exchangeService.setExchangeRate(new ExchangeRate(Currency.RUB, rate, Currency.EUR));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BigDecimal forwardRate = exchangeService.getExchangeRate(Currency.EUR, Currency.RUB).get().getRate();
+        BigDecimal reverseRate = exchangeService.getExchangeRate(Currency.RUB, Currency.EUR).get().getRate();
+        Assertions.assertThat(forwardRate.multiply(reverseRate).subtract(BigDecimal.ONE).abs())
+                .isLessThanOrEqualTo(new BigDecimal("0.001"));
+        // the first update inserts both rows, every other one bumps the versions of both
+        Assertions.assertThat(exchangeRateRepository.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT,
+                Currency.EUR.toString(), Currency.RUB.toString()).get().getVersion())
+                .isEqualTo(UPDATES - 1);
+        Assertions.assertThat(exchangeRateRepository.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT,
+                Currency.RUB.toString(), Currency.EUR.toString()).get().getVersion())
+                .isEqualTo(UPDATES - 1);
+    }
+}
@@ -1,21 +1,44 @@
 package com.example.exchange;
 
+import com.example.exchange.cache.CommissionTable;
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.exceptions.CircuitOpenException;
+import com.example.exchange.exceptions.ErrorCode;
 import com.example.exchange.exceptions.ExchangeException;
+import com.example.exchange.exceptions.RatesUnavailableException;
+import com.example.exchange.exceptions.ValidationErrors;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.ExchangeQuote;
 import com.example.exchange.models.ExchangeRate;
 import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.PairCursor;
+import com.example.exchange.models.PortfolioValuation;
+import com.example.exchange.models.Position;
+import com.example.exchange.models.PositionValue;
 import com.example.exchange.models.entities.ExchangeRateEntity;
 import com.example.exchange.models.enums.Currency;
 import com.example.exchange.models.enums.OperationType;
 import com.example.exchange.repositories.ExchangeRateRepository;
 import com.example.exchange.services.CommissionService;
 import com.example.exchange.services.ExchangeServiceImpl;
+import com.example.exchange.tenant.TenantContext;
 import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -26,7 +49,16 @@ public class ExchangeServiceTests {
     private final Random random = new Random();
     private final ExchangeRateRepository repositoryMock = Mockito.mock(ExchangeRateRepository.class);
     private final CommissionService commissionServiceMock = Mockito.mock(CommissionService.class);
-    private final ExchangeServiceImpl service = new ExchangeServiceImpl(repositoryMock, commissionServiceMock);
+    private final AdminJournal adminJournalMock = Mockito.mock(AdminJournal.class);
+    private final SnapshotFile snapshotFileMock = Mockito.mock(SnapshotFile.class);
+    private final ExchangeServiceImpl service = new ExchangeServiceImpl(repositoryMock, commissionServiceMock,
+            QuotePolicy.DEFAULT, RateAgeLimits.NONE, adminJournalMock, snapshotFileMock);
+
+    @BeforeEach
+    public void setup() {
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(CommissionTable.EMPTY);
+    }
 
     @Test
     public void calculateGiveExchangeRequest() {
@@ -59,10 +91,11 @@ public class ExchangeServiceTests {
         ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.UAH.toString(),
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD.toString());
         BigDecimal coefficient = BigDecimal.valueOf(0.1d).setScale(2, BigDecimal.ROUND_DOWN);
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
-                .thenReturn(Optional.of(data));
-        Mockito.when(commissionServiceMock.getCommissionCoefficient(Currency.UAH, Currency.USD))
-                .thenReturn(coefficient);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(commissionTable(coefficient));
 
         ExchangeRequest result = service.calculateExchange(request);
 
@@ -109,10 +142,133 @@ public class ExchangeServiceTests {
             }
         }
 
-        Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
         Mockito.verify(commissionServiceMock)
-                .getCommissionCoefficient(Mockito.any(), Mockito.any());
+                .getUserCommissionCoefficient(null, Currency.UAH, Currency.USD);
+    }
+
+    @Test
+    public void calculateExchangeWithSpreadTest() {
+        ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.USD.toString(), new BigDecimal("27.00000"),
+                Currency.UAH.toString());
+        data.setBid(new BigDecimal("26.50000"));
+        data.setAsk(new BigDecimal("27.50000"));
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadExchangeRates();
+
+        ExchangeRequest give = service.calculateExchange(new ExchangeRequest(new BigDecimal("100"), BigDecimal.ZERO,
+                Currency.USD, Currency.UAH, OperationType.GIVE));
+        ExchangeRequest get = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO, new BigDecimal("2650"),
+                Currency.USD, Currency.UAH, OperationType.GET));
+
+        Assertions.assertThat(give.getAmountTo())
+                .isEqualByComparingTo("2650.00");
+        Assertions.assertThat(get.getAmountFrom())
+                .isEqualByComparingTo("100");
+    }
+
+    @Test
+    public void calculateExchangeByTenantTest() {
+        ExchangeRateEntity branchRate = new ExchangeRateEntity(2L, Currency.USD.toString(), new BigDecimal("40.00000"),
+                Currency.UAH.toString());
+        branchRate.setTenant("branch");
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(new ExchangeRateEntity(1L, Currency.USD.toString(), new BigDecimal("27.00000"),
+                        Currency.UAH.toString()), branchRate));
+        service.reloadExchangeRates();
+
+        ExchangeRequest defaultResult = service.calculateExchange(new ExchangeRequest(new BigDecimal("100"),
+                BigDecimal.ZERO, Currency.USD, Currency.UAH, OperationType.GIVE));
+        ExchangeRequest branchResult;
+        TenantContext.enter("branch");
+        try {
+            branchResult = service.calculateExchange(new ExchangeRequest(new BigDecimal("100"), BigDecimal.ZERO,
+                    Currency.USD, Currency.UAH, OperationType.GIVE));
+        } finally {
+            TenantContext.exit();
+        }
+
+        Assertions.assertThat(defaultResult.getAmountTo())
+                .isEqualByComparingTo("2700.00");
+        Assertions.assertThat(branchResult.getAmountTo())
+                .isEqualByComparingTo("4000.00");
+    }
+
+    @Test
+    public void calculateGetExchangeByBandTest() {
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new ExchangeRateEntity(1L, Currency.USD.toString(),
+                        new BigDecimal("27.00000"), Currency.UAH.toString())));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(CommissionTable.builder()
+                        .commission(Currency.USD, Currency.UAH, new BigDecimal("2.00"))
+                        .band(Currency.USD, Currency.UAH, new BigDecimal("1000.00"), new BigDecimal("1.00"))
+                        .build());
+
+        ExchangeRequest belowBand = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO, new BigDecimal("26999.99"),
+                Currency.USD, Currency.UAH, OperationType.GET));
+        ExchangeRequest inBand = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO, new BigDecimal("27000.00"),
+                Currency.USD, Currency.UAH, OperationType.GET));
+
+        Assertions.assertThat(belowBand.getAmountFrom())
+                .isEqualByComparingTo("1020.40");
+        Assertions.assertThat(inBand.getAmountFrom())
+                .isEqualByComparingTo("1010.10");
+    }
+
+    @Test
+    public void calculateGetExchangeAtBandMinimumTest() {
+        // 1000 * 26.00005 is 26000.050000000003 in double
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new ExchangeRateEntity(1L, Currency.USD.toString(),
+                        new BigDecimal("26.00005"), Currency.UAH.toString())));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(CommissionTable.builder()
+                        .commission(Currency.USD, Currency.UAH, new BigDecimal("2.00"))
+                        .band(Currency.USD, Currency.UAH, new BigDecimal("1000.00"), new BigDecimal("1.00"))
+                        .build());
+
+        ExchangeRequest belowBand = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO, new BigDecimal("26000.04"),
+                Currency.USD, Currency.UAH, OperationType.GET));
+        // same double as the band minimum
+        ExchangeRequest justBelowBand = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO,
+                new BigDecimal("26000.0499999999999"), Currency.USD, Currency.UAH, OperationType.GET));
+        ExchangeRequest atBand = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO, new BigDecimal("26000.05"),
+                Currency.USD, Currency.UAH, OperationType.GET));
+
+        Assertions.assertThat(belowBand.getAmountFrom())
+                .isEqualByComparingTo("1020.40");
+        // GET amounts keep the scale of the requested amount
+        Assertions.assertThat(justBelowBand.getAmountFrom())
+                .isEqualTo("1020.4101255886970");
+        Assertions.assertThat(atBand.getAmountFrom())
+                .isEqualByComparingTo("1010.10");
+    }
+
+    @Test
+    public void calculateGetExchangeWithFixedScaleTest() {
+        ExchangeServiceImpl fixedScaleService = new ExchangeServiceImpl(repositoryMock, commissionServiceMock,
+                new QuotePolicy(MathContext.UNLIMITED, 2, 2, 2, RoundingMode.DOWN), RateAgeLimits.NONE,
+                adminJournalMock, snapshotFileMock);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new ExchangeRateEntity(1L, Currency.USD.toString(),
+                        new BigDecimal("27.00000"), Currency.UAH.toString())));
+        fixedScaleService.reloadExchangeRates();
+        service.reloadExchangeRates();
+
+        ExchangeRequest fixed = fixedScaleService.calculateExchange(new ExchangeRequest(BigDecimal.ZERO,
+                new BigDecimal("100.00000"), Currency.USD, Currency.UAH, OperationType.GET));
+        ExchangeRequest requested = service.calculateExchange(new ExchangeRequest(BigDecimal.ZERO,
+                new BigDecimal("100.00000"), Currency.USD, Currency.UAH, OperationType.GET));
+
+        Assertions.assertThat(fixed.getAmountFrom())
+                .isEqualTo("3.70");
+        Assertions.assertThat(requested.getAmountFrom())
+                .isEqualTo("3.70370");
     }
 
     @Test
@@ -121,30 +277,178 @@ public class ExchangeServiceTests {
                 BigDecimal.ZERO, Currency.UAH, Currency.UAH, OperationType.GIVE);
 
         Assertions.assertThatExceptionOfType(ExchangeException.class)
-                .isThrownBy(() -> service.calculateExchange(request));
+                .isThrownBy(() -> service.calculateExchange(request))
+                .satisfies(ex -> {
+                    Assertions.assertThat(ex.getCode()).isEqualTo(ErrorCode.SAME_CURRENCIES);
+                    Assertions.assertThat(ex.getStackTrace()).isEmpty();
+                })
+                .isSameAs(ValidationErrors.exchange(ErrorCode.SAME_CURRENCIES));
     }
 
     @Test
     public void calculateExchangeNotSupportedTest() {
         ExchangeRequest request = new ExchangeRequest(BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN),
                 BigDecimal.ZERO, Currency.UAH, Currency.USD, OperationType.GIVE);
-        Mockito.when(repositoryMock.findByFromAndTo(Mockito.any(), Mockito.any()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.empty());
 
         Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.calculateExchange(request))
+                .withMessage("This service doesn't support exchange between UAH and USD")
+                .isSameAs(ValidationErrors.exchange(ErrorCode.UNSUPPORTED_PAIR, Currency.UAH, Currency.USD));
+    }
+
+    @Test
+    public void calculateExchangeFromDatabaseTest() {
+        ExchangeRequest request = new ExchangeRequest(new BigDecimal("100.00"), null, Currency.UAH, Currency.USD,
+                OperationType.GIVE);
+        Mockito.when(repositoryMock.findQuoteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString()))
+                .thenReturn(Optional.of(new ExchangeQuote(Currency.UAH.toString(), Currency.USD.toString(),
+                        new BigDecimal("0.03700"), new BigDecimal("0.03700"), new BigDecimal("0.03700"),
+                        new BigDecimal("10.00"))));
+
+        ExchangeRequest result = service.calculateExchange(request);
+
+        Assertions.assertThat(result.getAmountTo())
+                .isEqualByComparingTo("3.33");
+        Mockito.verify(repositoryMock)
+                .findQuoteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString());
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void calculateExchangeDatabaseUnavailableTest() {
+        ExchangeRequest request = new ExchangeRequest(new BigDecimal("100.00"), null, Currency.UAH, Currency.USD,
+                OperationType.GIVE);
+        Mockito.when(repositoryMock.findQuoteByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString()))
+                .thenThrow(new CircuitOpenException("Circuit breaker of ExchangeRateRepository is open"));
+
+        Assertions.assertThatExceptionOfType(RatesUnavailableException.class)
                 .isThrownBy(() -> service.calculateExchange(request));
     }
 
+    @Test
+    public void rejectStaleRateTest() {
+        ExchangeServiceImpl rejectingService = new ExchangeServiceImpl(repositoryMock, commissionServiceMock,
+                QuotePolicy.DEFAULT, RateAgeLimits.of(0, "UAH:USD=60000", true), adminJournalMock, snapshotFileMock);
+        ExchangeRateEntity stale = new ExchangeRateEntity(1L, Currency.UAH.toString(), new BigDecimal("0.03700"),
+                Currency.USD.toString());
+        stale.setUpdatedAt(System.currentTimeMillis() - 120000);
+        ExchangeRateEntity unlimited = new ExchangeRateEntity(2L, Currency.UAH.toString(), new BigDecimal("0.03400"),
+                Currency.EUR.toString());
+        unlimited.setUpdatedAt(System.currentTimeMillis() - 120000);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(stale, unlimited));
+        rejectingService.reloadExchangeRates();
+
+        Assertions.assertThatExceptionOfType(RatesUnavailableException.class)
+                .isThrownBy(() -> rejectingService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                        Currency.UAH, Currency.USD, OperationType.GIVE)));
+        // the pair without a limit of its own is never stale
+        Assertions.assertThat(rejectingService.calculateExchanges(Currency.UAH, new BigDecimal("100.00"), null))
+                .extracting(ExchangeRequest::getCurrencyTo)
+                .containsExactly(Currency.EUR);
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findQuoteByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void flagStaleRateTest() {
+        ExchangeServiceImpl flaggingService = new ExchangeServiceImpl(repositoryMock, commissionServiceMock,
+                QuotePolicy.DEFAULT, RateAgeLimits.of(60000, "", false), adminJournalMock, snapshotFileMock);
+        ExchangeRateEntity stale = new ExchangeRateEntity(1L, Currency.UAH.toString(), new BigDecimal("0.03700"),
+                Currency.USD.toString());
+        stale.setUpdatedAt(System.currentTimeMillis() - 120000);
+        ExchangeRateEntity untimed = new ExchangeRateEntity(2L, Currency.UAH.toString(), new BigDecimal("0.03400"),
+                Currency.EUR.toString());
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(stale, untimed));
+        flaggingService.reloadExchangeRates();
+
+        ExchangeRequest result = flaggingService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                Currency.UAH, Currency.USD, OperationType.GIVE));
+
+        Assertions.assertThat(result.getAmountTo())
+                .isEqualByComparingTo("3.70");
+        Assertions.assertThat(flaggingService.isRateStale(Currency.UAH, Currency.USD))
+                .isTrue();
+        // rows stored before update times were tracked are never stale
+        Assertions.assertThat(flaggingService.isRateStale(Currency.UAH, Currency.EUR))
+                .isFalse();
+    }
+
+    @Test
+    public void calculateExchangesTest() {
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(
+                        new ExchangeRateEntity(1L, Currency.UAH.toString(), new BigDecimal("0.03700"), Currency.USD.toString()),
+                        new ExchangeRateEntity(2L, Currency.UAH.toString(), new BigDecimal("0.03400"), Currency.EUR.toString())));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(CommissionTable.builder()
+                        .commission(Currency.UAH, Currency.USD, new BigDecimal("10.00"))
+                        .build());
+        Mockito.when(commissionServiceMock.getUserCommissionCoefficient(7L, Currency.UAH, Currency.EUR))
+                .thenReturn(new BigDecimal("0.50"));
+
+        List<ExchangeRequest> results = service.calculateExchanges(Currency.UAH, new BigDecimal("100.00"), 7L);
+
+        Assertions.assertThat(results)
+                .extracting(ExchangeRequest::getCurrencyTo)
+                .containsExactlyInAnyOrder(Currency.USD, Currency.EUR);
+        for (ExchangeRequest result : results) {
+            Assertions.assertThat(result.getAmountTo())
+                    .isEqualByComparingTo(result.getCurrencyTo() == Currency.USD ? "3.33" : "1.70");
+        }
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.calculateExchanges(Currency.UAH, BigDecimal.ZERO, null));
+    }
+
+    @Test
+    public void valuePortfolioTest() {
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(
+                        new ExchangeRateEntity(1L, Currency.UAH.toString(), new BigDecimal("0.03700"), Currency.USD.toString()),
+                        new ExchangeRateEntity(2L, Currency.EUR.toString(), new BigDecimal("1.08000"), Currency.USD.toString())));
+        service.reloadExchangeRates();
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            positions.add(new Position(Currency.UAH, new BigDecimal("1.01")));
+            if (i % 3 == 0) {
+                positions.add(new Position(Currency.EUR, new BigDecimal("1.00")));
+            }
+            if (i % 30 == 0) {
+                positions.add(new Position(Currency.USD, new BigDecimal("2.00")));
+            }
+        }
+        Collections.shuffle(positions, random);
+
+        PortfolioValuation valuation = service.valuePortfolio(Currency.USD, positions, null);
+
+        Assertions.assertThat(valuation.getValues())
+                .containsExactly(new PositionValue(Currency.EUR, new BigDecimal("1000.00"), new BigDecimal("1080.00")),
+                        new PositionValue(Currency.USD, new BigDecimal("200.00"), new BigDecimal("200.00")),
+                        new PositionValue(Currency.UAH, new BigDecimal("3030.00"), new BigDecimal("112.11")));
+        Assertions.assertThat(valuation.getTotal())
+                .isEqualByComparingTo("1392.11");
+        Assertions.assertThat(service.valuePortfolio(Currency.USD, positions, null))
+                .isEqualTo(valuation);
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.valuePortfolio(Currency.EUR, positions, null));
+    }
+
     @Test
     public void calculateExchangeGiveZeroTest() {
         ExchangeRequest request = new ExchangeRequest(BigDecimal.ZERO, BigDecimal.ZERO, Currency.UAH, Currency.USD, OperationType.GIVE);
         ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.UAH.toString(),
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD.toString());
         BigDecimal coefficient = BigDecimal.valueOf(0.1d).setScale(2, BigDecimal.ROUND_DOWN);
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
-                .thenReturn(Optional.of(data));
-        Mockito.when(commissionServiceMock.getCommissionCoefficient(Currency.UAH, Currency.USD))
-                .thenReturn(coefficient);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(commissionTable(coefficient));
 
         Assertions.assertThatExceptionOfType(ExchangeException.class)
                 .isThrownBy(() -> service.calculateExchange(request));
@@ -157,10 +461,11 @@ public class ExchangeServiceTests {
         ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.UAH.toString(),
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD.toString());
         BigDecimal coefficient = BigDecimal.valueOf(0.1d).setScale(2, BigDecimal.ROUND_DOWN);
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
-                .thenReturn(Optional.of(data));
-        Mockito.when(commissionServiceMock.getCommissionCoefficient(Currency.UAH, Currency.USD))
-                .thenReturn(coefficient);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(commissionTable(coefficient));
 
         Assertions.assertThatExceptionOfType(ExchangeException.class)
                 .isThrownBy(() -> service.calculateExchange(request));
@@ -172,10 +477,11 @@ public class ExchangeServiceTests {
         ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.UAH.toString(),
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD.toString());
         BigDecimal coefficient = BigDecimal.valueOf(0.1d).setScale(2, BigDecimal.ROUND_DOWN);
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
-                .thenReturn(Optional.of(data));
-        Mockito.when(commissionServiceMock.getCommissionCoefficient(Currency.UAH, Currency.USD))
-                .thenReturn(coefficient);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(commissionTable(coefficient));
 
         Assertions.assertThatExceptionOfType(ExchangeException.class)
                 .isThrownBy(() -> service.calculateExchange(request));
@@ -188,10 +494,11 @@ public class ExchangeServiceTests {
         ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.UAH.toString(),
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD.toString());
         BigDecimal coefficient = BigDecimal.valueOf(0.1d).setScale(2, BigDecimal.ROUND_DOWN);
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
-                .thenReturn(Optional.of(data));
-        Mockito.when(commissionServiceMock.getCommissionCoefficient(Currency.UAH, Currency.USD))
-                .thenReturn(coefficient);
+        Mockito.when(repositoryMock.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(data));
+        service.reloadExchangeRates();
+        Mockito.when(commissionServiceMock.getCommissionTable())
+                .thenReturn(commissionTable(coefficient));
 
         Assertions.assertThatExceptionOfType(ExchangeException.class)
                 .isThrownBy(() -> service.calculateExchange(request));
@@ -206,7 +513,7 @@ public class ExchangeServiceTests {
                 BigDecimal.ROUND_DOWN), Currency.EUR.toString()));
         data.add(new ExchangeRateEntity(3L, Currency.UAH.toString(), BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5,
                 BigDecimal.ROUND_DOWN), Currency.RUB.toString()));
-        Mockito.when(repositoryMock.findAll())
+        Mockito.when(repositoryMock.findByTenant(TenantContext.DEFAULT_TENANT))
                 .thenReturn(data);
 
         List<ExchangeRate> result = service.getAllExchangeRates();
@@ -220,13 +527,13 @@ public class ExchangeServiceTests {
                         .collect(Collectors.toList()));
 
         Mockito.verify(repositoryMock)
-                .findAll();
+                .findByTenant(TenantContext.DEFAULT_TENANT);
     }
 
     @Test
     public void getAllExchangeRatesEmptyTest() {
         List<ExchangeRateEntity> data = new ArrayList<>();
-        Mockito.when(repositoryMock.findAll())
+        Mockito.when(repositoryMock.findByTenant(TenantContext.DEFAULT_TENANT))
                 .thenReturn(data);
 
         List<ExchangeRate> result = service.getAllExchangeRates();
@@ -236,14 +543,49 @@ public class ExchangeServiceTests {
                 .isEmpty();
 
         Mockito.verify(repositoryMock)
-                .findAll();
+                .findByTenant(TenantContext.DEFAULT_TENANT);
+    }
+
+    @Test
+    public void getExchangeRatesPageTest() {
+        List<ExchangeRateEntity> data = Arrays.asList(
+                new ExchangeRateEntity(1L, Currency.EUR.toString(), new BigDecimal("1.08000"), Currency.UAH.toString()),
+                new ExchangeRateEntity(2L, Currency.EUR.toString(), new BigDecimal("1.08000"), Currency.USD.toString()),
+                new ExchangeRateEntity(3L, Currency.UAH.toString(), new BigDecimal("0.03700"), Currency.USD.toString()));
+        Mockito.when(repositoryMock.findPageAfter(TenantContext.DEFAULT_TENANT, Currency.EUR.toString(), Currency.RUB.toString(), PageRequest.of(0, 3)))
+                .thenReturn(data);
+
+        Slice<ExchangeRate> result = service.getExchangeRates(null, null,
+                new PairCursor(Currency.EUR.toString(), Currency.RUB.toString()), 2);
+
+        Assertions.assertThat(result.getContent())
+                .containsExactly(new ExchangeRate(data.get(0)), new ExchangeRate(data.get(1)));
+        Assertions.assertThat(result.hasNext())
+                .isTrue();
+    }
+
+    @Test
+    public void getExchangeRatesByFromTest() {
+        ExchangeRateEntity data = new ExchangeRateEntity(3L, Currency.UAH.toString(), new BigDecimal("0.03700"),
+                Currency.USD.toString());
+        Mockito.when(repositoryMock.findPageByFromAfter(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), "", PageRequest.of(0, 11)))
+                .thenReturn(Collections.singletonList(data));
+
+        Slice<ExchangeRate> result = service.getExchangeRates(Currency.UAH, null, null, 10);
+
+        Assertions.assertThat(result.getContent())
+                .containsExactly(new ExchangeRate(data));
+        Assertions.assertThat(result.hasNext())
+                .isFalse();
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.getExchangeRates(null, null, null, 0));
     }
 
     @Test
     public void getExchangeRateTest() {
         ExchangeRateEntity data = new ExchangeRateEntity(1L, Currency.UAH.toString(),
                 BigDecimal.valueOf(random.nextInt(100)).setScale(2, BigDecimal.ROUND_DOWN), Currency.USD.toString());
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString()))
                 .thenReturn(Optional.of(data));
 
         Optional<ExchangeRate> result = service.getExchangeRate(Currency.UAH, Currency.USD);
@@ -254,12 +596,12 @@ public class ExchangeServiceTests {
                 .get().isEqualTo(new ExchangeRate(data));
 
         Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
     public void getExchangeRateNotFoundTest() {
-        Mockito.when(repositoryMock.findByFromAndTo(Mockito.any(), Mockito.any()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.empty());
 
         Optional<ExchangeRate> result = service.getExchangeRate(Currency.UAH, Currency.USD);
@@ -269,28 +611,27 @@ public class ExchangeServiceTests {
                 .isNotPresent();
 
         Mockito.verify(repositoryMock)
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
     public void setNewExchangeRateTest() {
         ExchangeRate exchangeRate = new ExchangeRate(Currency.UAH,
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD);
-        Mockito.when(repositoryMock.findByFromAndTo(Mockito.any(), Mockito.any()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenReturn(Optional.empty());
 
         service.setExchangeRate(exchangeRate);
 
         ArgumentCaptor<ExchangeRateEntity> entityCaptor = ArgumentCaptor.forClass(ExchangeRateEntity.class);
-        Mockito.verify(repositoryMock)
-                .save(entityCaptor.capture());
-        Mockito.verify(repositoryMock)
+        // the reverse pair comes first in pairIndex order
+        Mockito.verify(repositoryMock, Mockito.times(2))
                 .saveAndFlush(entityCaptor.capture());
 
         Assertions.assertThat(entityCaptor.getAllValues())
                 .hasSize(2);
 
-        ExchangeRateEntity capturedArgument = entityCaptor.getAllValues().get(0);
+        ExchangeRateEntity capturedArgument = entityCaptor.getAllValues().get(1);
         checkExchangeRate(capturedArgument);
         Assertions.assertThat(capturedArgument.getId())
                 .isNull();
@@ -301,7 +642,7 @@ public class ExchangeServiceTests {
         Assertions.assertThat(capturedArgument.getRate())
                 .isEqualByComparingTo(exchangeRate.getRate());
 
-        capturedArgument = entityCaptor.getAllValues().get(1);
+        capturedArgument = entityCaptor.getAllValues().get(0);
         BigDecimal expected = BigDecimal.ONE
                 .divide(exchangeRate.getRate(), 5, BigDecimal.ROUND_DOWN);
         checkExchangeRate(capturedArgument);
@@ -313,9 +654,63 @@ public class ExchangeServiceTests {
                 .isEqualTo(exchangeRate.getFrom().toString());
         Assertions.assertThat(capturedArgument.getRate())
                 .isEqualByComparingTo(expected);
+        // both directions are set at once
+        Assertions.assertThat(capturedArgument.getUpdatedAt())
+                .isNotNull()
+                .isEqualTo(entityCaptor.getAllValues().get(1).getUpdatedAt());
 
         Mockito.verify(repositoryMock, Mockito.times(2))
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void setExchangeRateWithSpreadTest() {
+        ExchangeRate exchangeRate = new ExchangeRate(Currency.UAH, null, Currency.USD);
+        exchangeRate.setBid(new BigDecimal("0.03600"));
+        exchangeRate.setAsk(new BigDecimal("0.03800"));
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(Optional.empty());
+
+        service.setExchangeRate(exchangeRate);
+
+        ArgumentCaptor<ExchangeRateEntity> entityCaptor = ArgumentCaptor.forClass(ExchangeRateEntity.class);
+        // the reverse pair comes first in pairIndex order
+        Mockito.verify(repositoryMock, Mockito.times(2))
+                .saveAndFlush(entityCaptor.capture());
+        ExchangeRateEntity forward = entityCaptor.getAllValues().get(1);
+        Assertions.assertThat(forward.getRate())
+                .isEqualByComparingTo("0.037");
+        Assertions.assertThat(forward.getBid())
+                .isEqualByComparingTo("0.036");
+        Assertions.assertThat(forward.getAsk())
+                .isEqualByComparingTo("0.038");
+        ExchangeRateEntity reverse = entityCaptor.getAllValues().get(0);
+        Assertions.assertThat(reverse.getBid())
+                .isEqualByComparingTo("26.31578");
+        Assertions.assertThat(reverse.getAsk())
+                .isEqualByComparingTo("27.77777");
+    }
+
+    @Test
+    public void setExchangeRateInvalidSpreadTest() {
+        ExchangeRate askBelowBid = new ExchangeRate(Currency.UAH, null, Currency.USD);
+        askBelowBid.setBid(new BigDecimal("0.03800"));
+        askBelowBid.setAsk(new BigDecimal("0.03600"));
+        ExchangeRate bidOnly = new ExchangeRate(Currency.UAH, new BigDecimal("0.03700"), Currency.USD);
+        bidOnly.setBid(new BigDecimal("0.03600"));
+        ExchangeRate rateAboveAsk = new ExchangeRate(Currency.UAH, new BigDecimal("0.03900"), Currency.USD);
+        rateAboveAsk.setBid(new BigDecimal("0.03600"));
+        rateAboveAsk.setAsk(new BigDecimal("0.03800"));
+
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.setExchangeRate(askBelowBid))
+                .withMessage("Ask shouldn't be less than bid");
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.setExchangeRate(bidOnly))
+                .withMessage("Bid and ask should be set together");
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.setExchangeRate(rateAboveAsk))
+                .withMessage("Rate should be between bid and ask");
     }
 
     @Test
@@ -328,23 +723,22 @@ public class ExchangeServiceTests {
         long secondId = 2L;
         ExchangeRateEntity reverseData = new ExchangeRateEntity(secondId, Currency.USD.toString(),
                 BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.UAH.toString());
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.UAH.toString(), Currency.USD.toString()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.UAH.toString(), Currency.USD.toString()))
                 .thenReturn(Optional.of(data));
-        Mockito.when(repositoryMock.findByFromAndTo(Currency.USD.toString(), Currency.UAH.toString()))
+        Mockito.when(repositoryMock.findByTenantAndFromAndTo(TenantContext.DEFAULT_TENANT, Currency.USD.toString(), Currency.UAH.toString()))
                 .thenReturn(Optional.of(reverseData));
 
         service.setExchangeRate(exchangeRate);
 
         ArgumentCaptor<ExchangeRateEntity> entityCaptor = ArgumentCaptor.forClass(ExchangeRateEntity.class);
-        Mockito.verify(repositoryMock)
-                .save(entityCaptor.capture());
-        Mockito.verify(repositoryMock)
+        // the reverse pair comes first in pairIndex order
+        Mockito.verify(repositoryMock, Mockito.times(2))
                 .saveAndFlush(entityCaptor.capture());
 
         Assertions.assertThat(entityCaptor.getAllValues())
                 .hasSize(2);
 
-        ExchangeRateEntity capturedArgument = entityCaptor.getAllValues().get(0);
+        ExchangeRateEntity capturedArgument = entityCaptor.getAllValues().get(1);
         checkExchangeRate(capturedArgument);
         Assertions.assertThat(capturedArgument.getId())
                 .isEqualTo(firstId);
@@ -355,7 +749,7 @@ public class ExchangeServiceTests {
         Assertions.assertThat(capturedArgument.getRate())
                 .isEqualByComparingTo(exchangeRate.getRate());
 
-        capturedArgument = entityCaptor.getAllValues().get(1);
+        capturedArgument = entityCaptor.getAllValues().get(0);
         BigDecimal expected = BigDecimal.ONE
                 .divide(exchangeRate.getRate(), 5, BigDecimal.ROUND_DOWN);
         checkExchangeRate(capturedArgument);
@@ -369,7 +763,7 @@ public class ExchangeServiceTests {
                 .isEqualByComparingTo(expected);
 
         Mockito.verify(repositoryMock, Mockito.times(2))
-                .findByFromAndTo(Mockito.any(), Mockito.any());
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
@@ -398,6 +792,83 @@ public class ExchangeServiceTests {
                 .isThrownBy(() -> service.setExchangeRate(exchangeRate));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void setExchangeRatesTest() {
+        ExchangeRateEntity existing = new ExchangeRateEntity(1L, Currency.UAH.toString(),
+                BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5, BigDecimal.ROUND_DOWN), Currency.USD.toString());
+        List<ExchangeRateEntity> data = new ArrayList<>();
+        data.add(existing);
+        Mockito.when(repositoryMock.findByTenant(TenantContext.DEFAULT_TENANT))
+                .thenReturn(data);
+        List<ExchangeRate> exchangeRates = new ArrayList<>();
+        exchangeRates.add(new ExchangeRate(Currency.UAH, BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5,
+                BigDecimal.ROUND_DOWN), Currency.USD));
+        exchangeRates.add(new ExchangeRate(Currency.EUR, BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5,
+                BigDecimal.ROUND_DOWN), Currency.RUB));
+
+        service.setExchangeRates(exchangeRates);
+
+        ArgumentCaptor<List<ExchangeRateEntity>> entitiesCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(repositoryMock)
+                .saveAll(entitiesCaptor.capture());
+        Mockito.verify(repositoryMock)
+                .flush();
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findByTenantAndFromAndTo(Mockito.any(), Mockito.any(), Mockito.any());
+
+        List<ExchangeRateEntity> saved = entitiesCaptor.getValue();
+        Assertions.assertThat(saved)
+                .hasSize(4)
+                .contains(existing);
+        for (ExchangeRate exchangeRate : exchangeRates) {
+            BigDecimal expectedReverse = BigDecimal.ONE
+                    .divide(exchangeRate.getRate(), 5, BigDecimal.ROUND_DOWN);
+            Assertions.assertThat(saved)
+                    .anySatisfy(entity -> {
+                        Assertions.assertThat(entity.getFrom()).isEqualTo(exchangeRate.getFrom().toString());
+                        Assertions.assertThat(entity.getTo()).isEqualTo(exchangeRate.getTo().toString());
+                        Assertions.assertThat(entity.getRate()).isEqualByComparingTo(exchangeRate.getRate());
+                    })
+                    .anySatisfy(entity -> {
+                        Assertions.assertThat(entity.getFrom()).isEqualTo(exchangeRate.getTo().toString());
+                        Assertions.assertThat(entity.getTo()).isEqualTo(exchangeRate.getFrom().toString());
+                        Assertions.assertThat(entity.getRate()).isEqualByComparingTo(expectedReverse);
+                    });
+        }
+        Assertions.assertThat(existing.getId())
+                .isEqualTo(1L);
+
+        ArgumentCaptor<List<ExchangeRate>> journalCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(adminJournalMock)
+                .appendExchangeRates(Mockito.eq(TenantContext.DEFAULT_TENANT), journalCaptor.capture());
+        Assertions.assertThat(journalCaptor.getValue())
+                .hasSize(4)
+                .containsAll(exchangeRates);
+    }
+
+    @Test
+    public void setExchangeRatesInvalidRowTest() {
+        List<ExchangeRate> exchangeRates = new ArrayList<>();
+        exchangeRates.add(new ExchangeRate(Currency.UAH, BigDecimal.valueOf(random.nextInt(100) + 1).setScale(5,
+                BigDecimal.ROUND_DOWN), Currency.USD));
+        exchangeRates.add(new ExchangeRate(Currency.EUR, BigDecimal.ZERO, Currency.RUB));
+
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> service.setExchangeRates(exchangeRates))
+                .withMessageStartingWith("Row 2");
+
+        Mockito.verify(repositoryMock, Mockito.never())
+                .saveAll(Mockito.any());
+    }
+
+    private static CommissionTable commissionTable(BigDecimal coefficient) {
+        BigDecimal commissionPt = BigDecimal.ONE.subtract(coefficient).multiply(BigDecimal.valueOf(100));
+        return CommissionTable.builder()
+                .commission(Currency.UAH, Currency.USD, commissionPt)
+                .build();
+    }
+
     private void checkExchangeRate(ExchangeRateEntity capturedArgument) {
         Assertions.assertThat(capturedArgument.getRate())
                 .isNotNull()
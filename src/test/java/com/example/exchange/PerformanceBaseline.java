@@ -0,0 +1,127 @@
+package com.example.exchange;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput and p99 latency baseline kept in {@code perf-baseline.json}. Measurements are compared with the baseline
+ * within the tolerances of the file, which {@code -Dperf.throughput-tolerance} and {@code -Dperf.p99-tolerance}
+ * override. The comparison is printed and appended to {@code target/perf-report.txt}, and the measurements are
+ * written to {@code target/perf-baseline.json}, which replaces the baseline when a slowdown is accepted.
+ */
+final class PerformanceBaseline {
+
+    private static final String BASELINE = "/perf-baseline.json";
+    private static final Path REPORT = Paths.get("target", "perf-report.txt");
+    private static final Path MEASURED = Paths.get("target", "perf-baseline.json");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private PerformanceBaseline() {
+    }
+
+    /**
+     * Throughput in operations per second and 99th percentile of latency in microseconds.
+     */
+    static final class Measurement {
+
+        final double throughput;
+        final double p99Us;
+
+        Measurement(double throughput, double p99Us) {
+            this.throughput = throughput;
+            this.p99Us = p99Us;
+        }
+    }
+
+    /**
+     * Compares the measurements with the baseline and throws {@link AssertionError} listing every regression.
+     * Measurements missing from the baseline are reported as new and don't fail.
+     */
+    static void check(String suite, Map<String, Measurement> measured) throws IOException {
+        JsonNode baseline;
+        try (InputStream in = PerformanceBaseline.class.getResourceAsStream(BASELINE)) {
+            baseline = MAPPER.readTree(in);
+        }
+        double throughputTolerance = tolerance("perf.throughput-tolerance", baseline.path("tolerance").path("throughput"));
+        double p99Tolerance = tolerance("perf.p99-tolerance", baseline.path("tolerance").path("p99"));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n%s against %s, throughput may drop by %.0f%%, p99 may rise by %.0f%%%n", suite,
+                BASELINE.substring(1), throughputTolerance * 100, p99Tolerance * 100));
+        report.append(String.format("%-36s %14s %14s %8s %12s %12s %8s%n", "", "ops/s base", "ops/s now",
+                "change", "p99 us base", "p99 us now", "change"));
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Measurement> entry : measured.entrySet()) {
+            String name = entry.getKey();
+            Measurement now = entry.getValue();
+            JsonNode base = baseline.path("results").path(name);
+            if (base.isMissingNode()) {
+                report.append(String.format("%-36s %14s %14.0f %8s %12s %12.2f %8s  NEW%n", name, "-",
+                        now.throughput, "", "-", now.p99Us, ""));
+                continue;
+            }
+            double baseThroughput = base.path("throughput").asDouble();
+            double baseP99 = base.path("p99Us").asDouble();
+            double throughputChange = now.throughput / baseThroughput - 1;
+            double p99Change = now.p99Us / baseP99 - 1;
+            List<String> verdicts = new ArrayList<>();
+            if (throughputChange < -throughputTolerance) {
+                verdicts.add("THROUGHPUT");
+                regressions.add(String.format("%s throughput %.0f ops/s is %.1f%% below baseline %.0f ops/s", name,
+                        now.throughput, -throughputChange * 100, baseThroughput));
+            }
+            if (p99Change > p99Tolerance) {
+                verdicts.add("P99");
+                regressions.add(String.format("%s p99 %.2f us is %.1f%% above baseline %.2f us", name, now.p99Us,
+                        p99Change * 100, baseP99));
+            }
+            report.append(String.format("%-36s %14.0f %14.0f %+7.1f%% %12.2f %12.2f %+7.1f%%  %s%n", name,
+                    baseThroughput, now.throughput, throughputChange * 100, baseP99, now.p99Us, p99Change * 100,
+                    verdicts.isEmpty() ? "ok" : "REGRESSION " + String.join(", ", verdicts)));
+        }
+
+        System.out.print(report);
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        writeMeasured(baseline, measured);
+        if (!regressions.isEmpty()) {
+            throw new AssertionError(suite + " regressed, see " + REPORT + ":\n" + String.join("\n", regressions));
+        }
+    }
+
+    private static double tolerance(String property, JsonNode configured) {
+        String value = System.getProperty(property, "");
+        return value.isEmpty() ? configured.asDouble() : Double.parseDouble(value);
+    }
+
+    /**
+     * Merges the measurements into {@code target/perf-baseline.json}, which starts as a copy of the baseline.
+     */
+    private static void writeMeasured(JsonNode baseline, Map<String, Measurement> measured) throws IOException {
+        ObjectNode result = Files.exists(MEASURED)
+                ? (ObjectNode) MAPPER.readTree(MEASURED.toFile())
+                : baseline.deepCopy();
+        ObjectNode results = result.with("results");
+        for (Map.Entry<String, Measurement> entry : measured.entrySet()) {
+            results.putObject(entry.getKey())
+                    .put("throughput", Math.round(entry.getValue().throughput))
+                    .put("p99Us", Math.round(entry.getValue().p99Us * 100) / 100d);
+        }
+        MAPPER.writeValue(MEASURED.toFile(), result);
+    }
+}
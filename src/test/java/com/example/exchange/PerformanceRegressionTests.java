@@ -0,0 +1,116 @@
+package com.example.exchange;
+
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.services.CommissionService;
+import com.example.exchange.services.ExchangeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performance regression suite of the {@code perf} Maven profile ({@code mvn test -Pperf}), left out of the default
+ * build. It runs the exchange path benchmarks and an end-to-end exchange scenario against H2 and compares both with
+ * {@code perf-baseline.json}, see {@link PerformanceBaseline}.
+ */
+@Tag("perf")
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PerformanceRegressionTests {
+
+    private static final int SCENARIO_WARM_UP = 5_000;
+    private static final int SCENARIO_REQUESTS = 20_000;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ExchangeService exchangeService;
+    @Autowired
+    private CommissionService commissionService;
+
+    @Test
+    public void exchangeBenchmarksTest() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ExchangeBenchmark.class.getName() + "\\.")
+                .forks(Integer.getInteger("perf.forks", 1))
+                .shouldFailOnError(true)
+                .build();
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            String name = ExchangeBenchmark.class.getSimpleName() + "." + result.getParams().getBenchmark()
+                    .substring(ExchangeBenchmark.class.getName().length() + 1);
+            double[] measurement = results.computeIfAbsent(name, key -> new double[2]);
+            if (result.getParams().getMode() == Mode.Throughput) {
+                // scores are per microsecond
+                measurement[0] = result.getPrimaryResult().getScore() * 1_000_000;
+            } else {
+                measurement[1] = result.getPrimaryResult().getStatistics().getPercentile(99);
+            }
+        }
+
+        Map<String, PerformanceBaseline.Measurement> measured = new LinkedHashMap<>();
+        results.forEach((name, measurement) ->
+                measured.put(name, new PerformanceBaseline.Measurement(measurement[0], measurement[1])));
+        PerformanceBaseline.check("Exchange benchmarks", measured);
+    }
+
+    @Test
+    @WithMockUser
+    public void exchangeScenarioTest() throws Exception {
+        exchangeService.setExchangeRate(new ExchangeRate(Currency.EUR, new BigDecimal("1.18000"), Currency.USD));
+        commissionService.setCommission(new Commission(new BigDecimal("2.50"), Currency.EUR, Currency.USD));
+        byte[] body = objectMapper.writeValueAsBytes(new ExchangeRequest(new BigDecimal("100.00"), null, Currency.EUR,
+                Currency.USD, OperationType.GIVE));
+
+        for (int i = 0; i < SCENARIO_WARM_UP; i++) {
+            exchange(body);
+        }
+        Histogram latencies = new Histogram(TimeUnit.SECONDS.toNanos(1), 3);
+        long start = System.nanoTime();
+        for (int i = 0; i < SCENARIO_REQUESTS; i++) {
+            long requestStart = System.nanoTime();
+            exchange(body);
+            latencies.recordValue(Math.min(System.nanoTime() - requestStart, latencies.getHighestTrackableValue()));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, PerformanceBaseline.Measurement> measured = new LinkedHashMap<>();
+        measured.put("scenario.exchange", new PerformanceBaseline.Measurement(SCENARIO_REQUESTS / seconds,
+                latencies.getValueAtPercentile(99) / 1000d));
+        PerformanceBaseline.check("End-to-end scenario", measured);
+    }
+
+    private void exchange(byte[] body) throws Exception {
+        mvc.perform(MockMvcRequestBuilders
+                .post("/api/exchange")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.exchange;
+
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.entities.CommissionBandEntity;
+import com.example.exchange.models.entities.CommissionEntity;
+import com.example.exchange.models.entities.ExchangeRateEntity;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.repositories.CommissionBandRepository;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import com.example.exchange.repositories.UserRepository;
+import com.example.exchange.services.CommissionServiceImpl;
+import com.example.exchange.services.ExchangeServiceImpl;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GIVE and GET quotes of one pair with a base commission and two bands, over 1024 amounts spread across the bands.
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main QuoteBandBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteBandBenchmark {
+
+    private static final int AMOUNTS = 1024;
+
+    private ExchangeServiceImpl service;
+    private final BigDecimal[] giveAmounts = new BigDecimal[AMOUNTS];
+    private final BigDecimal[] getAmounts = new BigDecimal[AMOUNTS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        ExchangeRateRepository exchangeRateRepository = Mockito.mock(ExchangeRateRepository.class);
+        Mockito.when(exchangeRateRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new ExchangeRateEntity(1L, Currency.UAH.toString(),
+                        new BigDecimal("0.03700"), Currency.USD.toString())));
+        CommissionRepository commissionRepository = Mockito.mock(CommissionRepository.class);
+        CommissionBandRepository commissionBandRepository = Mockito.mock(CommissionBandRepository.class);
+        UserCommissionRepository userCommissionRepository = Mockito.mock(UserCommissionRepository.class);
+        Mockito.when(commissionRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.singletonList(new CommissionEntity(1L, new BigDecimal("3.00"),
+                        Currency.UAH.toString(), Currency.USD.toString())));
+        Mockito.when(commissionBandRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Arrays.asList(
+                        new CommissionBandEntity(1L, Currency.UAH.toString(), Currency.USD.toString(),
+                                new BigDecimal("1000.00"), new BigDecimal("2.00")),
+                        new CommissionBandEntity(2L, Currency.UAH.toString(), Currency.USD.toString(),
+                                new BigDecimal("10000.00"), new BigDecimal("1.00"))));
+        Mockito.when(userCommissionRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(Collections.emptyList());
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(commissionRepository,
+                commissionBandRepository, userCommissionRepository, Mockito.mock(UserRepository.class),
+                Mockito.mock(AdminJournal.class), Mockito.mock(SnapshotFile.class));
+        commissionService.reloadCommissions();
+        service = new ExchangeServiceImpl(exchangeRateRepository, commissionService, QuotePolicy.DEFAULT,
+                RateAgeLimits.NONE, Mockito.mock(AdminJournal.class), Mockito.mock(SnapshotFile.class));
+        service.reloadExchangeRates();
+
+        Random random = new Random(42);
+        for (int i = 0; i < AMOUNTS; i++) {
+            giveAmounts[i] = BigDecimal.valueOf(100 + random.nextInt(2_000_000), 2);
+            getAmounts[i] = BigDecimal.valueOf(100 + random.nextInt(70_000), 2);
+        }
+    }
+
+    @Benchmark
+    public ExchangeRequest give() {
+        BigDecimal amount = giveAmounts[next++ & (AMOUNTS - 1)];
+        return service.calculateExchange(new ExchangeRequest(amount, null, Currency.UAH, Currency.USD,
+                OperationType.GIVE));
+    }
+
+    @Benchmark
+    public ExchangeRequest get() {
+        BigDecimal amount = getAmounts[next++ & (AMOUNTS - 1)];
+        return service.calculateExchange(new ExchangeRequest(null, amount, Currency.UAH, Currency.USD,
+                OperationType.GET));
+    }
+}
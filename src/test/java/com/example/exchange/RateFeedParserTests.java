@@ -0,0 +1,81 @@
+package com.example.exchange;
+
+import com.example.exchange.exceptions.ExchangeException;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.services.RateFeedParser;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class RateFeedParserTests {
+
+    @Test
+    public void parseFileTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("rates.csv");
+        Files.write(file, ("# vendor feed\r\n" +
+                "EUR,USD,1.08250\r\n" +
+                "\r\n" +
+                "USD,UAH,27\r\n" +
+                "RUB,EUR,0.01234").getBytes(StandardCharsets.US_ASCII));
+
+        List<ExchangeRate> result = RateFeedParser.parse(file);
+
+        Assertions.assertThat(result)
+                .containsExactly(
+                        new ExchangeRate(Currency.EUR, new BigDecimal("1.08250"), Currency.USD),
+                        new ExchangeRate(Currency.USD, new BigDecimal("27"), Currency.UAH),
+                        new ExchangeRate(Currency.RUB, new BigDecimal("0.01234"), Currency.EUR));
+    }
+
+    @Test
+    public void parseNegativeRateTest() {
+        List<ExchangeRate> result = parse("EUR,USD,-1.5\n");
+
+        Assertions.assertThat(result)
+                .hasSize(1);
+        Assertions.assertThat(result.get(0).getRate())
+                .isEqualByComparingTo("-1.5");
+    }
+
+    @Test
+    public void parseEmptyTest() {
+        Assertions.assertThat(parse(""))
+                .isEmpty();
+    }
+
+    @Test
+    public void parseUnknownCurrencyTest() {
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> parse("EUR,USD,1.1\nEUR,GBP,0.85\n"))
+                .withMessageContaining("line 2");
+    }
+
+    @Test
+    public void parseMalformedLineTest() {
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> parse("EUR;USD;1.1\n"))
+                .withMessageContaining("line 1");
+    }
+
+    @Test
+    public void parseMalformedRateTest() {
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> parse("EUR,USD,1.1.1\n"));
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> parse("EUR,USD,\n"));
+        Assertions.assertThatExceptionOfType(ExchangeException.class)
+                .isThrownBy(() -> parse("EUR,USD,1234567890.1234567890\n"));
+    }
+
+    private List<ExchangeRate> parse(String content) {
+        return RateFeedParser.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
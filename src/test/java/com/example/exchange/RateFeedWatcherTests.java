@@ -0,0 +1,101 @@
+package com.example.exchange;
+
+import com.example.exchange.exceptions.CircuitOpenException;
+import com.example.exchange.services.ExchangeService;
+import com.example.exchange.services.RateFeedWatcher;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class RateFeedWatcherTests {
+
+    private static final long SETTLE_MS = 60_000;
+
+    private final ExchangeService exchangeServiceMock = Mockito.mock(ExchangeService.class);
+
+    @Test
+    public void pollSettledFilesTest(@TempDir Path directory) throws Exception {
+        RateFeedWatcher watcher = new RateFeedWatcher(exchangeServiceMock, directory.toString(), SETTLE_MS);
+        Path file = feed(directory, "1.csv", "EUR,USD,1.08250\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+
+        watcher.poll();
+
+        Assertions.assertThat(file)
+                .exists();
+        Mockito.verify(exchangeServiceMock, Mockito.never())
+                .setExchangeRates(Mockito.anyList());
+
+        settle(file);
+        watcher.poll();
+
+        Assertions.assertThat(file)
+                .doesNotExist();
+        Assertions.assertThat(directory.resolve("1.csv.done"))
+                .exists();
+        Mockito.verify(exchangeServiceMock)
+                .setExchangeRates(Mockito.anyList());
+    }
+
+    @Test
+    public void pollFailedFilesTest(@TempDir Path directory) throws Exception {
+        RateFeedWatcher watcher = new RateFeedWatcher(exchangeServiceMock, directory.toString(), SETTLE_MS);
+        settle(feed(directory, "1.csv", "EUR,GBP,0.85000\n"));
+        settle(feed(directory, "2.csv", "EUR,USD,1.08250\n"));
+        settle(feed(directory, "3.csv", "USD,UAH,27\n"));
+        Mockito.doThrow(new IllegalStateException("Unexpected"))
+                .doNothing()
+                .when(exchangeServiceMock).setExchangeRates(Mockito.anyList());
+
+        watcher.poll();
+
+        // rejected by the parser, failed while applied, and applied
+        Assertions.assertThat(directory.resolve("1.csv.failed"))
+                .exists();
+        Assertions.assertThat(directory.resolve("2.csv.failed"))
+                .exists();
+        Assertions.assertThat(directory.resolve("3.csv.done"))
+                .exists();
+    }
+
+    @Test
+    public void pollDatabaseUnavailableTest(@TempDir Path directory) throws Exception {
+        RateFeedWatcher watcher = new RateFeedWatcher(exchangeServiceMock, directory.toString(), SETTLE_MS);
+        Path first = settle(feed(directory, "1.csv", "EUR,USD,1.08250\n"));
+        Path second = settle(feed(directory, "2.csv", "USD,UAH,27\n"));
+        Mockito.doThrow(new CircuitOpenException("Circuit is open"))
+                .doNothing()
+                .when(exchangeServiceMock).setExchangeRates(Mockito.anyList());
+
+        watcher.poll();
+
+        Assertions.assertThat(first)
+                .exists();
+        Assertions.assertThat(second)
+                .exists();
+        Mockito.verify(exchangeServiceMock)
+                .setExchangeRates(Mockito.anyList());
+
+        watcher.poll();
+
+        Assertions.assertThat(directory.resolve("1.csv.done"))
+                .exists();
+        Assertions.assertThat(directory.resolve("2.csv.done"))
+                .exists();
+    }
+
+    private static Path feed(Path directory, String name, String content) throws Exception {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Path settle(Path file) throws Exception {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 2 * SETTLE_MS));
+        return file;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.exchange;
+
+import com.example.exchange.config.ReadWriteRoutingDataSource;
+import com.example.exchange.config.ReplicaLagMonitor;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+public class ReadWriteRoutingDataSourceTests {
+
+    private final DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1", "sa", "");
+    private final DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1", "sa", "");
+    private final ReplicaLagMonitor monitor = new ReplicaLagMonitor(5000);
+    private final ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica, monitor);
+    private final DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+    @BeforeEach
+    public void setup() {
+        monitor.watch(primary, replica);
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            JdbcTemplate template = new JdbcTemplate(dataSource);
+            template.execute("DROP TABLE IF EXISTS node");
+            template.execute("DROP TABLE IF EXISTS replica_heartbeat");
+            template.execute("CREATE TABLE node (name VARCHAR(10))");
+            template.execute("CREATE TABLE replica_heartbeat (id INT not null, beat BIGINT not null, PRIMARY KEY (id))");
+        }
+        new JdbcTemplate(primary).update("INSERT INTO node VALUES ('primary')");
+        new JdbcTemplate(replica).update("INSERT INTO node VALUES ('replica')");
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplicaTest() {
+        replicate();
+        monitor.check();
+
+        Assertions.assertThat(monitor.isReplicaAvailable())
+                .isTrue();
+        Assertions.assertThat(nodeName(true))
+                .isEqualTo("replica");
+        Assertions.assertThat(nodeName(false))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    public void replicaUnavailableBeforeFirstCheckTest() {
+        Assertions.assertThat(nodeName(true))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimaryTest() {
+        new JdbcTemplate(replica).update("INSERT INTO replica_heartbeat (id, beat) VALUES (1, ?)",
+                System.currentTimeMillis() - 60_000);
+        monitor.check();
+
+        Assertions.assertThat(monitor.isReplicaAvailable())
+                .isFalse();
+        Assertions.assertThat(monitor.getLagMs())
+                .isGreaterThan(5000);
+        Assertions.assertThat(nodeName(true))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    public void brokenReplicaFallsBackToPrimaryTest() {
+        replicate();
+        monitor.check();
+        new JdbcTemplate(replica).execute("DROP TABLE replica_heartbeat");
+        monitor.check();
+
+        Assertions.assertThat(monitor.isReplicaAvailable())
+                .isFalse();
+        Assertions.assertThat(nodeName(true))
+                .isEqualTo("primary");
+    }
+
+    private String nodeName(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private void replicate() {
+        // emulates replication of the heartbeat row, which the monitor writes on the primary
+        new JdbcTemplate(replica).update("MERGE INTO replica_heartbeat (id, beat) KEY (id) VALUES (1, ?)",
+                System.currentTimeMillis());
+    }
+}
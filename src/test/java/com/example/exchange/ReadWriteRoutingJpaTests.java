@@ -0,0 +1,97 @@
+package com.example.exchange;
+
+import com.example.exchange.config.ReplicaLagMonitor;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.services.ExchangeService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Routing through the application's own JPA configuration: the {@link JpaTransactionManager} starts the transaction
+ * before the lazy connection proxy asks the routing datasource for a connection.
+ */
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "app.datasource.jdbc-url=jdbc:h2:mem:jpa_routing_primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.jdbc-url=jdbc:h2:mem:jpa_routing_replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+        "app.datasource.routing.lag-check-interval-ms=3600000"
+})
+public class ReadWriteRoutingJpaTests {
+
+    private final JdbcTemplate primary = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:jpa_routing_primary;DB_CLOSE_DELAY=-1", "root", "pass"));
+    private final JdbcTemplate replica = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:jpa_routing_replica;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    @Autowired
+    private ExchangeService exchangeService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setup() {
+        // the schema is created by Hibernate on the primary only, the replica gets the tables the test reads
+        primary.execute("CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT not null, beat BIGINT not null, PRIMARY KEY (id))");
+        replica.execute("DROP TABLE IF EXISTS replica_heartbeat");
+        replica.execute("DROP TABLE IF EXISTS exchangeRates");
+        replica.execute("CREATE TABLE replica_heartbeat (id INT not null, beat BIGINT not null, PRIMARY KEY (id))");
+        replica.execute("CREATE TABLE exchangeRates (id BIGINT AUTO_INCREMENT PRIMARY KEY, tenant VARCHAR(255) not null, " +
+                "currencyFrom VARCHAR(255), rate DECIMAL(38, 5), currencyTo VARCHAR(255), bid DECIMAL(38, 5), " +
+                "ask DECIMAL(38, 5), updatedAt BIGINT, version BIGINT)");
+        replica.update("INSERT INTO exchangeRates (tenant, currencyFrom, rate, currencyTo, version) " +
+                "VALUES ('default', 'UAH', 7.77777, 'USD', 0)");
+        replica.update("INSERT INTO replica_heartbeat (id, beat) VALUES (1, ?)", System.currentTimeMillis());
+        replicaLagMonitor.check();
+    }
+
+    @Test
+    public void readOnlyServiceCallGoesToReplicaTest() {
+        Assertions.assertThat(transactionManager)
+                .isInstanceOf(JpaTransactionManager.class);
+        Assertions.assertThat(replicaLagMonitor.isReplicaAvailable())
+                .isTrue();
+
+        List<ExchangeRate> rates = exchangeService.getAllExchangeRates();
+
+        Assertions.assertThat(rates)
+                .hasSize(1);
+        Assertions.assertThat(rates.get(0).getRate())
+                .isEqualByComparingTo("7.77777");
+    }
+
+    @Test
+    public void writeGoesToPrimaryTest() {
+        Assertions.assertThat(replicaLagMonitor.isReplicaAvailable())
+                .isTrue();
+
+        exchangeService.setExchangeRate(new ExchangeRate(Currency.UAH, new BigDecimal("1.25"), Currency.USD));
+
+        Assertions.assertThat(primary.queryForObject("SELECT rate FROM exchangeRates " +
+                "WHERE tenant = 'default' AND currencyFrom = 'UAH' AND currencyTo = 'USD'", BigDecimal.class))
+                .isEqualByComparingTo("1.25");
+        Assertions.assertThat(replica.queryForObject("SELECT rate FROM exchangeRates " +
+                "WHERE tenant = 'default' AND currencyFrom = 'UAH' AND currencyTo = 'USD'", BigDecimal.class))
+                .isEqualByComparingTo("7.77777");
+    }
+}
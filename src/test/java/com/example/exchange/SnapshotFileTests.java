@@ -0,0 +1,340 @@
+package com.example.exchange;
+
+import com.example.exchange.cache.QuotePolicy;
+import com.example.exchange.cache.RateAgeLimits;
+import com.example.exchange.exceptions.RatesUnavailableException;
+import com.example.exchange.journal.AdminJournal;
+import com.example.exchange.journal.JournalState;
+import com.example.exchange.journal.SnapshotFile;
+import com.example.exchange.models.Commission;
+import com.example.exchange.models.CommissionBand;
+import com.example.exchange.models.CommissionBands;
+import com.example.exchange.models.ExchangeRate;
+import com.example.exchange.models.ExchangeRequest;
+import com.example.exchange.models.UserCommission;
+import com.example.exchange.models.enums.Currency;
+import com.example.exchange.models.enums.OperationType;
+import com.example.exchange.repositories.CommissionBandRepository;
+import com.example.exchange.repositories.CommissionRepository;
+import com.example.exchange.repositories.ExchangeRateRepository;
+import com.example.exchange.repositories.UserCommissionRepository;
+import com.example.exchange.repositories.UserRepository;
+import com.example.exchange.services.CommissionServiceImpl;
+import com.example.exchange.services.ExchangeServiceImpl;
+import com.example.exchange.tenant.TenantContext;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+public class SnapshotFileTests {
+
+    private static final String DEFAULT = TenantContext.DEFAULT_TENANT;
+    private static final String BRANCH = "branch";
+
+    @Test
+    public void saveAndLoadTest(@TempDir Path directory) {
+        Path file = directory.resolve("tables.snapshot");
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        snapshotFile.saveCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("2.50"),
+                Currency.UAH, Currency.USD)), Collections.singletonList(new CommissionBands(Currency.UAH, Currency.USD,
+                Collections.singletonList(new CommissionBand(new BigDecimal("1000.00"), new BigDecimal("0.50"))))),
+                0);
+        snapshotFile.saveUserCommissions(Collections.singletonList(new UserCommission(7L, new BigDecimal("1.00"),
+                Currency.UAH, Currency.USD)));
+
+        JournalState state = load(file).getLoadedState();
+
+        Assertions.assertThat(state.getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03700", Currency.USD));
+        Assertions.assertThat(state.getCommissions(DEFAULT))
+                .containsExactly(new Commission(new BigDecimal("2.50"), Currency.UAH, Currency.USD));
+        Assertions.assertThat(state.getCommissionBands(DEFAULT))
+                .hasSize(1);
+        Assertions.assertThat(state.getUserCommissions())
+                .containsExactly(new UserCommission(7L, new BigDecimal("1.00"), Currency.UAH, Currency.USD));
+    }
+
+    @Test
+    public void keepLoadedTablesTest(@TempDir Path directory) {
+        Path file = directory.resolve("tables.snapshot");
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        snapshotFile.saveCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("2.50"),
+                Currency.UAH, Currency.USD)), Collections.emptyList(), 0);
+
+        load(file).saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03800", Currency.USD)), 0);
+
+        JournalState state = load(file).getLoadedState();
+        Assertions.assertThat(state.getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03800", Currency.USD));
+        Assertions.assertThat(state.hasCommissions(DEFAULT))
+                .isTrue();
+        Assertions.assertThat(state.hasUserCommissions())
+                .isFalse();
+    }
+
+    @Test
+    public void skipUnchangedTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        Files.delete(file);
+
+        snapshotFile.saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+
+        Assertions.assertThat(file)
+                .doesNotExist();
+    }
+
+    @Test
+    public void ignoreUnknownVersionTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        load(file).saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 4);
+        Files.write(file, bytes);
+
+        Assertions.assertThat(load(file).getLoadedState().hasExchangeRates(DEFAULT))
+                .isFalse();
+    }
+
+    @Test
+    public void loadVersion1Test(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        load(file).saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 1);
+        Files.write(file, bytes);
+
+        Assertions.assertThat(load(file).getLoadedState().getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.03700", Currency.USD));
+    }
+
+    @Test
+    public void ignoreCorruptedTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        load(file).saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        Assertions.assertThat(load(file).getLoadedState().hasExchangeRates(DEFAULT))
+                .isFalse();
+    }
+
+    @Test
+    public void quoteFromSnapshotTest(@TempDir Path directory) {
+        Path file = directory.resolve("tables.snapshot");
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        snapshotFile.saveCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList(), 0);
+        snapshotFile.saveExchangeRates(BRANCH,
+                Collections.singletonList(rate(Currency.UAH, "0.04000", Currency.USD)), 0);
+        snapshotFile.saveCommissions(BRANCH, Collections.singletonList(new Commission(new BigDecimal("20.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList(), 0);
+        snapshotFile.saveUserCommissions(Collections.emptyList());
+        CommissionRepository commissionRepositoryMock = Mockito.mock(CommissionRepository.class);
+        CommissionBandRepository bandRepositoryMock = Mockito.mock(CommissionBandRepository.class);
+        UserCommissionRepository userCommissionRepositoryMock = Mockito.mock(UserCommissionRepository.class);
+        ExchangeRateRepository exchangeRateRepositoryMock = Mockito.mock(ExchangeRateRepository.class);
+        AdminJournal adminJournal = new AdminJournal("", 16777216);
+        SnapshotFile loaded = load(file);
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(commissionRepositoryMock,
+                bandRepositoryMock, userCommissionRepositoryMock, Mockito.mock(UserRepository.class), adminJournal, loaded);
+        ExchangeServiceImpl exchangeService = new ExchangeServiceImpl(exchangeRateRepositoryMock, commissionService,
+                QuotePolicy.DEFAULT, RateAgeLimits.NONE, adminJournal, loaded);
+
+        commissionService.recoverCommissions();
+        exchangeService.recoverExchangeRates();
+        ExchangeRequest result = exchangeService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                Currency.UAH, Currency.USD, OperationType.GIVE));
+        ExchangeRequest branchResult;
+        TenantContext.enter(BRANCH);
+        try {
+            branchResult = exchangeService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                    Currency.UAH, Currency.USD, OperationType.GIVE));
+        } finally {
+            TenantContext.exit();
+        }
+
+        Assertions.assertThat(result.getAmountTo())
+                .isEqualByComparingTo("3.33");
+        Assertions.assertThat(branchResult.getAmountTo())
+                .isEqualByComparingTo("3.20");
+        Mockito.verifyNoInteractions(commissionRepositoryMock, bandRepositoryMock, userCommissionRepositoryMock,
+                exchangeRateRepositoryMock);
+    }
+
+    @Test
+    public void refuseStaleSnapshotTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+        snapshotFile.saveCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList(), 0);
+        snapshotFile.saveUserCommissions(Collections.emptyList());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 120000));
+        AdminJournal adminJournal = new AdminJournal("", 16777216);
+        SnapshotFile loaded = load(file);
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(Mockito.mock(CommissionRepository.class),
+                Mockito.mock(CommissionBandRepository.class), Mockito.mock(UserCommissionRepository.class),
+                Mockito.mock(UserRepository.class), adminJournal, loaded);
+        ExchangeServiceImpl exchangeService = new ExchangeServiceImpl(Mockito.mock(ExchangeRateRepository.class),
+                commissionService, QuotePolicy.DEFAULT, RateAgeLimits.NONE, adminJournal, loaded);
+        ReflectionTestUtils.setField(exchangeService, "maxStalenessMs", 60000L);
+
+        commissionService.recoverCommissions();
+        exchangeService.recoverExchangeRates();
+
+        Assertions.assertThat(exchangeService.getStalenessMs())
+                .isGreaterThanOrEqualTo(120000L);
+        Assertions.assertThatExceptionOfType(RatesUnavailableException.class)
+                .isThrownBy(() -> exchangeService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                        Currency.UAH, Currency.USD, OperationType.GIVE)));
+    }
+
+    @Test
+    public void confirmTenantAfterChangeTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        SnapshotFile snapshotFile = load(file);
+        for (String tenant : new String[] {DEFAULT, BRANCH}) {
+            snapshotFile.saveExchangeRates(tenant,
+                    Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)), 0);
+            snapshotFile.saveCommissions(tenant, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                    Currency.UAH, Currency.USD)), Collections.emptyList(), 0);
+        }
+        snapshotFile.saveUserCommissions(Collections.emptyList());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 120000));
+        AdminJournal adminJournal = new AdminJournal("", 16777216);
+        SnapshotFile loaded = load(file);
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(Mockito.mock(CommissionRepository.class),
+                Mockito.mock(CommissionBandRepository.class), Mockito.mock(UserCommissionRepository.class),
+                Mockito.mock(UserRepository.class), adminJournal, loaded);
+        ExchangeServiceImpl exchangeService = new ExchangeServiceImpl(Mockito.mock(ExchangeRateRepository.class),
+                commissionService, QuotePolicy.DEFAULT, RateAgeLimits.NONE, adminJournal, loaded);
+        commissionService.recoverCommissions();
+        exchangeService.recoverExchangeRates();
+
+        long branchStaleness;
+        TenantContext.enter(BRANCH);
+        try {
+            // the changes reload the tables of the branch from the database
+            exchangeService.setExchangeRates(Collections.singletonList(
+                    new ExchangeRate(Currency.UAH, new BigDecimal("0.04000"), Currency.USD)));
+            commissionService.setCommissionBands(Collections.emptyList());
+            branchStaleness = exchangeService.getStalenessMs();
+        } finally {
+            TenantContext.exit();
+        }
+
+        Assertions.assertThat(branchStaleness)
+                .isLessThan(60000L);
+        Assertions.assertThat(exchangeService.getStalenessMs())
+                .isGreaterThanOrEqualTo(120000L);
+    }
+
+    @Test
+    public void recoverJournalAfterSnapshotTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        Path journalFile = directory.resolve("admin.journal");
+        AdminJournal journal = open(journalFile);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)));
+        journal.snapshotCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList());
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)),
+                journal.getCommittedSequence());
+        snapshotFile.saveCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList(), journal.getCommittedSequence());
+        snapshotFile.saveUserCommissions(Collections.emptyList());
+        // a change made after the snapshot was saved, the node stops before the snapshot is saved again
+        journal.commit(journal.appendExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.04000", Currency.USD))));
+        journal.close();
+
+        ExchangeServiceImpl exchangeService = recover(open(journalFile), load(file));
+
+        Assertions.assertThat(exchangeService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                Currency.UAH, Currency.USD, OperationType.GIVE)).getAmountTo())
+                .isEqualByComparingTo("3.60");
+        Assertions.assertThat(load(file).getLoadedState().getExchangeRates(DEFAULT))
+                .containsExactly(rate(Currency.UAH, "0.04000", Currency.USD));
+    }
+
+    @Test
+    public void keepSnapshotNewerThanJournalTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tables.snapshot");
+        Path journalFile = directory.resolve("admin.journal");
+        AdminJournal journal = open(journalFile);
+        journal.snapshotExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.03700", Currency.USD)));
+        journal.snapshotCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList());
+        journal.commit(journal.appendExchangeRates(DEFAULT,
+                Collections.singletonList(rate(Currency.UAH, "0.04000", Currency.USD))));
+        // the rates were changed in the database without the journal and reloaded after the journaled change
+        SnapshotFile snapshotFile = load(file);
+        snapshotFile.saveExchangeRates(DEFAULT, Collections.singletonList(rate(Currency.UAH, "0.05000", Currency.USD)),
+                journal.getCommittedSequence());
+        snapshotFile.saveCommissions(DEFAULT, Collections.singletonList(new Commission(new BigDecimal("10.00"),
+                Currency.UAH, Currency.USD)), Collections.emptyList(), journal.getCommittedSequence());
+        snapshotFile.saveUserCommissions(Collections.emptyList());
+        journal.close();
+
+        ExchangeServiceImpl exchangeService = recover(open(journalFile), load(file));
+
+        Assertions.assertThat(exchangeService.calculateExchange(new ExchangeRequest(new BigDecimal("100.00"), null,
+                Currency.UAH, Currency.USD, OperationType.GIVE)).getAmountTo())
+                .isEqualByComparingTo("4.50");
+    }
+
+    private static ExchangeServiceImpl recover(AdminJournal journal, SnapshotFile snapshotFile) {
+        CommissionServiceImpl commissionService = new CommissionServiceImpl(Mockito.mock(CommissionRepository.class),
+                Mockito.mock(CommissionBandRepository.class), Mockito.mock(UserCommissionRepository.class),
+                Mockito.mock(UserRepository.class), journal, snapshotFile);
+        ExchangeServiceImpl exchangeService = new ExchangeServiceImpl(Mockito.mock(ExchangeRateRepository.class),
+                commissionService, QuotePolicy.DEFAULT, RateAgeLimits.NONE, journal, snapshotFile);
+        commissionService.recoverCommissions();
+        exchangeService.recoverExchangeRates();
+        return exchangeService;
+    }
+
+    private static AdminJournal open(Path file) throws Exception {
+        AdminJournal journal = new AdminJournal(file.toString(), 16777216);
+        journal.open();
+        return journal;
+    }
+
+    private static SnapshotFile load(Path file) {
+        SnapshotFile snapshotFile = new SnapshotFile(file.toString());
+        snapshotFile.load();
+        return snapshotFile;
+    }
+
+    private static ExchangeRate rate(Currency from, String rate, Currency to) {
+        ExchangeRate exchangeRate = new ExchangeRate(from, new BigDecimal(rate), to);
+        exchangeRate.setBid(exchangeRate.getRate());
+        exchangeRate.setAsk(exchangeRate.getRate());
+        return exchangeRate;
+    }
+}